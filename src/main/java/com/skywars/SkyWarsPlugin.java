@@ -1,15 +1,34 @@
 package com.skywars;
 
+import com.skywars.application.buffer.StatDeltaBuffer;
+import com.skywars.application.cache.CacheInvalidationBus;
+import com.skywars.application.cache.NameIndex;
+import com.skywars.application.cache.NegativeCache;
 import com.skywars.application.usecase.*;
 import com.skywars.domain.repository.CosmeticRepository;
 import com.skywars.domain.repository.SkyUserCacheRepository;
 import com.skywars.domain.repository.SkyUserRepository;
 import com.skywars.domain.service.CosmeticService;
 import com.skywars.domain.service.SkyUserService;
+import com.skywars.infrastructure.cache.CircuitBreakerSkyUserCacheRepository;
+import com.skywars.infrastructure.cache.ConsistentHashRing;
+import com.skywars.infrastructure.cache.InvalidatingSkyUserRepository;
+import com.skywars.infrastructure.cache.KnownUsersSkyUserRepository;
+import com.skywars.infrastructure.cache.LeaderboardSkyUserRepository;
+import com.skywars.infrastructure.cache.NearCacheSkyUserRepository;
+import com.skywars.infrastructure.cache.RedisBloomFilter;
+import com.skywars.infrastructure.cache.RedisCircuitBreaker;
+import com.skywars.infrastructure.cache.RedisInvalidationBus;
+import com.skywars.infrastructure.cache.RedisLeaderboardRepository;
 import com.skywars.infrastructure.cache.RedisSkyUserCacheRepository;
+import com.skywars.infrastructure.cache.ShardedSkyUserCacheRepository;
 import com.skywars.infrastructure.config.DatabaseConfig;
 import com.skywars.infrastructure.config.RedisConfig;
+import com.skywars.infrastructure.database.GroupCommitSkyUserRepository;
 import com.skywars.infrastructure.database.MySQLSkyUserRepository;
+import com.skywars.infrastructure.database.ReplicaRouter;
+import com.skywars.infrastructure.executor.ExecutorMetrics;
+import com.skywars.infrastructure.executor.MeteredExecutor;
 import com.skywars.infrastructure.repository.InMemoryCosmeticRepository;
 import com.skywars.infrastructure.service.SkyUserServiceImpl;
 import com.skywars.presentation.command.CosmeticCommand;
@@ -17,7 +36,14 @@ import com.skywars.presentation.command.SkyWarsCommand;
 import com.skywars.presentation.controller.SkyUserController;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
+import redis.clients.jedis.JedisPool;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -34,18 +60,60 @@ public class SkyWarsPlugin extends JavaPlugin {
     private DatabaseConfig databaseConfig;
     private RedisConfig redisConfig;
     
-    // Thread pool for async operations
+    // Scheduler for timers (flushes, lag checks, count refresh), no blocking I/O
     private ScheduledExecutorService executorService;
     
+    // Isolated, bounded pools for the blocking I/O of each backend
+    private MeteredExecutor mysqlExecutor;
+    private MeteredExecutor redisExecutor;
+    
+    // Completes once the MySQL tables are created and migrated
+    private CompletableFuture<Void> databaseReady = CompletableFuture.completedFuture(null);
+    
     // Repositories
     private SkyUserRepository userRepository;
     private SkyUserCacheRepository cacheRepository;
+    private NearCacheSkyUserRepository nearCacheRepository;
+    
+    // One per Redis node holding cached users
+    private final List<RedisSkyUserCacheRepository> redisCacheRepositories = new ArrayList<>();
+    
+    // Fail fast to MySQL only while a Redis node is unreachable (empty when disabled)
+    private final List<RedisCircuitBreaker> circuitBreakers = new ArrayList<>();
+    
+    // Breaker of the main Redis node (null when disabled)
+    private RedisCircuitBreaker circuitBreaker;
+    
+    // Leaderboards kept in Redis sorted sets (null when disabled)
+    private RedisLeaderboardRepository leaderboardRepository;
+    
+    // Bloom filter of stored UUIDs and names (null when disabled)
+    private RedisBloomFilter knownUsersFilter;
+    
+    // Announces changes to other servers (null when disabled)
+    private RedisInvalidationBus invalidationBus;
+    
+    // Routes read-only queries to the read replica when one is configured
+    private ReplicaRouter replicaRouter;
+    
+    // Group-commit stage in front of MySQL saves (null when disabled)
+    private GroupCommitSkyUserRepository groupCommitRepository;
+    
+    // Write-behind buffer for stat changes (null when disabled)
+    private StatDeltaBuffer statDeltaBuffer;
+    
+    // Name -> UUID lookup table for name-based queries
+    private NameIndex nameIndex;
+    
+    // UUIDs and names recently not found, shared by the lookup and create use cases
+    private NegativeCache<Object> missingUsers;
     
     // Use cases
     private GetSkyUserUseCase getSkyUserUseCase;
     private SaveSkyUserUseCase saveSkyUserUseCase;
     private CreateSkyUserUseCase createSkyUserUseCase;
     private UpdateStatsUseCase updateStatsUseCase;
+    private WarmCacheUseCase warmCacheUseCase;
     
     // Services
     private SkyUserService skyUserService;
@@ -63,8 +131,8 @@ public class SkyWarsPlugin extends JavaPlugin {
         // Save default config
         saveDefaultConfig();
         
-        // Initialize thread pool
-        executorService = Executors.newScheduledThreadPool(4);
+        // Initialize thread pools
+        initializeExecutors();
         
         // Initialize configurations
         initializeConfigurations();
@@ -87,6 +155,15 @@ public class SkyWarsPlugin extends JavaPlugin {
         // Start auto-save task
         startAutoSaveTask();
         
+        // Load players already online (plugin reload) in one batch, once the schema is ready
+        databaseReady.thenRun(() -> Bukkit.getScheduler().runTask(this,
+                () -> skyUserController.loadPlayers(Bukkit.getOnlinePlayers())));
+        
+        // Fill the caches in the background, enable does not wait for it
+        if (getConfig().getBoolean("cache.warmup.enabled", true)) {
+            databaseReady.thenRun(this::startCacheWarmup);
+        }
+        
         getLogger().info("SkyWars Clean Architecture plugin enabled successfully!");
         getLogger().info("Using Redis: " + (redisConfig.isHealthy() ? "Connected" : "Disconnected"));
         getLogger().info("Using MySQL: " + (databaseConfig.isHealthy() ? "Connected" : "Disconnected"));
@@ -105,6 +182,44 @@ public class SkyWarsPlugin extends JavaPlugin {
             skyUserController.saveAllActivePlayers();
         }
         
+        // Flush buffered stat changes before the executor goes away
+        if (statDeltaBuffer != null) {
+            getLogger().info("Flushing " + statDeltaBuffer.getPendingCount() + " buffered stat changes...");
+            try {
+                statDeltaBuffer.shutdown().get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                getLogger().severe("Failed to flush buffered stat changes: " + e.getMessage());
+            }
+        }
+        
+        // Commit saves still waiting in the group-commit window
+        if (groupCommitRepository != null) {
+            try {
+                groupCommitRepository.flush().get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                getLogger().severe("Failed to commit pending saves: " + e.getMessage());
+            }
+        }
+        
+        if (replicaRouter != null) {
+            replicaRouter.stop();
+        }
+        
+        // Announce the last changes, then release the subscription connection
+        if (invalidationBus != null) {
+            invalidationBus.stop();
+        }
+        
+        circuitBreakers.forEach(RedisCircuitBreaker::stop);
+        
+        for (RedisSkyUserCacheRepository redisCacheRepository : redisCacheRepositories) {
+            try {
+                redisCacheRepository.flushStats().get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                getLogger().warning("Failed to flush cache statistics: " + e.getMessage());
+            }
+        }
+        
         // Shutdown executor service
         if (executorService != null) {
             executorService.shutdown();
@@ -118,6 +233,13 @@ public class SkyWarsPlugin extends JavaPlugin {
             }
         }
         
+        // Let queued database and cache work finish before the pools go away
+        for (MeteredExecutor executor : new MeteredExecutor[]{mysqlExecutor, redisExecutor}) {
+            if (executor != null && !executor.shutdown(5, TimeUnit.SECONDS)) {
+                getLogger().warning(executor.getName() + " executor did not finish in time.");
+            }
+        }
+        
         // Close database and Redis connections
         if (databaseConfig != null) {
             databaseConfig.close();
@@ -130,6 +252,30 @@ public class SkyWarsPlugin extends JavaPlugin {
         getLogger().info("SkyWars Clean Architecture plugin disabled successfully!");
     }
     
+    private void initializeExecutors() {
+        executorService = Executors.newScheduledThreadPool(getConfig().getInt("executors.scheduler-threads", 2));
+        
+        mysqlExecutor = createExecutor("MySQL", "executors.mysql", 10);
+        redisExecutor = createExecutor("Redis", "executors.redis", 4);
+        
+        long metricsInterval = getConfig().getLong("executors.metrics-log-interval", 300);
+        if (metricsInterval > 0) {
+            executorService.scheduleAtFixedRate(() -> getExecutorMetrics().forEach(metrics ->
+                    getLogger().info("Executor " + metrics)), metricsInterval, metricsInterval, TimeUnit.SECONDS);
+        }
+    }
+    
+    private MeteredExecutor createExecutor(String name, String path, int defaultThreads) {
+        int threads = getConfig().getInt(path + ".threads", defaultThreads);
+        int queueSize = getConfig().getInt(path + ".queue-size", 1000);
+        MeteredExecutor.RejectionPolicy policy = MeteredExecutor.RejectionPolicy.fromString(
+                getConfig().getString(path + ".rejection-policy", "abort"), MeteredExecutor.RejectionPolicy.ABORT);
+        long blockTimeout = getConfig().getLong(path + ".block-timeout-ms", 100);
+        
+        getLogger().info(name + " executor: " + threads + " threads, queue " + queueSize + ", policy " + policy + ".");
+        return new MeteredExecutor(name, threads, queueSize, policy, blockTimeout);
+    }
+    
     private void initializeConfigurations() {
         try {
             databaseConfig = new DatabaseConfig(getConfig());
@@ -150,8 +296,46 @@ public class SkyWarsPlugin extends JavaPlugin {
     
     private void initializeRepositories() {
         try {
-            userRepository = new MySQLSkyUserRepository(databaseConfig.getDataSource(), executorService);
-            getLogger().info("MySQL repository initialized successfully.");
+            replicaRouter = new ReplicaRouter(databaseConfig.getDataSource(),
+                    databaseConfig.getReplicaDataSource(), databaseConfig.getReplicaMaxLagSeconds());
+            replicaRouter.start(executorService, mysqlExecutor);
+            if (databaseConfig.getReplicaDataSource() != null) {
+                getLogger().info("MySQL read replica enabled with max lag: " + databaseConfig.getReplicaMaxLagSeconds() + " seconds.");
+            }
+            
+            MySQLSkyUserRepository mySQLRepository = new MySQLSkyUserRepository(databaseConfig.getDataSource(), mysqlExecutor, replicaRouter);
+            userRepository = mySQLRepository;
+            
+            // Tables are created and migrated in the background, the plugin disables itself if that fails
+            long migrationRetryDelay = getConfig().getLong("database.migration.retry-delay", 30);
+            databaseReady = mySQLRepository.initialize(executorService, migrationRetryDelay)
+                    .whenComplete((v, throwable) -> {
+                        if (throwable == null) {
+                            getLogger().info("MySQL repository initialized successfully.");
+                        } else {
+                            getLogger().severe("Failed to initialize the MySQL schema, disabling: " + throwable.getMessage());
+                            Bukkit.getScheduler().runTask(this, () -> Bukkit.getPluginManager().disablePlugin(this));
+                        }
+                    });
+            
+            // Correct the maintained user count now and then, and refresh the approximate count more often
+            long reconcileInterval = getConfig().getLong("database.count.reconcile-interval", 3600);
+            long refreshInterval = getConfig().getLong("database.count.refresh-interval", 60);
+            executorService.scheduleAtFixedRate(() -> mySQLRepository.reconcileCount().exceptionally(throwable -> {
+                getLogger().warning("Failed to reconcile user count: " + throwable.getMessage());
+                return null;
+            }), reconcileInterval, reconcileInterval, TimeUnit.SECONDS);
+            executorService.scheduleAtFixedRate(() -> mySQLRepository.count().exceptionally(throwable -> null),
+                    0, refreshInterval, TimeUnit.SECONDS);
+            
+            if (getConfig().getBoolean("database.group-commit.enabled", true)) {
+                long window = getConfig().getLong("database.group-commit.window-ms", 10);
+                int maxBatchSize = getConfig().getInt("database.group-commit.max-batch-size", 500);
+                
+                groupCommitRepository = new GroupCommitSkyUserRepository(userRepository, executorService, window, maxBatchSize);
+                userRepository = groupCommitRepository;
+                getLogger().info("Group commit enabled with a window of " + window + " ms.");
+            }
         } catch (Exception e) {
             getLogger().severe("Failed to initialize MySQL repository: " + e.getMessage());
             e.printStackTrace();
@@ -159,19 +343,224 @@ public class SkyWarsPlugin extends JavaPlugin {
         
         try {
             long cacheTtl = getConfig().getLong("cache.user-cache-ttl", 1800);
-            cacheRepository = new RedisSkyUserCacheRepository(redisConfig.getJedisPool(), executorService, cacheTtl);
-            getLogger().info("Redis cache repository initialized successfully.");
+            RedisSkyUserCacheRepository.StorageFormat storageFormat = RedisSkyUserCacheRepository.StorageFormat.fromString(
+                    getConfig().getString("cache.storage-format", "hash"), RedisSkyUserCacheRepository.StorageFormat.HASH);
+            double ttlJitter = getConfig().getDouble("cache.ttl-jitter", 0.1);
+            double earlyRefreshBeta = getConfig().getDouble("cache.early-refresh-beta", 1.0);
+            boolean breakerEnabled = getConfig().getBoolean("cache.circuit-breaker.enabled", true);
+            
+            // One cache per node, current or previous, each behind its own circuit breaker
+            Map<String, JedisPool> nodePools = new LinkedHashMap<>(redisConfig.getCacheNodePools());
+            redisConfig.getPreviousCacheNodePools().forEach(nodePools::putIfAbsent);
+            Map<String, SkyUserCacheRepository> nodes = new LinkedHashMap<>();
+            for (Map.Entry<String, JedisPool> node : nodePools.entrySet()) {
+                RedisSkyUserCacheRepository redisCacheRepository = new RedisSkyUserCacheRepository(node.getValue(),
+                        redisExecutor, cacheTtl, storageFormat, ttlJitter, earlyRefreshBeta);
+                redisCacheRepositories.add(redisCacheRepository);
+                
+                SkyUserCacheRepository shard = redisCacheRepository;
+                if (breakerEnabled) {
+                    RedisCircuitBreaker breaker = createCircuitBreaker(node.getValue());
+                    if (node.getValue() == redisConfig.getJedisPool()) {
+                        circuitBreaker = breaker;
+                    }
+                    shard = new CircuitBreakerSkyUserCacheRepository(shard, breaker);
+                }
+                nodes.put(node.getKey(), shard);
+            }
+            
+            Map<String, SkyUserCacheRepository> shards = new LinkedHashMap<>(nodes);
+            shards.keySet().retainAll(redisConfig.getCacheNodePools().keySet());
+            Map<String, SkyUserCacheRepository> previousShards = new LinkedHashMap<>(nodes);
+            previousShards.keySet().retainAll(redisConfig.getPreviousCacheNodePools().keySet());
+            boolean moved = !previousShards.isEmpty() && !previousShards.keySet().equals(shards.keySet());
+            
+            if (shards.size() > 1 || moved) {
+                int virtualNodes = getConfig().getInt("redis.virtual-nodes", 160);
+                // Users whose owner changed are still read from their previous node
+                ConsistentHashRing<SkyUserCacheRepository> previousRing = moved
+                        ? new ConsistentHashRing<>(previousShards, virtualNodes)
+                        : null;
+                cacheRepository = new ShardedSkyUserCacheRepository(new ConsistentHashRing<>(shards, virtualNodes), previousRing);
+                getLogger().info("Cached users sharded over " + shards.size() + " Redis nodes " + shards.keySet()
+                        + (moved ? ", moved users also read from " + previousShards.keySet() : "") + ".");
+            } else {
+                cacheRepository = shards.values().iterator().next();
+            }
+            
+            if (breakerEnabled) {
+                // The main node also serves leaderboards, the known users filter and invalidations
+                if (circuitBreaker == null) {
+                    circuitBreaker = createCircuitBreaker(redisConfig.getJedisPool());
+                }
+                getLogger().info("Redis circuit breaker enabled on " + circuitBreakers.size() + " node(s).");
+            }
+            
+            if (getConfig().getBoolean("cache.near-cache.enabled", true)) {
+                int maxEntries = getConfig().getInt("cache.near-cache.max-entries", 2000);
+                long maxBytes = getConfig().getLong("cache.near-cache.max-memory-kb", 4096) * 1024L;
+                long nearTtl = getConfig().getLong("cache.near-cache.ttl", 5);
+                nearCacheRepository = new NearCacheSkyUserRepository(cacheRepository, maxEntries, maxBytes, nearTtl);
+                cacheRepository = nearCacheRepository;
+                getLogger().info("Near cache enabled (" + maxEntries + " users, " + nearTtl + "s TTL).");
+            }
+            getLogger().info("Redis cache repository initialized successfully (" + storageFormat.name().toLowerCase() + " storage).");
+            
+            long statsFlushInterval = getConfig().getLong("cache.stats-flush-interval", 30);
+            long indexPruneInterval = getConfig().getLong("cache.index-prune-interval", 60);
+            for (RedisSkyUserCacheRepository redisCacheRepository : redisCacheRepositories) {
+                // Index users cached before the key index existed, in the background
+                redisCacheRepository.rebuildKeyIndex()
+                        .thenAccept(indexed -> {
+                            if (indexed > 0) {
+                                getLogger().info("Indexed " + indexed + " cached users.");
+                            }
+                        })
+                        .exceptionally(throwable -> {
+                            getLogger().warning("Failed to index cached users: " + throwable.getMessage());
+                            return null;
+                        });
+                
+                // Share this server's cache statistics with the other servers
+                if (statsFlushInterval > 0) {
+                    executorService.scheduleAtFixedRate(() -> redisCacheRepository.flushStats().exceptionally(throwable -> {
+                        getLogger().warning("Failed to flush cache statistics: " + throwable.getMessage());
+                        return null;
+                    }), statsFlushInterval, statsFlushInterval, TimeUnit.SECONDS);
+                }
+                
+                // Drop expired users from the key index a few thousand at a time
+                if (indexPruneInterval > 0) {
+                    executorService.scheduleWithFixedDelay(() -> redisCacheRepository.pruneKeyIndex().exceptionally(throwable -> {
+                        getLogger().warning("Failed to prune cached users index: " + throwable.getMessage());
+                        return null;
+                    }), indexPruneInterval, indexPruneInterval, TimeUnit.SECONDS);
+                }
+            }
         } catch (Exception e) {
             getLogger().severe("Failed to initialize Redis cache repository: " + e.getMessage());
             e.printStackTrace();
         }
+        
+        if (getConfig().getBoolean("leaderboards.redis.enabled", true)) {
+            try {
+                int rebuildBatchSize = getConfig().getInt("leaderboards.redis.rebuild-batch-size", 1000);
+                leaderboardRepository = new RedisLeaderboardRepository(redisConfig.getJedisPool(), redisExecutor,
+                        userRepository, rebuildBatchSize);
+                userRepository = new LeaderboardSkyUserRepository(userRepository, leaderboardRepository);
+                
+                // Build the sorted sets from MySQL when they are missing (first start, Redis flushed)
+                // or outdated, which corrects changes that never reached them
+                long checkInterval = getConfig().getLong("leaderboards.redis.check-interval", 300);
+                long reconcileInterval = getConfig().getLong("leaderboards.redis.reconcile-interval", 86400);
+                executorService.scheduleAtFixedRate(() -> leaderboardRepository.rebuildIfMissing(reconcileInterval).exceptionally(throwable -> {
+                    getLogger().warning("Failed to build leaderboards: " + throwable.getMessage());
+                    return null;
+                }), 0, checkInterval, TimeUnit.SECONDS);
+                getLogger().info("Redis leaderboards enabled.");
+            } catch (Exception e) {
+                getLogger().severe("Failed to initialize Redis leaderboards: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        
+        if (getConfig().getBoolean("cache.known-users.enabled", true)) {
+            try {
+                long expectedUsers = getConfig().getLong("cache.known-users.expected-users", 1000000);
+                double falsePositiveRate = getConfig().getDouble("cache.known-users.false-positive-rate", 0.01);
+                knownUsersFilter = new RedisBloomFilter(redisConfig.getJedisPool(), redisExecutor, userRepository,
+                        expectedUsers, falsePositiveRate, circuitBreaker);
+                userRepository = new KnownUsersSkyUserRepository(userRepository, knownUsersFilter);
+                
+                // Load the filter from MySQL when it is missing (first start, Redis flushed)
+                long checkInterval = getConfig().getLong("cache.known-users.check-interval", 300);
+                executorService.scheduleAtFixedRate(() -> knownUsersFilter.rebuildIfMissing().exceptionally(throwable -> {
+                    getLogger().warning("Failed to build known users filter: " + throwable.getMessage());
+                    return null;
+                }), 0, checkInterval, TimeUnit.SECONDS);
+                getLogger().info("Known users filter enabled for " + expectedUsers + " users.");
+            } catch (Exception e) {
+                getLogger().severe("Failed to initialize known users filter: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        
+        if (getConfig().getBoolean("cache.invalidation.enabled", true)) {
+            try {
+                long publishInterval = getConfig().getLong("cache.invalidation.publish-interval-ms", 50);
+                invalidationBus = new RedisInvalidationBus(redisConfig.getJedisPool(), publishInterval);
+                invalidationBus.start(executorService, redisExecutor);
+                userRepository = new InvalidatingSkyUserRepository(userRepository, invalidationBus);
+                
+                if (nearCacheRepository != null) {
+                    NearCacheSkyUserRepository nearCache = nearCacheRepository;
+                    invalidationBus.addListener(new CacheInvalidationBus.Listener() {
+                        @Override
+                        public void onInvalidate(UUID uuid, long version) {
+                            nearCache.invalidate(uuid);
+                        }
+                        
+                        @Override
+                        public void onInvalidateAll() {
+                            nearCache.invalidateAll();
+                        }
+                    });
+                }
+                getLogger().info("Cross-server cache invalidation enabled.");
+            } catch (Exception e) {
+                getLogger().severe("Failed to initialize cache invalidation: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    private RedisCircuitBreaker createCircuitBreaker(JedisPool pool) {
+        int failureThreshold = getConfig().getInt("cache.circuit-breaker.failure-threshold", 5);
+        long callTimeout = getConfig().getLong("cache.circuit-breaker.call-timeout-ms", 1000);
+        long probeInterval = getConfig().getLong("cache.circuit-breaker.probe-interval-ms", 2000);
+        
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(pool, failureThreshold, callTimeout, probeInterval);
+        breaker.start(executorService, redisExecutor);
+        circuitBreakers.add(breaker);
+        return breaker;
     }
     
     private void initializeUseCases() {
-        getSkyUserUseCase = new GetSkyUserUseCase(userRepository, cacheRepository);
-        saveSkyUserUseCase = new SaveSkyUserUseCase(userRepository, cacheRepository);
-        createSkyUserUseCase = new CreateSkyUserUseCase(userRepository, cacheRepository);
-        updateStatsUseCase = new UpdateStatsUseCase(userRepository, cacheRepository, getSkyUserUseCase, saveSkyUserUseCase);
+        if (getConfig().getBoolean("stats.write-behind.enabled", true)) {
+            long flushInterval = getConfig().getLong("stats.write-behind.flush-interval", 5) * 1000L;
+            int maxPending = getConfig().getInt("stats.write-behind.max-pending", 500);
+            
+            statDeltaBuffer = new StatDeltaBuffer(userRepository, cacheRepository, maxPending);
+            statDeltaBuffer.start(executorService, flushInterval);
+            getLogger().info("Stat write-behind enabled with flush interval: " + (flushInterval / 1000) + " seconds.");
+        }
+        
+        nameIndex = new NameIndex(getConfig().getInt("cache.name-index-size", 10000));
+        missingUsers = new NegativeCache<>(getConfig().getInt("cache.negative.max-entries", 10000),
+                getConfig().getLong("cache.negative.ttl", 30) * 1000L);
+        
+        // Users created on other servers must not stay "missing" here until the TTL runs out
+        if (invalidationBus != null) {
+            invalidationBus.addListener(new CacheInvalidationBus.Listener() {
+                @Override
+                public void onInvalidate(UUID uuid, long version) {
+                    missingUsers.remove(uuid);
+                }
+                
+                @Override
+                public void onInvalidateAll() {
+                    missingUsers.clear();
+                }
+            });
+        }
+        
+        getSkyUserUseCase = new GetSkyUserUseCase(userRepository, cacheRepository, statDeltaBuffer, nameIndex,
+                knownUsersFilter, missingUsers);
+        saveSkyUserUseCase = new SaveSkyUserUseCase(userRepository, cacheRepository, statDeltaBuffer);
+        createSkyUserUseCase = new CreateSkyUserUseCase(userRepository, cacheRepository, nameIndex,
+                knownUsersFilter, missingUsers);
+        updateStatsUseCase = new UpdateStatsUseCase(userRepository, cacheRepository, getSkyUserUseCase, saveSkyUserUseCase, statDeltaBuffer);
+        warmCacheUseCase = new WarmCacheUseCase(userRepository, getSkyUserUseCase);
         
         // Initialize services
         skyUserService = new SkyUserServiceImpl(getSkyUserUseCase, saveSkyUserUseCase, createSkyUserUseCase);
@@ -199,6 +588,11 @@ public class SkyWarsPlugin extends JavaPlugin {
                 winReward
         );
         
+        // Registered after the near cache, so reloads never read its stale copies
+        if (invalidationBus != null) {
+            invalidationBus.addListener(skyUserController);
+        }
+        
         getLogger().info("Controllers initialized successfully.");
     }
     
@@ -208,7 +602,8 @@ public class SkyWarsPlugin extends JavaPlugin {
                 updateStatsUseCase,
                 skyUserController,
                 userRepository,
-                cacheRepository
+                cacheRepository,
+                leaderboardRepository
         );
         
         // Create and register cosmetic command
@@ -221,6 +616,9 @@ public class SkyWarsPlugin extends JavaPlugin {
         getCommand("cosmetic").setExecutor(cosmeticCommand);
         getCommand("cosmetic").setTabCompleter(cosmeticCommand);
         
+        // Drops the /skywars top next position of players who leave
+        Bukkit.getPluginManager().registerEvents(skyWarsCommand, this);
+        
         getLogger().info("Commands registered successfully.");
     }
     
@@ -242,6 +640,36 @@ public class SkyWarsPlugin extends JavaPlugin {
         getLogger().info("Auto-save task started with interval: " + (autoSaveInterval / 20) + " seconds.");
     }
     
+    private void startCacheWarmup() {
+        int recentPlayers = getConfig().getInt("cache.warmup.recent-players", 2000);
+        int leaderboardPlayers = getConfig().getInt("cache.warmup.leaderboard-players", 100);
+        int batchSize = getConfig().getInt("cache.warmup.batch-size", 250);
+        long budgetMillis = getConfig().getLong("cache.warmup.max-seconds", 60) * 1000L;
+        
+        long start = System.currentTimeMillis();
+        warmCacheUseCase.execute(recentPlayers, leaderboardPlayers, batchSize, budgetMillis)
+                .thenAccept(warmed -> getLogger().info("Cache warmup loaded " + warmed + " players in "
+                        + (System.currentTimeMillis() - start) + " ms."))
+                .exceptionally(throwable -> {
+                    getLogger().warning("Cache warmup failed: " + throwable.getMessage());
+                    return null;
+                });
+    }
+    
+    /**
+     * Get queue and thread metrics of the backend executors
+     */
+    public List<ExecutorMetrics> getExecutorMetrics() {
+        List<ExecutorMetrics> metrics = new ArrayList<>();
+        if (mysqlExecutor != null) {
+            metrics.add(mysqlExecutor.getMetrics());
+        }
+        if (redisExecutor != null) {
+            metrics.add(redisExecutor.getMetrics());
+        }
+        return metrics;
+    }
+    
     /**
      * Get the SkyUserController instance
      * This allows other plugins to interact with the SkyWars system
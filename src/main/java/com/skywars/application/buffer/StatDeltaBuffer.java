@@ -0,0 +1,245 @@
+package com.skywars.application.buffer;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.repository.SkyUserCacheRepository;
+import com.skywars.domain.repository.SkyUserRepository;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StatDeltaBuffer - Write-behind buffer for player statistic changes
+ *
+ * Stat changes are merged per player in memory and written to the database
+ * as atomic increments in batches, either periodically or once too many
+ * players have pending changes.
+ * Pending changes are overlaid on reads so callers always see their own writes.
+ * Changes are only ever removed by the flush that persisted them, saving a
+ * player never drops them since saves do not write the counters.
+ *
+ * A flush drops the flushed players from the cache after the database commit
+ * instead of incrementing the cached copies, which a reload in between would
+ * already contain. A read that overlapped a flush of its player may or may
+ * not contain the flushed changes, {@link #flushedSince(UUID, long)} tells
+ * readers to read again once the flush settled.
+ */
+public class StatDeltaBuffer {
+
+    private final SkyUserRepository userRepository;
+    private final SkyUserCacheRepository cacheRepository;
+    private final int maxPending;
+
+    // Changes waiting for the next flush
+    private final ConcurrentMap<UUID, StatDelta> pending = new ConcurrentHashMap<>();
+
+    // Changes taken by the running flush but not yet persisted
+    private final ConcurrentMap<UUID, StatDelta> inFlight = new ConcurrentHashMap<>();
+
+    // Flushes that started taking changes, and flushes whose changes settled
+    // (persisted and dropped from the cache, or put back after a failure)
+    private final AtomicLong flushesStarted = new AtomicLong();
+    private final AtomicLong flushesSettled = new AtomicLong();
+
+    // Players of the most recent flushes by flush number
+    private final ConcurrentNavigableMap<Long, Set<UUID>> recentFlushes = new ConcurrentSkipListMap<>();
+    private static final int RECENT_FLUSHES = 16;
+
+    private final AtomicBoolean thresholdFlushQueued = new AtomicBoolean(false);
+    private CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+    private ScheduledFuture<?> flushTask;
+
+    public StatDeltaBuffer(SkyUserRepository userRepository,
+                           SkyUserCacheRepository cacheRepository,
+                           int maxPending) {
+        this.userRepository = userRepository;
+        this.cacheRepository = cacheRepository;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Start the periodic flush task
+     */
+    public synchronized void start(ScheduledExecutorService scheduler, long flushIntervalMillis) {
+        if (flushTask != null) {
+            return;
+        }
+
+        flushTask = scheduler.scheduleAtFixedRate(this::flush,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record a stat change for a player
+     */
+    public void record(UUID uuid, StatDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+
+        pending.merge(uuid, delta, StatDelta::plus);
+
+        // Flush early when the buffer grows too large
+        if (pending.size() >= maxPending && thresholdFlushQueued.compareAndSet(false, true)) {
+            flush().whenComplete((v, throwable) -> thresholdFlushQueued.set(false));
+        }
+    }
+
+    /**
+     * Check if a player has changes that are not persisted yet, waiting or being flushed
+     */
+    public boolean hasUnpersisted(UUID uuid) {
+        return pending.containsKey(uuid) || inFlight.containsKey(uuid);
+    }
+
+    /**
+     * Get the merged change not yet persisted for a player
+     */
+    public StatDelta getPendingDelta(UUID uuid) {
+        StatDelta delta = StatDelta.empty();
+
+        StatDelta flushing = inFlight.get(uuid);
+        if (flushing != null) {
+            delta = delta.plus(flushing);
+        }
+
+        StatDelta waiting = pending.get(uuid);
+        if (waiting != null) {
+            delta = delta.plus(waiting);
+        }
+
+        return delta;
+    }
+
+    /**
+     * Apply unpersisted changes to a loaded user (read-your-writes)
+     */
+    public Optional<SkyUser> overlay(Optional<SkyUser> user) {
+        user.ifPresent(skyUser -> {
+            StatDelta delta = getPendingDelta(skyUser.getUuid());
+            if (!delta.isEmpty()) {
+                delta.applyTo(skyUser);
+            }
+        });
+        return user;
+    }
+
+    /**
+     * Take a token before reading a player, see {@link #flushedSince(UUID, long)}
+     */
+    public long readToken() {
+        return flushesSettled.get();
+    }
+
+    /**
+     * Check if a flush of the player overlapped a read started at the token.
+     * Such a read may or may not contain the flushed changes, so overlaying
+     * them could count them twice or not at all.
+     */
+    public boolean flushedSince(UUID uuid, long token) {
+        long started = flushesStarted.get();
+        if (started <= token) {
+            return false;
+        }
+
+        for (long flush = token + 1; flush <= started; flush++) {
+            Set<UUID> players = recentFlushes.get(flush);
+            // Still taking its changes, or too old to tell
+            if (players == null || players.contains(uuid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a future that completes once the flush in progress, if any, settled
+     */
+    public synchronized CompletableFuture<Void> awaitFlush() {
+        return lastFlush.handle((v, throwable) -> null);
+    }
+
+    /**
+     * Flush all pending changes, runs after any flush already in progress
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        lastFlush = lastFlush
+                .handle((v, throwable) -> null)
+                .thenCompose(v -> flushPending());
+        return lastFlush;
+    }
+
+    private CompletableFuture<Void> flushPending() {
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Reads from here on may overlap this flush
+        long flush = flushesStarted.incrementAndGet();
+
+        // Move pending changes to the in-flight map
+        for (UUID uuid : pending.keySet()) {
+            pending.computeIfPresent(uuid, (key, delta) -> {
+                inFlight.merge(key, delta, StatDelta::plus);
+                return null;
+            });
+        }
+
+        Map<UUID, StatDelta> batch = new HashMap<>(inFlight);
+        recentFlushes.put(flush, new HashSet<>(batch.keySet()));
+        recentFlushes.headMap(flush - RECENT_FLUSHES, true).clear();
+
+        return userRepository.applyDeltas(batch)
+                .thenCompose(v -> dropFromCache(batch.keySet()))
+                .whenComplete((v, throwable) -> {
+                    if (throwable != null) {
+                        // Keep the changes for the next flush
+                        batch.forEach((uuid, delta) -> pending.merge(uuid, delta, StatDelta::plus));
+                        System.err.println("Error flushing stat changes for " + batch.size() + " players: " + throwable.getMessage());
+                    }
+                    batch.keySet().forEach(inFlight::remove);
+                    flushesSettled.set(flush);
+                });
+    }
+
+    /**
+     * Drop persisted players from the cache. A copy cached before the commit lacks the
+     * changes and one cached after it has them, so neither is incremented. Never fails,
+     * the changes are persisted.
+     */
+    private CompletableFuture<Void> dropFromCache(Set<UUID> uuids) {
+        CompletableFuture<Void> removal;
+        try {
+            removal = cacheRepository.removeAll(uuids);
+        } catch (RuntimeException e) {
+            removal = CompletableFuture.failedFuture(e);
+        }
+        return removal.exceptionally(throwable -> {
+            System.err.println("Error dropping " + uuids.size() + " flushed players from cache: " + throwable.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Stop the periodic flush task and persist everything still buffered
+     */
+    public CompletableFuture<Void> shutdown() {
+        synchronized (this) {
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+        }
+
+        return flush();
+    }
+
+    /**
+     * Get the number of players with unpersisted changes
+     */
+    public int getPendingCount() {
+        return pending.size() + inFlight.size();
+    }
+}
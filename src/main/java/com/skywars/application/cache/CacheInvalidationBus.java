@@ -0,0 +1,43 @@
+package com.skywars.application.cache;
+
+import java.util.UUID;
+
+/**
+ * CacheInvalidationBus - Tells other servers which users changed
+ *
+ * Servers keep users in memory (near cache, online players). When one server
+ * persists a change, it publishes the user's UUID so the others drop or
+ * reload their copies instead of serving or saving stale data.
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * Announce that a user was changed by this server
+     * @param uuid Player's UUID
+     */
+    void publish(UUID uuid);
+
+    /**
+     * Register a listener for changes made by other servers
+     * @param listener The listener, called on the bus thread
+     */
+    void addListener(Listener listener);
+
+    /**
+     * Receiver of invalidations
+     */
+    interface Listener {
+
+        /**
+         * A user was changed by another server
+         * @param uuid Player's UUID
+         * @param version Time of the change in epoch milliseconds
+         */
+        void onInvalidate(UUID uuid, long version);
+
+        /**
+         * Invalidations may have been missed (e.g. after a reconnect), every copy may be stale
+         */
+        void onInvalidateAll();
+    }
+}
@@ -0,0 +1,37 @@
+package com.skywars.application.cache;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * KnownUserFilter - Approximate set of the UUIDs and names of all stored users
+ *
+ * A negative answer is definite: the user or name was never stored, so the
+ * database does not need to be asked. A positive answer may be wrong and must
+ * be confirmed by the database. Implementations answer positively as long as
+ * they are not fully loaded.
+ */
+public interface KnownUserFilter {
+
+    /**
+     * Check whether a user with this UUID may exist
+     * @param uuid Player's UUID
+     * @return CompletableFuture containing false only if the user certainly does not exist
+     */
+    CompletableFuture<Boolean> mightContainUuid(UUID uuid);
+
+    /**
+     * Check whether a user with this name (case-insensitive) may exist
+     * @param name Player's name
+     * @return CompletableFuture containing false only if no user certainly has this name
+     */
+    CompletableFuture<Boolean> mightContainName(String name);
+
+    /**
+     * Record a user, must complete before the user is stored
+     * @param uuid Player's UUID
+     * @param name Player's name
+     * @return CompletableFuture that completes when the user is recorded
+     */
+    CompletableFuture<Void> add(UUID uuid, String name);
+}
@@ -0,0 +1,94 @@
+package com.skywars.application.cache;
+
+import java.util.*;
+
+/**
+ * NameIndex - In-process lookup table from lowercase player names to UUIDs
+ *
+ * The index is filled whenever a user is loaded or created and lets
+ * name-based lookups resolve a UUID without querying the database.
+ * The least recently used names are evicted once the index is full.
+ */
+public class NameIndex {
+
+    private final int maxEntries;
+
+    // Lowercase name -> UUID, in access order for LRU eviction
+    private final LinkedHashMap<String, UUID> uuidsByName;
+
+    // UUID -> lowercase name, used to drop stale names after a rename
+    private final Map<UUID, String> namesByUuid = new HashMap<>();
+
+    public NameIndex(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.uuidsByName = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Record the current name of a player
+     */
+    public synchronized void put(UUID uuid, String name) {
+        if (uuid == null || name == null) {
+            return;
+        }
+
+        String key = normalize(name);
+        String previous = namesByUuid.put(uuid, key);
+        if (previous != null && !previous.equals(key)) {
+            uuidsByName.remove(previous);
+        }
+
+        UUID previousOwner = uuidsByName.put(key, uuid);
+        if (previousOwner != null && !previousOwner.equals(uuid)) {
+            // Name was taken over by another player
+            namesByUuid.remove(previousOwner);
+        }
+
+        evictIfNeeded();
+    }
+
+    /**
+     * Resolve a player name (case-insensitive) to a UUID
+     */
+    public synchronized Optional<UUID> lookup(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(uuidsByName.get(normalize(name)));
+    }
+
+    /**
+     * Forget a player
+     */
+    public synchronized void remove(UUID uuid) {
+        String key = namesByUuid.remove(uuid);
+        if (key != null) {
+            uuidsByName.remove(key);
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public synchronized void clear() {
+        uuidsByName.clear();
+        namesByUuid.clear();
+    }
+
+    public synchronized int size() {
+        return uuidsByName.size();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, UUID>> iterator = uuidsByName.entrySet().iterator();
+        while (uuidsByName.size() > maxEntries && iterator.hasNext()) {
+            Map.Entry<String, UUID> eldest = iterator.next();
+            iterator.remove();
+            namesByUuid.remove(eldest.getValue());
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,71 @@
+package com.skywars.application.cache;
+
+import java.util.LinkedHashMap;
+
+/**
+ * NegativeCache - In-process record of lookups that found nothing
+ *
+ * Keys (UUIDs or lowercase names) are remembered as missing for a short time,
+ * so repeated lookups of unknown players do not query the database again.
+ * Entries are dropped when a matching user is created, and after the TTL so
+ * users created by other servers become visible. The least recently used
+ * entries are evicted once the cache is full.
+ */
+public class NegativeCache<K> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Key -> expiry time (System.currentTimeMillis), in access order for LRU eviction
+    private final LinkedHashMap<K, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public NegativeCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Remember that a lookup found nothing
+     */
+    public synchronized void add(K key) {
+        if (key == null || ttlMillis <= 0 || maxEntries <= 0) {
+            return;
+        }
+
+        entries.put(key, System.currentTimeMillis() + ttlMillis);
+        while (entries.size() > maxEntries) {
+            K eldest = entries.keySet().iterator().next();
+            entries.remove(eldest);
+        }
+    }
+
+    /**
+     * Check whether a key is known to be missing
+     */
+    public synchronized boolean contains(K key) {
+        Long expiresAt = entries.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() >= expiresAt) {
+            entries.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forget a key, e.g. because a matching user was created
+     */
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
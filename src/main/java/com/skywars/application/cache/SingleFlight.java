@@ -0,0 +1,75 @@
+package com.skywars.application.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight - Deduplicates concurrent loads of the same key
+ *
+ * While a load for a key is in flight, further requests for that key get the
+ * same future instead of starting their own load. The key is released as soon
+ * as the load completes, so later requests load again. Callers share the
+ * loaded value and must not modify it unless they copy it first.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Get the in-flight load of a key, or start one
+     * @param key Key to load
+     * @param loader Starts the load, only called if none is in flight
+     * @return CompletableFuture shared by all requests while the load runs
+     */
+    public CompletableFuture<V> load(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        loads.increment();
+        try {
+            loader.get().whenComplete((value, throwable) -> {
+                inFlight.remove(key, promise);
+                if (throwable != null) {
+                    promise.completeExceptionally(throwable);
+                } else {
+                    promise.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Get the number of loads started
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * Get the number of requests that joined a load already in flight
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Get the number of loads currently in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
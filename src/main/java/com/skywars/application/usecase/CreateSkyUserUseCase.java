@@ -1,9 +1,13 @@
 package com.skywars.application.usecase;
 
+import com.skywars.application.cache.KnownUserFilter;
+import com.skywars.application.cache.NameIndex;
+import com.skywars.application.cache.NegativeCache;
 import com.skywars.domain.entity.SkyUser;
 import com.skywars.domain.repository.SkyUserCacheRepository;
 import com.skywars.domain.repository.SkyUserRepository;
 
+import java.util.Locale;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -12,47 +16,63 @@ import java.util.concurrent.CompletableFuture;
  * 
  * This use case handles the creation of new SkyWars players
  * with proper validation and initialization.
+ * 
+ * When the known users filter rules a UUID out, the existence checks are
+ * skipped and the user is inserted right away. The insert never overwrites
+ * an existing row, so an out-of-date filter only costs an extra load.
  */
 public class CreateSkyUserUseCase {
     
     private final SkyUserRepository userRepository;
     private final SkyUserCacheRepository cacheRepository;
+    private final NameIndex nameIndex;
+    private final KnownUserFilter knownUsers;
+    private final NegativeCache<Object> missingUsers;
     
     public CreateSkyUserUseCase(SkyUserRepository userRepository, SkyUserCacheRepository cacheRepository) {
+        this(userRepository, cacheRepository, null);
+    }
+    
+    public CreateSkyUserUseCase(SkyUserRepository userRepository, SkyUserCacheRepository cacheRepository,
+                                NameIndex nameIndex) {
+        this(userRepository, cacheRepository, nameIndex, null, null);
+    }
+    
+    public CreateSkyUserUseCase(SkyUserRepository userRepository, SkyUserCacheRepository cacheRepository,
+                                NameIndex nameIndex, KnownUserFilter knownUsers,
+                                NegativeCache<Object> missingUsers) {
         this.userRepository = userRepository;
         this.cacheRepository = cacheRepository;
+        this.nameIndex = nameIndex;
+        this.knownUsers = knownUsers;
+        this.missingUsers = missingUsers;
     }
     
     /**
      * Create a new user if they don't exist
      */
     public CompletableFuture<SkyUser> execute(UUID uuid, String name) {
-        return userRepository.existsByUuid(uuid)
+        indexName(uuid, name);
+        forgetMissing(uuid, name);
+        
+        CompletableFuture<Boolean> mightExist = knownUsers != null
+                ? knownUsers.mightContainUuid(uuid).exceptionally(throwable -> true)
+                : CompletableFuture.completedFuture(true);
+        
+        return mightExist
+                .thenCompose(maybe -> maybe ? userRepository.existsByUuid(uuid) : CompletableFuture.completedFuture(false))
                 .thenCompose(exists -> {
                     if (exists) {
                         // User already exists, get existing user
-                        return userRepository.findByUuid(uuid)
-                                .thenApply(optionalUser -> {
-                                    if (optionalUser.isPresent()) {
-                                        SkyUser existingUser = optionalUser.get();
-                                        // Update name in case it changed
-                                        existingUser.updateName(name);
-                                        // Save the updated user
-                                        userRepository.save(existingUser);
-                                        cacheRepository.put(existingUser);
-                                        return existingUser;
-                                    } else {
-                                        // This shouldn't happen, but handle it gracefully
-                                        return createNewUser(uuid, name);
-                                    }
-                                });
-                    } else {
-                        // Create new user
-                        SkyUser newUser = createNewUser(uuid, name);
-                        return userRepository.save(newUser)
-                                .thenCompose(v -> cacheRepository.put(newUser))
-                                .thenApply(v -> newUser);
+                        return loadExistingUser(uuid, name);
                     }
+                    
+                    // Create new user, unless it was created meanwhile
+                    SkyUser newUser = createNewUser(uuid, name);
+                    return userRepository.insertIfAbsent(newUser)
+                            .thenCompose(inserted -> inserted
+                                    ? cacheRepository.put(newUser).thenApply(v -> newUser)
+                                    : loadExistingUser(uuid, name));
                 })
                 .exceptionally(throwable -> {
                     System.err.println("Error in CreateSkyUserUseCase: " + throwable.getMessage());
@@ -61,10 +81,30 @@ public class CreateSkyUserUseCase {
                 });
     }
     
+    private CompletableFuture<SkyUser> loadExistingUser(UUID uuid, String name) {
+        return userRepository.findByUuid(uuid)
+                .thenApply(optionalUser -> {
+                    if (optionalUser.isPresent()) {
+                        SkyUser existingUser = optionalUser.get();
+                        // Update name in case it changed
+                        existingUser.updateName(name);
+                        // Save the updated user
+                        userRepository.save(existingUser);
+                        cacheRepository.put(existingUser);
+                        return existingUser;
+                    } else {
+                        // This shouldn't happen, but handle it gracefully
+                        return createNewUser(uuid, name);
+                    }
+                });
+    }
+    
     /**
      * Force create a new user (overwrites existing)
      */
     public CompletableFuture<SkyUser> executeForceCreate(UUID uuid, String name) {
+        indexName(uuid, name);
+        forgetMissing(uuid, name);
         SkyUser newUser = createNewUser(uuid, name);
         
         return userRepository.save(newUser)
@@ -91,6 +131,8 @@ public class CreateSkyUserUseCase {
                     
                     SkyUser newUser = SkyUser.create(uuid, name, kills, deaths, wins, losses, 
                             coins, java.time.LocalDateTime.now(), java.time.LocalDateTime.now());
+                    indexName(uuid, name);
+                    forgetMissing(uuid, name);
                     
                     return userRepository.save(newUser)
                             .thenCompose(v -> cacheRepository.put(newUser))
@@ -105,4 +147,19 @@ public class CreateSkyUserUseCase {
     private SkyUser createNewUser(UUID uuid, String name) {
         return SkyUser.createNew(uuid, name);
     }
+    
+    private void indexName(UUID uuid, String name) {
+        if (nameIndex != null) {
+            nameIndex.put(uuid, name);
+        }
+    }
+    
+    private void forgetMissing(UUID uuid, String name) {
+        if (missingUsers != null) {
+            missingUsers.remove(uuid);
+            if (name != null) {
+                missingUsers.remove(name.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
 }
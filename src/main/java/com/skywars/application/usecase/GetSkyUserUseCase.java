@@ -1,12 +1,28 @@
 package com.skywars.application.usecase;
 
+import com.skywars.application.buffer.StatDeltaBuffer;
+import com.skywars.application.cache.KnownUserFilter;
+import com.skywars.application.cache.NameIndex;
+import com.skywars.application.cache.NegativeCache;
+import com.skywars.application.cache.SingleFlight;
 import com.skywars.domain.entity.SkyUser;
 import com.skywars.domain.repository.SkyUserCacheRepository;
 import com.skywars.domain.repository.SkyUserRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * GetSkyUserUseCase - Business logic for retrieving user data
@@ -15,52 +31,355 @@ import java.util.concurrent.CompletableFuture;
  * 1. Try to get from cache (Redis) first
  * 2. If not found, get from database (MySQL)
  * 3. Store in cache for future requests
+ * 4. Overlay stat changes still buffered for write-behind
+ * 
+ * Name lookups go through an in-process name index first so known
+ * players never hit the database by name.
+ * 
+ * Concurrent cache misses for the same UUID share a single database load
+ * (and cache fill), each caller gets its own copy of the loaded user.
+ * 
+ * Unknown UUIDs and names are answered without the database when the known
+ * users filter rules them out, or when a recent lookup found nothing.
+ * 
+ * When the cache flags a hit as due for early refresh, the cached user is
+ * returned right away and reloaded from the database in the background
+ * (sharing the load with concurrent misses), so hot users do not expire.
+ * 
+ * A read that overlapped a flush of the player's buffered stat changes may
+ * or may not contain them. It is read again once the flush settled instead
+ * of being overlaid, and a copy it put into the cache is dropped again.
  */
 public class GetSkyUserUseCase {
     
     private final SkyUserRepository userRepository;
     private final SkyUserCacheRepository cacheRepository;
+    private final StatDeltaBuffer statDeltaBuffer;
+    private final NameIndex nameIndex;
+    private final KnownUserFilter knownUsers;
+    
+    // UUIDs and lowercase names recently not found in the database
+    private final NegativeCache<Object> missingUsers;
+    
+    // Database loads in flight after a cache miss, by UUID
+    private final SingleFlight<UUID, Optional<SkyUser>> databaseLoads = new SingleFlight<>();
+    
+    // Moving average of database load times, tells the cache how early to refresh
+    private final AtomicLong averageLoadNanos = new AtomicLong();
+    private final AtomicLong earlyRefreshes = new AtomicLong();
+    
+    // Reads of a player overlapping flushes of its stat changes before the last one is used anyway
+    private static final int MAX_READ_ATTEMPTS = 3;
     
     public GetSkyUserUseCase(SkyUserRepository userRepository, SkyUserCacheRepository cacheRepository) {
+        this(userRepository, cacheRepository, null, null);
+    }
+    
+    public GetSkyUserUseCase(SkyUserRepository userRepository, SkyUserCacheRepository cacheRepository,
+                             StatDeltaBuffer statDeltaBuffer, NameIndex nameIndex) {
+        this(userRepository, cacheRepository, statDeltaBuffer, nameIndex, null, null);
+    }
+    
+    public GetSkyUserUseCase(SkyUserRepository userRepository, SkyUserCacheRepository cacheRepository,
+                             StatDeltaBuffer statDeltaBuffer, NameIndex nameIndex,
+                             KnownUserFilter knownUsers, NegativeCache<Object> missingUsers) {
         this.userRepository = userRepository;
         this.cacheRepository = cacheRepository;
+        this.statDeltaBuffer = statDeltaBuffer;
+        this.nameIndex = nameIndex;
+        this.knownUsers = knownUsers;
+        this.missingUsers = missingUsers;
     }
     
     /**
      * Get user by UUID with cache-aside pattern
      */
     public CompletableFuture<Optional<SkyUser>> execute(UUID uuid) {
-        return cacheRepository.get(uuid)
-                .thenCompose(cachedUser -> {
+        return execute(uuid, MAX_READ_ATTEMPTS);
+    }
+    
+    private CompletableFuture<Optional<SkyUser>> execute(UUID uuid, int attempts) {
+        long token = readToken();
+        return cacheRepository.getEntry(uuid, getAverageLoadMillis())
+                .thenCompose(entry -> {
+                    Optional<SkyUser> cachedUser = entry.getUser();
                     if (cachedUser.isPresent()) {
-                        // Cache hit - return cached data
+                        // Cache hit - return cached data, reloading it in the background if it expires soon
+                        if (entry.isRefreshDue()) {
+                            refreshInBackground(uuid);
+                        }
                         return CompletableFuture.completedFuture(cachedUser);
                     } else {
-                        // Cache miss - get from database and cache it
-                        return userRepository.findByUuid(uuid)
-                                .thenCompose(dbUser -> {
-                                    if (dbUser.isPresent()) {
-                                        // Store in cache for future requests
-                                        return cacheRepository.put(dbUser.get())
-                                                .thenApply(v -> dbUser);
-                                    } else {
-                                        return CompletableFuture.completedFuture(dbUser);
-                                    }
-                                });
+                        // Cache miss - get from database and cache it, once for all concurrent callers
+                        return databaseLoads.load(uuid, () -> loadIntoCache(uuid))
+                                .thenApply(dbUser -> dbUser.map(SkyUser::copy));
                     }
                 })
-                .exceptionally(throwable -> {
-                    // Log error and fallback to database only
+                .exceptionallyCompose(throwable -> {
+                    // Log error and fallback to database only, without blocking the thread that failed
+                    // the cache read (e.g. the JDK's single timeout thread after a cache call timed out)
                     System.err.println("Error in GetSkyUserUseCase: " + throwable.getMessage());
-                    return userRepository.findByUuid(uuid).join();
+                    return userRepository.findByUuid(uuid);
+                })
+                .thenCompose(user -> settle(token, attempts, user, () -> execute(uuid, attempts - 1)));
+    }
+    
+    /**
+     * Get the number of database loads started after a cache miss
+     */
+    public long getDatabaseLoadCount() {
+        return databaseLoads.getLoadCount();
+    }
+    
+    /**
+     * Get the number of cache misses that joined a database load already in flight
+     */
+    public long getCoalescedLoadCount() {
+        return databaseLoads.getCoalescedCount();
+    }
+    
+    /**
+     * Get the number of cache hits reloaded in the background before they expired
+     */
+    public long getEarlyRefreshCount() {
+        return earlyRefreshes.get();
+    }
+    
+    /**
+     * Get the average time a database load took, 0 before the first one
+     */
+    public long getAverageLoadMillis() {
+        long nanos = averageLoadNanos.get();
+        return nanos == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+    
+    /**
+     * Reload a cached user without making anyone wait for it
+     */
+    private void refreshInBackground(UUID uuid) {
+        earlyRefreshes.incrementAndGet();
+        databaseLoads.load(uuid, () -> loadIntoCache(uuid))
+                .thenCompose(dbUser -> dbUser.isPresent()
+                        ? CompletableFuture.completedFuture((Void) null)
+                        // Deleted from the database, drop the stale copy
+                        : cacheRepository.remove(uuid))
+                .exceptionally(throwable -> {
+                    System.err.println("Error refreshing cached user " + uuid + ": " + throwable.getMessage());
+                    return null;
                 });
     }
     
+    private void recordLoadTime(long startNanos) {
+        long sample = System.nanoTime() - startNanos;
+        averageLoadNanos.updateAndGet(average -> average == 0 ? sample : average + (sample - average) / 8);
+    }
+    
     /**
-     * Get user by name with cache lookup by UUID if found
+     * Load a user from the database and store it in cache for future requests
+     */
+    private CompletableFuture<Optional<SkyUser>> loadIntoCache(UUID uuid) {
+        if (isKnownMissing(uuid)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        
+        return mightExist(knownUsers != null ? knownUsers.mightContainUuid(uuid) : null)
+                .thenCompose(mightExist -> {
+                    if (!mightExist) {
+                        rememberMissing(uuid);
+                        return CompletableFuture.completedFuture(Optional.<SkyUser>empty());
+                    }
+                    
+                    long start = System.nanoTime();
+                    long token = readToken();
+                    return userRepository.findByUuid(uuid)
+                            .thenCompose(dbUser -> {
+                                recordLoadTime(start);
+                                if (dbUser.isPresent()) {
+                                    return cacheRepository.put(dbUser.get())
+                                            .thenCompose(v -> dropIfFlushed(Collections.singleton(uuid), token))
+                                            .thenApply(v -> dbUser);
+                                } else {
+                                    rememberMissing(uuid);
+                                    return CompletableFuture.completedFuture(dbUser);
+                                }
+                            });
+                });
+    }
+    
+    private boolean isKnownMissing(Object key) {
+        return missingUsers != null && missingUsers.contains(key);
+    }
+    
+    private void rememberMissing(Object key) {
+        if (missingUsers != null) {
+            missingUsers.add(key);
+        }
+    }
+    
+    /**
+     * A failed or missing filter check means the user may exist
+     */
+    private static CompletableFuture<Boolean> mightExist(CompletableFuture<Boolean> filterCheck) {
+        if (filterCheck == null) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return filterCheck.exceptionally(throwable -> true);
+    }
+    
+    /**
+     * Get many users by UUID with cache-aside pattern, using one bulk cache
+     * read and one bulk database read for the cache misses
+     * 
+     * @return CompletableFuture containing the found users by UUID (unknown users are left out)
+     */
+    public CompletableFuture<Map<UUID, SkyUser>> executeAll(Collection<UUID> uuids) {
+        long token = readToken();
+        return cacheRepository.getAll(uuids)
+                .exceptionally(throwable -> {
+                    System.err.println("Error in GetSkyUserUseCase (bulk cache): " + throwable.getMessage());
+                    return new HashMap<>();
+                })
+                .thenCompose(cachedUsers -> {
+                    List<UUID> missing = uuids.stream()
+                            .filter(uuid -> !cachedUsers.containsKey(uuid))
+                            .distinct()
+                            .collect(Collectors.toList());
+                    
+                    if (missing.isEmpty()) {
+                        return CompletableFuture.completedFuture(cachedUsers);
+                    }
+                    
+                    return userRepository.findAllByUuids(missing)
+                            .thenCompose(dbUsers -> cacheRepository.putAll(dbUsers.values())
+                                    .thenCompose(v -> dropIfFlushed(dbUsers.keySet(), token))
+                                    .exceptionally(throwable -> {
+                                        System.err.println("Error caching users in GetSkyUserUseCase: " + throwable.getMessage());
+                                        return null;
+                                    })
+                                    .thenApply(v -> {
+                                        Map<UUID, SkyUser> users = new HashMap<>(cachedUsers);
+                                        users.putAll(dbUsers);
+                                        return users;
+                                    }));
+                })
+                .thenCompose(users -> {
+                    List<UUID> flushed = new ArrayList<>();
+                    for (SkyUser user : users.values()) {
+                        if (flushedSince(user.getUuid(), token)) {
+                            flushed.add(user.getUuid());
+                        } else {
+                            afterLoad(Optional.of(user));
+                        }
+                    }
+                    if (flushed.isEmpty()) {
+                        return CompletableFuture.completedFuture(users);
+                    }
+                    
+                    // Read the players whose changes were flushed meanwhile again, one by one
+                    List<CompletableFuture<Optional<SkyUser>>> rereads = new ArrayList<>(flushed.size());
+                    flushed.forEach(uuid -> rereads.add(statDeltaBuffer.awaitFlush()
+                            .thenCompose(v -> execute(uuid, MAX_READ_ATTEMPTS - 1))));
+                    return CompletableFuture.allOf(rereads.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(v -> {
+                                for (int i = 0; i < flushed.size(); i++) {
+                                    Optional<SkyUser> user = rereads.get(i).join();
+                                    if (user.isPresent()) {
+                                        users.put(flushed.get(i), user.get());
+                                    } else {
+                                        users.remove(flushed.get(i));
+                                    }
+                                }
+                                return users;
+                            });
+                });
+    }
+    
+    /**
+     * Get user by name, resolving the UUID through the name index when possible
      */
     public CompletableFuture<Optional<SkyUser>> executeByName(String name) {
-        return userRepository.findByName(name)
+        Optional<UUID> indexedUuid = nameIndex != null ? nameIndex.lookup(name) : Optional.empty();
+        if (indexedUuid.isEmpty()) {
+            return executeByNameFromDatabase(name);
+        }
+        
+        return execute(indexedUuid.get())
+                .thenCompose(user -> {
+                    if (user.isPresent() && name.equalsIgnoreCase(user.get().getName())) {
+                        return CompletableFuture.completedFuture(user);
+                    }
+                    
+                    // Stale index entry (player renamed or deleted)
+                    nameIndex.remove(indexedUuid.get());
+                    return executeByNameFromDatabase(name);
+                });
+    }
+    
+    /**
+     * Resolve a player name to a UUID without loading the user when it is indexed
+     */
+    public CompletableFuture<Optional<UUID>> resolveUuid(String name) {
+        Optional<UUID> indexedUuid = nameIndex != null ? nameIndex.lookup(name) : Optional.empty();
+        if (indexedUuid.isPresent()) {
+            return CompletableFuture.completedFuture(indexedUuid);
+        }
+        
+        return executeByNameFromDatabase(name)
+                .thenApply(user -> user.map(SkyUser::getUuid));
+    }
+    
+    /**
+     * Get a user's statistics for display, reading only the stat fields from
+     * cache when possible. The returned user may not have its cosmetics loaded
+     * and must not be cached or used for cosmetic changes.
+     */
+    public CompletableFuture<Optional<SkyUser>> executeStats(UUID uuid) {
+        long token = readToken();
+        return cacheRepository.getStats(uuid)
+                .exceptionally(throwable -> {
+                    System.err.println("Error in GetSkyUserUseCase (stats): " + throwable.getMessage());
+                    return Optional.empty();
+                })
+                .thenCompose(cachedUser -> cachedUser.isPresent()
+                        ? settle(token, MAX_READ_ATTEMPTS, cachedUser, () -> execute(uuid, MAX_READ_ATTEMPTS - 1))
+                        : execute(uuid));
+    }
+    
+    /**
+     * Get a user's statistics for display by name, see {@link #executeStats(UUID)}
+     */
+    public CompletableFuture<Optional<SkyUser>> executeStatsByName(String name) {
+        Optional<UUID> indexedUuid = nameIndex != null ? nameIndex.lookup(name) : Optional.empty();
+        if (indexedUuid.isEmpty()) {
+            return executeByNameFromDatabase(name);
+        }
+        
+        return executeStats(indexedUuid.get())
+                .thenCompose(user -> {
+                    if (user.isPresent() && name.equalsIgnoreCase(user.get().getName())) {
+                        return CompletableFuture.completedFuture(user);
+                    }
+                    
+                    // Stale index entry (player renamed or deleted)
+                    nameIndex.remove(indexedUuid.get());
+                    return executeByNameFromDatabase(name);
+                });
+    }
+    
+    /**
+     * Get user by name from the database with cache lookup by UUID if found
+     */
+    private CompletableFuture<Optional<SkyUser>> executeByNameFromDatabase(String name) {
+        String missingKey = name.toLowerCase(Locale.ROOT);
+        if (isKnownMissing(missingKey)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        
+        long token = readToken();
+        return mightExist(knownUsers != null ? knownUsers.mightContainName(name) : null)
+                .thenCompose(mightExist -> mightExist
+                        ? userRepository.findByName(name)
+                        : CompletableFuture.completedFuture(Optional.<SkyUser>empty()))
                 .thenCompose(dbUser -> {
                     if (dbUser.isPresent()) {
                         // Check if this user is also in cache and update if needed
@@ -69,6 +388,8 @@ public class GetSkyUserUseCase {
                                     if (cachedUser.isEmpty()) {
                                         // Not in cache, add it
                                         return cacheRepository.put(dbUser.get())
+                                                .thenCompose(v -> dropIfFlushed(
+                                                        Collections.singleton(dbUser.get().getUuid()), token))
                                                 .thenApply(v -> dbUser);
                                     } else {
                                         // Already in cache, return database version (more up-to-date)
@@ -76,12 +397,42 @@ public class GetSkyUserUseCase {
                                     }
                                 });
                     } else {
+                        rememberMissing(missingKey);
                         return CompletableFuture.completedFuture(dbUser);
                     }
                 })
                 .exceptionally(throwable -> {
                     System.err.println("Error in GetSkyUserUseCase (by name): " + throwable.getMessage());
                     return Optional.empty();
+                })
+                .thenCompose(user -> settle(token, MAX_READ_ATTEMPTS, user,
+                        () -> execute(user.get().getUuid(), MAX_READ_ATTEMPTS - 1)));
+    }
+    
+    /**
+     * Check if a user exists, answered by the cache or the known users filter when they can
+     */
+    public CompletableFuture<Boolean> exists(UUID uuid) {
+        if (isKnownMissing(uuid)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        return cacheRepository.exists(uuid)
+                .exceptionally(throwable -> false)
+                .thenCompose(cached -> {
+                    if (cached) {
+                        return CompletableFuture.completedFuture(true);
+                    }
+                    return mightExist(knownUsers != null ? knownUsers.mightContainUuid(uuid) : null)
+                            .thenCompose(mightExist -> mightExist
+                                    ? userRepository.existsByUuid(uuid)
+                                    : CompletableFuture.completedFuture(false))
+                            .thenApply(exists -> {
+                                if (!exists) {
+                                    rememberMissing(uuid);
+                                }
+                                return exists;
+                            });
                 });
     }
     
@@ -106,4 +457,48 @@ public class GetSkyUserUseCase {
                     return Optional.empty();
                 });
     }
+    
+    private long readToken() {
+        return statDeltaBuffer != null ? statDeltaBuffer.readToken() : 0;
+    }
+    
+    private boolean flushedSince(UUID uuid, long token) {
+        return statDeltaBuffer != null && statDeltaBuffer.flushedSince(uuid, token);
+    }
+    
+    /**
+     * Finish a read started at the token, reading again once the flush settled
+     * if one of the player's changes overlapped it
+     */
+    private CompletableFuture<Optional<SkyUser>> settle(long token, int attempts, Optional<SkyUser> user,
+                                                        Supplier<CompletableFuture<Optional<SkyUser>>> reread) {
+        if (user.isPresent() && attempts > 1 && flushedSince(user.get().getUuid(), token)) {
+            return statDeltaBuffer.awaitFlush().thenCompose(v -> reread.get());
+        }
+        return CompletableFuture.completedFuture(afterLoad(user));
+    }
+    
+    /**
+     * Drop players just put into the cache again if a flush of their changes overlapped the
+     * read, the copy may lack the changes after the flush dropped the previous one
+     */
+    private CompletableFuture<Void> dropIfFlushed(Collection<UUID> uuids, long token) {
+        List<UUID> flushed = uuids.stream()
+                .filter(uuid -> flushedSince(uuid, token))
+                .collect(Collectors.toList());
+        if (flushed.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return cacheRepository.removeAll(flushed);
+    }
+    
+    /**
+     * Index the loaded name and overlay buffered stat changes so callers see their own writes
+     */
+    private Optional<SkyUser> afterLoad(Optional<SkyUser> user) {
+        if (nameIndex != null) {
+            user.ifPresent(skyUser -> nameIndex.put(skyUser.getUuid(), skyUser.getName()));
+        }
+        return statDeltaBuffer != null ? statDeltaBuffer.overlay(user) : user;
+    }
 }
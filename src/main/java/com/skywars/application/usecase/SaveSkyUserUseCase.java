@@ -1,10 +1,13 @@
 package com.skywars.application.usecase;
 
+import com.skywars.application.buffer.StatDeltaBuffer;
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
 import com.skywars.domain.repository.SkyUserCacheRepository;
 import com.skywars.domain.repository.SkyUserRepository;
 
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -14,15 +17,27 @@ import java.util.concurrent.CompletableFuture;
  * 1. Save to database (MySQL) first for persistence
  * 2. Update cache (Redis) for fast future access
  * 3. Handle failures gracefully
+ * 
+ * Saving does not overwrite the counters of an existing user, so stat changes
+ * from other servers are never lost. Counters only change through increments:
+ * a save that changes them passes the change along, which goes through the
+ * write-behind buffer when one is configured.
  */
 public class SaveSkyUserUseCase {
     
     private final SkyUserRepository userRepository;
     private final SkyUserCacheRepository cacheRepository;
+    private final StatDeltaBuffer statDeltaBuffer;
     
     public SaveSkyUserUseCase(SkyUserRepository userRepository, SkyUserCacheRepository cacheRepository) {
+        this(userRepository, cacheRepository, null);
+    }
+    
+    public SaveSkyUserUseCase(SkyUserRepository userRepository, SkyUserCacheRepository cacheRepository,
+                              StatDeltaBuffer statDeltaBuffer) {
         this.userRepository = userRepository;
         this.cacheRepository = cacheRepository;
+        this.statDeltaBuffer = statDeltaBuffer;
     }
     
     /**
@@ -32,20 +47,33 @@ public class SaveSkyUserUseCase {
         return userRepository.save(user)
                 .thenCompose(v -> {
                     // After successful database save, update cache
-                    return cacheRepository.put(user);
+                    return updateCache(user);
                 })
-                .exceptionally(throwable -> {
-                    System.err.println("Error in SaveSkyUserUseCase: " + throwable.getMessage());
-                    // Try to save to database only if cache fails
-                    try {
-                        userRepository.save(user).join();
-                    } catch (Exception e) {
-                        System.err.println("Critical: Failed to save to database: " + e.getMessage());
+                .handle((v, throwable) -> throwable)
+                .thenCompose(throwable -> {
+                    if (throwable == null) {
+                        return CompletableFuture.<Void>completedFuture(null);
                     }
-                    return null;
+                    
+                    System.err.println("Error in SaveSkyUserUseCase: " + throwable.getMessage());
+                    // Try to save to database only if cache fails. Not joined, since saves
+                    // may be group-committed and blocking here could stall the executor.
+                    return userRepository.save(user)
+                            .exceptionally(e -> {
+                                System.err.println("Critical: Failed to save to database: " + e.getMessage());
+                                return null;
+                            });
                 });
     }
     
+    /**
+     * Save user along with a change made to its counters (e.g. coins spent)
+     */
+    public CompletableFuture<Void> execute(SkyUser user, StatDelta statChange) {
+        return applyStatChange(user.getUuid(), statChange)
+                .thenCompose(v -> execute(user));
+    }
+    
     /**
      * Save multiple users (batch operation)
      */
@@ -54,7 +82,7 @@ public class SaveSkyUserUseCase {
                 .thenCompose(v -> {
                     // Update cache for all users after successful batch save
                     CompletableFuture<Void>[] cacheFutures = users.stream()
-                            .map(cacheRepository::put)
+                            .map(this::updateCache)
                             .toArray(CompletableFuture[]::new);
                     
                     return CompletableFuture.allOf(cacheFutures);
@@ -97,4 +125,40 @@ public class SaveSkyUserUseCase {
                     return null;
                 });
     }
+    
+    /**
+     * Write a saved user to the cache. Its counters already include the buffered
+     * changes (overlaid when it was loaded), while cached copies hold persisted
+     * counters only, so such a user is removed from the cache and reloaded instead.
+     */
+    private CompletableFuture<Void> updateCache(SkyUser user) {
+        if (statDeltaBuffer != null && statDeltaBuffer.hasUnpersisted(user.getUuid())) {
+            return cacheRepository.remove(user.getUuid());
+        }
+        return cacheRepository.put(user);
+    }
+    
+    /**
+     * Apply a counter change as an increment, buffered when write-behind is enabled
+     */
+    private CompletableFuture<Void> applyStatChange(UUID uuid, StatDelta statChange) {
+        if (statChange.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        if (statDeltaBuffer != null) {
+            statDeltaBuffer.record(uuid, statChange);
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        // A user not stored yet gets the changed counters from the save itself
+        return userRepository.applyDelta(uuid, statChange)
+                .thenCompose(applied -> applied
+                        ? cacheRepository.applyDelta(uuid, statChange).thenApply(updated -> (Void) null)
+                        : CompletableFuture.<Void>completedFuture(null))
+                .exceptionally(throwable -> {
+                    System.err.println("Error applying stat change for " + uuid + ": " + throwable.getMessage());
+                    return null;
+                });
+    }
 }
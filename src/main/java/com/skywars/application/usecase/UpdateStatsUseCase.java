@@ -1,6 +1,8 @@
 package com.skywars.application.usecase;
 
+import com.skywars.application.buffer.StatDeltaBuffer;
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
 import com.skywars.domain.repository.SkyUserCacheRepository;
 import com.skywars.domain.repository.SkyUserRepository;
 
@@ -12,7 +14,8 @@ import java.util.concurrent.CompletableFuture;
  * UpdateStatsUseCase - Business logic for updating player statistics
  * 
  * This use case handles various stat updates like kills, deaths, wins, etc.
- * with proper validation and persistence.
+ * with proper validation and persistence. When a StatDeltaBuffer is configured,
+ * counter changes are buffered and written behind instead of being saved one by one.
  */
 public class UpdateStatsUseCase {
     
@@ -20,99 +23,53 @@ public class UpdateStatsUseCase {
     private final SkyUserCacheRepository cacheRepository;
     private final GetSkyUserUseCase getSkyUserUseCase;
     private final SaveSkyUserUseCase saveSkyUserUseCase;
+    private final StatDeltaBuffer statDeltaBuffer;
     
     public UpdateStatsUseCase(SkyUserRepository userRepository, 
                              SkyUserCacheRepository cacheRepository,
                              GetSkyUserUseCase getSkyUserUseCase,
                              SaveSkyUserUseCase saveSkyUserUseCase) {
+        this(userRepository, cacheRepository, getSkyUserUseCase, saveSkyUserUseCase, null);
+    }
+    
+    public UpdateStatsUseCase(SkyUserRepository userRepository, 
+                             SkyUserCacheRepository cacheRepository,
+                             GetSkyUserUseCase getSkyUserUseCase,
+                             SaveSkyUserUseCase saveSkyUserUseCase,
+                             StatDeltaBuffer statDeltaBuffer) {
         this.userRepository = userRepository;
         this.cacheRepository = cacheRepository;
         this.getSkyUserUseCase = getSkyUserUseCase;
         this.saveSkyUserUseCase = saveSkyUserUseCase;
+        this.statDeltaBuffer = statDeltaBuffer;
     }
     
     /**
      * Add a kill to player's stats
      */
     public CompletableFuture<Boolean> addKill(UUID uuid) {
-        return getSkyUserUseCase.execute(uuid)
-                .thenCompose(optionalUser -> {
-                    if (optionalUser.isPresent()) {
-                        SkyUser user = optionalUser.get();
-                        user.addKill();
-                        return saveSkyUserUseCase.execute(user)
-                                .thenApply(v -> true);
-                    } else {
-                        return CompletableFuture.completedFuture(false);
-                    }
-                })
-                .exceptionally(throwable -> {
-                    System.err.println("Error adding kill: " + throwable.getMessage());
-                    return false;
-                });
+        return applyDelta(uuid, StatDelta.ofKills(1), "adding kill");
     }
     
     /**
      * Add a death to player's stats
      */
     public CompletableFuture<Boolean> addDeath(UUID uuid) {
-        return getSkyUserUseCase.execute(uuid)
-                .thenCompose(optionalUser -> {
-                    if (optionalUser.isPresent()) {
-                        SkyUser user = optionalUser.get();
-                        user.addDeath();
-                        return saveSkyUserUseCase.execute(user)
-                                .thenApply(v -> true);
-                    } else {
-                        return CompletableFuture.completedFuture(false);
-                    }
-                })
-                .exceptionally(throwable -> {
-                    System.err.println("Error adding death: " + throwable.getMessage());
-                    return false;
-                });
+        return applyDelta(uuid, StatDelta.ofDeaths(1), "adding death");
     }
     
     /**
      * Add a win to player's stats
      */
     public CompletableFuture<Boolean> addWin(UUID uuid) {
-        return getSkyUserUseCase.execute(uuid)
-                .thenCompose(optionalUser -> {
-                    if (optionalUser.isPresent()) {
-                        SkyUser user = optionalUser.get();
-                        user.addWin();
-                        return saveSkyUserUseCase.execute(user)
-                                .thenApply(v -> true);
-                    } else {
-                        return CompletableFuture.completedFuture(false);
-                    }
-                })
-                .exceptionally(throwable -> {
-                    System.err.println("Error adding win: " + throwable.getMessage());
-                    return false;
-                });
+        return applyDelta(uuid, StatDelta.ofWins(1), "adding win");
     }
     
     /**
      * Add a loss to player's stats
      */
     public CompletableFuture<Boolean> addLoss(UUID uuid) {
-        return getSkyUserUseCase.execute(uuid)
-                .thenCompose(optionalUser -> {
-                    if (optionalUser.isPresent()) {
-                        SkyUser user = optionalUser.get();
-                        user.addLoss();
-                        return saveSkyUserUseCase.execute(user)
-                                .thenApply(v -> true);
-                    } else {
-                        return CompletableFuture.completedFuture(false);
-                    }
-                })
-                .exceptionally(throwable -> {
-                    System.err.println("Error adding loss: " + throwable.getMessage());
-                    return false;
-                });
+        return applyDelta(uuid, StatDelta.ofLosses(1), "adding loss");
     }
     
     /**
@@ -123,45 +80,34 @@ public class UpdateStatsUseCase {
             return CompletableFuture.completedFuture(false);
         }
         
-        return getSkyUserUseCase.execute(uuid)
-                .thenCompose(optionalUser -> {
-                    if (optionalUser.isPresent()) {
-                        SkyUser user = optionalUser.get();
-                        user.addCoins(amount);
-                        return saveSkyUserUseCase.execute(user)
-                                .thenApply(v -> true);
-                    } else {
-                        return CompletableFuture.completedFuture(false);
-                    }
-                })
-                .exceptionally(throwable -> {
-                    System.err.println("Error adding coins: " + throwable.getMessage());
-                    return false;
-                });
+        return applyDelta(uuid, StatDelta.ofCoins(amount), "adding coins");
     }
     
     /**
      * Remove coins from player's account
+     * The balance is checked and decremented in a single conditional update, so
+     * concurrent spends on the same or different servers cannot overdraw it.
+     * @return false if the user does not exist or cannot afford the amount
      */
     public CompletableFuture<Boolean> removeCoins(UUID uuid, int amount) {
         if (amount <= 0) {
             return CompletableFuture.completedFuture(false);
         }
         
-        return getSkyUserUseCase.execute(uuid)
-                .thenCompose(optionalUser -> {
-                    if (optionalUser.isPresent()) {
-                        SkyUser user = optionalUser.get();
-                        boolean success = user.removeCoins(amount);
-                        if (success) {
-                            return saveSkyUserUseCase.execute(user)
-                                    .thenApply(v -> true);
-                        } else {
-                            return CompletableFuture.completedFuture(false);
-                        }
-                    } else {
+        // Buffered coin changes must reach the database before its balance is checked
+        CompletableFuture<Void> flushed = statDeltaBuffer != null && statDeltaBuffer.hasUnpersisted(uuid)
+                ? statDeltaBuffer.flush()
+                : CompletableFuture.completedFuture(null);
+        
+        StatDelta delta = StatDelta.ofCoins(-amount);
+        return flushed
+                .thenCompose(v -> userRepository.spendCoins(uuid, amount))
+                .thenCompose(spent -> {
+                    if (!spent) {
                         return CompletableFuture.completedFuture(false);
                     }
+                    return cacheRepository.applyDelta(uuid, delta)
+                            .thenApply(updated -> true);
                 })
                 .exceptionally(throwable -> {
                     System.err.println("Error removing coins: " + throwable.getMessage());
@@ -177,8 +123,9 @@ public class UpdateStatsUseCase {
                 .thenCompose(optionalUser -> {
                     if (optionalUser.isPresent()) {
                         SkyUser user = optionalUser.get();
+                        SkyUser before = user.copy();
                         user.resetStats();
-                        return saveSkyUserUseCase.execute(user)
+                        return saveSkyUserUseCase.execute(user, StatDelta.between(before, user))
                                 .thenApply(v -> true);
                     } else {
                         return CompletableFuture.completedFuture(false);
@@ -210,4 +157,42 @@ public class UpdateStatsUseCase {
                     return false;
                 });
     }
+    
+    /**
+     * Apply a counter change, buffered when write-behind is enabled
+     * @return false if the user does not exist or the change failed
+     */
+    private CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta, String action) {
+        if (statDeltaBuffer != null) {
+            // Only buffer changes of existing users, the flush would drop the others silently
+            CompletableFuture<Boolean> exists = statDeltaBuffer.hasUnpersisted(uuid)
+                    ? CompletableFuture.completedFuture(true)
+                    : getSkyUserUseCase.exists(uuid);
+            return exists
+                    .thenApply(known -> {
+                        if (known) {
+                            statDeltaBuffer.record(uuid, delta);
+                        }
+                        return known;
+                    })
+                    .exceptionally(throwable -> {
+                        System.err.println("Error " + action + ": " + throwable.getMessage());
+                        return false;
+                    });
+        }
+        
+        // Atomic increment in the database, then the same increment on the cached copy
+        return userRepository.applyDelta(uuid, delta)
+                .thenCompose(applied -> {
+                    if (!applied) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return cacheRepository.applyDelta(uuid, delta)
+                            .thenApply(updated -> true);
+                })
+                .exceptionally(throwable -> {
+                    System.err.println("Error " + action + ": " + throwable.getMessage());
+                    return false;
+                });
+    }
 }
@@ -0,0 +1,97 @@
+package com.skywars.application.usecase;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.leaderboard.LeaderboardStat;
+import com.skywars.domain.repository.SkyUserRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * WarmCacheUseCase - Loads the players most likely to be looked up into the caches
+ *
+ * After a restart every first lookup would miss. This use case collects the
+ * heads of every leaderboard and the most recently seen players, then loads
+ * them through {@link GetSkyUserUseCase#executeAll(java.util.Collection)} in
+ * batches: one bulk cache read, one bulk database read for the misses and one
+ * pipelined cache write each, which also fills the in-process caches.
+ * Batches run one after another, so joins keep most of the database and
+ * cache connections, and no new batch starts once the time budget is used up.
+ */
+public class WarmCacheUseCase {
+
+    private final SkyUserRepository userRepository;
+    private final GetSkyUserUseCase getSkyUserUseCase;
+
+    public WarmCacheUseCase(SkyUserRepository userRepository, GetSkyUserUseCase getSkyUserUseCase) {
+        this.userRepository = userRepository;
+        this.getSkyUserUseCase = getSkyUserUseCase;
+    }
+
+    /**
+     * Warm the caches
+     * @param recentPlayers Number of most recently seen players to load
+     * @param leaderboardPlayers Number of players to load from the top of each leaderboard
+     * @param batchSize Players loaded per batch
+     * @param budgetMillis Time after which no new batch is started
+     * @return CompletableFuture containing the number of players loaded
+     */
+    public CompletableFuture<Long> execute(int recentPlayers, int leaderboardPlayers, int batchSize, long budgetMillis) {
+        long deadline = System.currentTimeMillis() + budgetMillis;
+
+        List<CompletableFuture<List<UUID>>> sources = new ArrayList<>();
+        if (leaderboardPlayers > 0) {
+            for (LeaderboardStat stat : LeaderboardStat.values()) {
+                sources.add(orEmpty(userRepository.getLeaderboardPage(stat, null, leaderboardPlayers)
+                        .thenApply(WarmCacheUseCase::uuidsOf), stat + " leaderboard"));
+            }
+        }
+        if (recentPlayers > 0) {
+            sources.add(orEmpty(userRepository.findRecentlySeenUuids(recentPlayers), "recent players"));
+        }
+
+        return CompletableFuture.allOf(sources.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(v -> {
+                    // Leaderboard heads first, each player once
+                    Set<UUID> uuids = new LinkedHashSet<>();
+                    sources.forEach(source -> uuids.addAll(source.join()));
+                    return warmBatches(new ArrayList<>(uuids), 0, Math.max(1, batchSize), deadline, 0L);
+                });
+    }
+
+    private CompletableFuture<Long> warmBatches(List<UUID> uuids, int start, int batchSize, long deadline, long warmed) {
+        if (start >= uuids.size() || System.currentTimeMillis() >= deadline) {
+            return CompletableFuture.completedFuture(warmed);
+        }
+
+        List<UUID> batch = uuids.subList(start, Math.min(start + batchSize, uuids.size()));
+        return getSkyUserUseCase.executeAll(batch)
+                .thenApply(users -> (long) users.size())
+                .exceptionally(throwable -> {
+                    System.err.println("Error warming " + batch.size() + " cached users: " + throwable.getMessage());
+                    return 0L;
+                })
+                .thenCompose(loaded -> warmBatches(uuids, start + batchSize, batchSize, deadline, warmed + loaded));
+    }
+
+    private static List<UUID> uuidsOf(List<SkyUser> users) {
+        List<UUID> uuids = new ArrayList<>(users.size());
+        users.forEach(user -> uuids.add(user.getUuid()));
+        return uuids;
+    }
+
+    /**
+     * A source that cannot be read only makes the warmup smaller
+     */
+    private static CompletableFuture<List<UUID>> orEmpty(CompletableFuture<List<UUID>> source, String name) {
+        return source.exceptionally(throwable -> {
+            System.err.println("Error reading " + name + " for cache warmup: " + throwable.getMessage());
+            return Collections.emptyList();
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.skywars.domain.cosmetic;
+
+import lombok.Data;
+
+import java.util.*;
+
+/**
+ * CosmeticChanges - Difference between a user's cosmetics and their persisted state
+ *
+ * Holds the state the changes were computed from, so the persisted state can be
+ * moved forward to exactly what was written even if the user changed again meanwhile.
+ */
+@Data
+public class CosmeticChanges {
+
+    private final Set<String> addedCosmetics;
+    private final Set<String> removedCosmetics;
+
+    // Selections that were set or changed, by type
+    private final Map<CosmeticType, String> selectedCosmetics;
+
+    // Types whose selection was cleared
+    private final Set<CosmeticType> clearedSelections;
+
+    private final Set<String> ownedSnapshot;
+    private final Map<CosmeticType, String> selectedSnapshot;
+
+    /**
+     * Compute the changes between a persisted state and the current state
+     */
+    public static CosmeticChanges between(Set<String> persistedOwned, Map<CosmeticType, String> persistedSelected,
+                                          Set<String> owned, Map<CosmeticType, String> selected) {
+        Set<String> ownedSnapshot = new HashSet<>(owned);
+        Map<CosmeticType, String> selectedSnapshot = new EnumMap<>(CosmeticType.class);
+        selectedSnapshot.putAll(selected);
+
+        Set<String> added = new HashSet<>(ownedSnapshot);
+        added.removeAll(persistedOwned);
+
+        Set<String> removed = new HashSet<>(persistedOwned);
+        removed.removeAll(ownedSnapshot);
+
+        Map<CosmeticType, String> changedSelections = new EnumMap<>(CosmeticType.class);
+        for (Map.Entry<CosmeticType, String> entry : selectedSnapshot.entrySet()) {
+            if (!entry.getValue().equals(persistedSelected.get(entry.getKey()))) {
+                changedSelections.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        Set<CosmeticType> cleared = EnumSet.noneOf(CosmeticType.class);
+        for (CosmeticType type : persistedSelected.keySet()) {
+            if (!selectedSnapshot.containsKey(type)) {
+                cleared.add(type);
+            }
+        }
+
+        return new CosmeticChanges(added, removed, changedSelections, cleared, ownedSnapshot, selectedSnapshot);
+    }
+
+    /**
+     * Check if there is nothing to write
+     */
+    public boolean isEmpty() {
+        return addedCosmetics.isEmpty() && removedCosmetics.isEmpty()
+                && selectedCosmetics.isEmpty() && clearedSelections.isEmpty();
+    }
+}
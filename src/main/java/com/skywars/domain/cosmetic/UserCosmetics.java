@@ -1,6 +1,7 @@
 package com.skywars.domain.cosmetic;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
@@ -8,6 +9,9 @@ import java.util.*;
 
 /**
  * Class representing a user's cosmetic selections and owned cosmetics
+ * 
+ * Also remembers the state last written to the database so that saves
+ * only need to write the cosmetics that were added or removed since.
  */
 @Data
 public class UserCosmetics {
@@ -18,12 +22,35 @@ public class UserCosmetics {
     // Set of owned cosmetic IDs
     private final Set<String> ownedCosmetics;
     
+    // State last written to the database
+    private final Map<CosmeticType, String> persistedSelected;
+    private final Set<String> persistedOwned;
+    
+    // False when the user was loaded without cosmetics (e.g. leaderboard rows),
+    // such instances must never overwrite the stored cosmetics
+    private final boolean loaded;
+    
+    public UserCosmetics(Map<CosmeticType, String> selectedCosmetics, Set<String> ownedCosmetics) {
+        this(selectedCosmetics, ownedCosmetics, null, null, true);
+    }
+    
     @JsonCreator
     public UserCosmetics(
             @JsonProperty("selectedCosmetics") Map<CosmeticType, String> selectedCosmetics,
-            @JsonProperty("ownedCosmetics") Set<String> ownedCosmetics) {
+            @JsonProperty("ownedCosmetics") Set<String> ownedCosmetics,
+            @JsonProperty("persistedSelected") Map<CosmeticType, String> persistedSelected,
+            @JsonProperty("persistedOwned") Set<String> persistedOwned,
+            @JsonProperty("loaded") Boolean loaded) {
         this.selectedCosmetics = selectedCosmetics != null ? selectedCosmetics : new EnumMap<>(CosmeticType.class);
         this.ownedCosmetics = ownedCosmetics != null ? ownedCosmetics : new HashSet<>();
+        
+        // Missing persisted state means nothing has been written yet
+        this.persistedSelected = new EnumMap<>(CosmeticType.class);
+        if (persistedSelected != null) {
+            this.persistedSelected.putAll(persistedSelected);
+        }
+        this.persistedOwned = persistedOwned != null ? new HashSet<>(persistedOwned) : new HashSet<>();
+        this.loaded = loaded == null || loaded;
     }
     
     /**
@@ -33,6 +60,31 @@ public class UserCosmetics {
         return new UserCosmetics(new EnumMap<>(CosmeticType.class), new HashSet<>());
     }
     
+    /**
+     * Create a UserCosmetics instance from the state stored in the database
+     */
+    public static UserCosmetics fromPersisted(Map<CosmeticType, String> selectedCosmetics, Set<String> ownedCosmetics) {
+        Map<CosmeticType, String> selected = new EnumMap<>(CosmeticType.class);
+        selected.putAll(selectedCosmetics);
+        return new UserCosmetics(selected, new HashSet<>(ownedCosmetics), selectedCosmetics, ownedCosmetics, true);
+    }
+    
+    /**
+     * Create a placeholder for users loaded without their cosmetics
+     */
+    public static UserCosmetics notLoaded() {
+        return new UserCosmetics(new EnumMap<>(CosmeticType.class), new HashSet<>(), null, null, false);
+    }
+    
+    /**
+     * Create an independent copy, including the persisted state
+     */
+    public UserCosmetics copy() {
+        Map<CosmeticType, String> selected = new EnumMap<>(CosmeticType.class);
+        selected.putAll(selectedCosmetics);
+        return new UserCosmetics(selected, new HashSet<>(ownedCosmetics), persistedSelected, persistedOwned, loaded);
+    }
+    
     /**
      * Check if the user owns a specific cosmetic
      */
@@ -95,4 +147,30 @@ public class UserCosmetics {
     public Map<CosmeticType, String> getSelectedCosmetics() {
         return Collections.unmodifiableMap(selectedCosmetics);
     }
+    
+    /**
+     * Get the changes made since the last save
+     */
+    @JsonIgnore
+    public CosmeticChanges getChanges() {
+        return CosmeticChanges.between(persistedOwned, persistedSelected, ownedCosmetics, selectedCosmetics);
+    }
+    
+    /**
+     * Record that the given changes were written to the database
+     */
+    public void markPersisted(CosmeticChanges changes) {
+        persistedOwned.clear();
+        persistedOwned.addAll(changes.getOwnedSnapshot());
+        persistedSelected.clear();
+        persistedSelected.putAll(changes.getSelectedSnapshot());
+    }
+    
+    public Set<String> getPersistedOwned() {
+        return Collections.unmodifiableSet(persistedOwned);
+    }
+    
+    public Map<CosmeticType, String> getPersistedSelected() {
+        return Collections.unmodifiableMap(persistedSelected);
+    }
 }
@@ -86,6 +86,13 @@ public class SkyUser {
         return new SkyUser(uuid, name, kills, deaths, wins, losses, coins, lastSeen, firstJoin, cosmetics);
     }
     
+    /**
+     * Create an independent copy that can be changed without affecting this user
+     */
+    public SkyUser copy() {
+        return new SkyUser(uuid, name, kills, deaths, wins, losses, coins, lastSeen, firstJoin, cosmetics.copy());
+    }
+    
     /**
      * Business logic methods
      */
@@ -0,0 +1,113 @@
+package com.skywars.domain.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * StatDelta - Value object describing a relative change to a player's statistics
+ *
+ * Deltas are immutable and can be merged, which allows many small stat changes
+ * (kills, deaths, coins...) to be collected in memory and persisted together.
+ */
+@Data
+public class StatDelta {
+
+    private static final StatDelta EMPTY = new StatDelta(0, 0, 0, 0, 0, null);
+
+    private final int kills;
+    private final int deaths;
+    private final int wins;
+    private final int losses;
+    private final int coins;
+    private final LocalDateTime lastSeen;
+
+    public StatDelta(int kills, int deaths, int wins, int losses, int coins, LocalDateTime lastSeen) {
+        this.kills = kills;
+        this.deaths = deaths;
+        this.wins = wins;
+        this.losses = losses;
+        this.coins = coins;
+        this.lastSeen = lastSeen;
+    }
+
+    /**
+     * Factory methods for single stat changes
+     */
+    public static StatDelta empty() {
+        return EMPTY;
+    }
+
+    public static StatDelta ofKills(int kills) {
+        return new StatDelta(kills, 0, 0, 0, 0, LocalDateTime.now());
+    }
+
+    public static StatDelta ofDeaths(int deaths) {
+        return new StatDelta(0, deaths, 0, 0, 0, LocalDateTime.now());
+    }
+
+    public static StatDelta ofWins(int wins) {
+        return new StatDelta(0, 0, wins, 0, 0, LocalDateTime.now());
+    }
+
+    public static StatDelta ofLosses(int losses) {
+        return new StatDelta(0, 0, 0, losses, 0, LocalDateTime.now());
+    }
+
+    public static StatDelta ofCoins(int coins) {
+        return new StatDelta(0, 0, 0, 0, coins, LocalDateTime.now());
+    }
+
+    /**
+     * The change that turns the counters of one copy of a user into those of another
+     */
+    public static StatDelta between(SkyUser before, SkyUser after) {
+        return new StatDelta(
+                after.getKills() - before.getKills(),
+                after.getDeaths() - before.getDeaths(),
+                after.getWins() - before.getWins(),
+                after.getLosses() - before.getLosses(),
+                after.getCoins() - before.getCoins(),
+                null);
+    }
+
+    /**
+     * Merge two deltas into a new one, keeping the most recent last seen time
+     */
+    public StatDelta plus(StatDelta other) {
+        LocalDateTime mergedLastSeen = lastSeen;
+        if (other.lastSeen != null && (mergedLastSeen == null || other.lastSeen.isAfter(mergedLastSeen))) {
+            mergedLastSeen = other.lastSeen;
+        }
+
+        return new StatDelta(
+                kills + other.kills,
+                deaths + other.deaths,
+                wins + other.wins,
+                losses + other.losses,
+                coins + other.coins,
+                mergedLastSeen);
+    }
+
+    /**
+     * Check if this delta changes any counter
+     */
+    public boolean isEmpty() {
+        return kills == 0 && deaths == 0 && wins == 0 && losses == 0 && coins == 0;
+    }
+
+    /**
+     * Apply this delta to a user in place
+     */
+    public void applyTo(SkyUser user) {
+        user.setKills(user.getKills() + kills);
+        user.setDeaths(user.getDeaths() + deaths);
+        user.setWins(user.getWins() + wins);
+        user.setLosses(user.getLosses() + losses);
+        user.setCoins(user.getCoins() + coins);
+
+        if (lastSeen != null && (user.getLastSeen() == null || lastSeen.isAfter(user.getLastSeen()))) {
+            user.setLastSeen(lastSeen);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.skywars.domain.leaderboard;
+
+import com.skywars.domain.entity.SkyUser;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * Position in a leaderboard used for keyset pagination
+ * 
+ * Leaderboards are ordered by score (descending) and then UUID (ascending),
+ * so the score and UUID of the last row of a page uniquely identify where
+ * the next page starts.
+ */
+@Data
+public class LeaderboardCursor {
+    
+    private final int score;
+    private final UUID uuid;
+    
+    public LeaderboardCursor(int score, UUID uuid) {
+        this.score = score;
+        this.uuid = uuid;
+    }
+    
+    /**
+     * Create a cursor pointing after the given user
+     */
+    public static LeaderboardCursor after(SkyUser user, LeaderboardStat stat) {
+        return new LeaderboardCursor(stat.getScore(user), user.getUuid());
+    }
+}
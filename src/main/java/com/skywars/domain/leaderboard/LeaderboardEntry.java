@@ -0,0 +1,27 @@
+package com.skywars.domain.leaderboard;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * A row of a leaderboard
+ * 
+ * The position is the 1-based place in the leaderboard order (score descending,
+ * then UUID), the score is the value for the leaderboard's statistic and period.
+ */
+@Data
+public class LeaderboardEntry {
+    
+    private final long position;
+    private final UUID uuid;
+    private final String name;
+    private final long score;
+    
+    public LeaderboardEntry(long position, UUID uuid, String name, long score) {
+        this.position = position;
+        this.uuid = uuid;
+        this.name = name;
+        this.score = score;
+    }
+}
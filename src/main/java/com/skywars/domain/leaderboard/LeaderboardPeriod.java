@@ -0,0 +1,42 @@
+package com.skywars.domain.leaderboard;
+
+import java.util.Optional;
+
+/**
+ * Enum representing the time windows leaderboards are kept for
+ */
+public enum LeaderboardPeriod {
+    ALL_TIME("All Time"),
+    DAILY("Today"),
+    WEEKLY("This Week");
+    
+    private final String displayName;
+    
+    LeaderboardPeriod(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    /**
+     * Parse a period from user input (case-insensitive, "all" for all time)
+     */
+    public static Optional<LeaderboardPeriod> fromString(String value) {
+        if ("all".equalsIgnoreCase(value)) {
+            return Optional.of(ALL_TIME);
+        }
+        for (LeaderboardPeriod period : values()) {
+            if (period.name().equalsIgnoreCase(value)) {
+                return Optional.of(period);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,61 @@
+package com.skywars.domain.leaderboard;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+
+import java.util.Optional;
+
+/**
+ * Enum representing the statistics players can be ranked by
+ */
+public enum LeaderboardStat {
+    KILLS("Kills"),
+    WINS("Wins");
+    
+    private final String displayName;
+    
+    LeaderboardStat(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    /**
+     * Get the score of a user for this statistic
+     */
+    public int getScore(SkyUser user) {
+        return switch (this) {
+            case KILLS -> user.getKills();
+            case WINS -> user.getWins();
+        };
+    }
+    
+    /**
+     * Get the change of this statistic in a delta
+     */
+    public int getChange(StatDelta delta) {
+        return switch (this) {
+            case KILLS -> delta.getKills();
+            case WINS -> delta.getWins();
+        };
+    }
+    
+    /**
+     * Parse a statistic from user input (case-insensitive)
+     */
+    public static Optional<LeaderboardStat> fromString(String value) {
+        for (LeaderboardStat stat : values()) {
+            if (stat.name().equalsIgnoreCase(value)) {
+                return Optional.of(stat);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
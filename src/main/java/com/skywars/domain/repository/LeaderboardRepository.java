@@ -0,0 +1,50 @@
+package com.skywars.domain.repository;
+
+import com.skywars.domain.leaderboard.LeaderboardEntry;
+import com.skywars.domain.leaderboard.LeaderboardPeriod;
+import com.skywars.domain.leaderboard.LeaderboardStat;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * LeaderboardRepository Interface - Domain layer contract
+ * 
+ * Ranked views of player statistics, for all time and for time windows
+ * (today, this week). Window leaderboards only count changes made while they
+ * were kept, they cannot be rebuilt from stored totals.
+ */
+public interface LeaderboardRepository {
+    
+    /**
+     * Get a range of a leaderboard
+     * @param stat Statistic to rank by
+     * @param period Time window
+     * @param offset Number of rows to skip
+     * @param limit Number of rows to return
+     * @return CompletableFuture containing the rows ordered by position
+     */
+    CompletableFuture<List<LeaderboardEntry>> getPage(LeaderboardStat stat, LeaderboardPeriod period, long offset, int limit);
+    
+    /**
+     * Get the rows around a player (around-me view)
+     * @param uuid Player's UUID
+     * @param stat Statistic to rank by
+     * @param period Time window
+     * @param radius Number of rows to return above and below the player
+     * @return CompletableFuture containing the rows ordered by position, empty if the player is not ranked
+     */
+    CompletableFuture<List<LeaderboardEntry>> getAround(UUID uuid, LeaderboardStat stat, LeaderboardPeriod period, int radius);
+    
+    /**
+     * Get the rank of a player
+     * @param uuid Player's UUID
+     * @param stat Statistic to rank by
+     * @param period Time window
+     * @return CompletableFuture containing the 1-based rank (players with equal scores share a rank),
+     *         or empty if the player is not ranked; fails while the all-time leaderboards are being built
+     */
+    CompletableFuture<Optional<Long>> rankOf(UUID uuid, LeaderboardStat stat, LeaderboardPeriod period);
+}
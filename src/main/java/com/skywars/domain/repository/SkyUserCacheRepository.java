@@ -1,7 +1,10 @@
 package com.skywars.domain.repository;
 
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -21,6 +24,31 @@ public interface SkyUserCacheRepository {
      */
     CompletableFuture<Optional<SkyUser>> get(UUID uuid);
     
+    /**
+     * Get user from cache, telling whether the entry should be refreshed
+     * before it expires (probabilistic early expiration)
+     * @param uuid Player's UUID
+     * @param recomputeMillis Typical time to load the user from the database,
+     *                        longer loads are refreshed earlier
+     * @return CompletableFuture containing the cached user, if found, and the refresh hint
+     */
+    CompletableFuture<CacheEntry> getEntry(UUID uuid, long recomputeMillis);
+    
+    /**
+     * Get many users from cache in as few round trips as possible
+     * @param uuids Players' UUIDs
+     * @return CompletableFuture containing the cached users by UUID (missing users are left out)
+     */
+    CompletableFuture<Map<UUID, SkyUser>> getAll(Collection<UUID> uuids);
+    
+    /**
+     * Get a user's statistics from cache, without their cosmetics when the
+     * cache can read them separately
+     * @param uuid Player's UUID
+     * @return Optional containing the cached user if found, cosmetics may be not loaded
+     */
+    CompletableFuture<Optional<SkyUser>> getStats(UUID uuid);
+    
     /**
      * Store user in cache with TTL
      * @param user The user to cache
@@ -36,6 +64,29 @@ public interface SkyUserCacheRepository {
      */
     CompletableFuture<Void> put(SkyUser user, long ttlSeconds);
     
+    /**
+     * Store many users in cache with the default TTL in as few round trips as possible
+     * @param users The users to cache
+     * @return CompletableFuture that completes when the operation is done
+     */
+    CompletableFuture<Void> putAll(Collection<SkyUser> users);
+    
+    /**
+     * Apply a stat change to a cached user in place, the entry is dropped
+     * instead when the cache cannot update it in place
+     * @param uuid Player's UUID
+     * @param delta The stat change, already persisted
+     * @return CompletableFuture containing true if the cached user was updated
+     */
+    CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta);
+    
+    /**
+     * Apply many stat changes to cached users in as few round trips as possible
+     * @param deltas The stat changes by UUID, already persisted
+     * @return CompletableFuture that completes when the operation is done
+     */
+    CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas);
+    
     /**
      * Remove user from cache
      * @param uuid Player's UUID
@@ -43,6 +94,13 @@ public interface SkyUserCacheRepository {
      */
     CompletableFuture<Void> remove(UUID uuid);
     
+    /**
+     * Remove many users from cache in as few round trips as possible
+     * @param uuids Players' UUIDs
+     * @return CompletableFuture that completes when the operation is done
+     */
+    CompletableFuture<Void> removeAll(Collection<UUID> uuids);
+    
     /**
      * Check if user exists in cache
      * @param uuid Player's UUID
@@ -62,6 +120,32 @@ public interface SkyUserCacheRepository {
      */
     CompletableFuture<CacheInfo> getInfo();
     
+    /**
+     * A cache lookup result with its early refresh hint
+     */
+    class CacheEntry {
+        private static final CacheEntry MISS = new CacheEntry(Optional.empty(), false);
+        
+        private final Optional<SkyUser> user;
+        private final boolean refreshDue;
+        
+        public CacheEntry(Optional<SkyUser> user, boolean refreshDue) {
+            this.user = user;
+            this.refreshDue = refreshDue && user.isPresent();
+        }
+        
+        public static CacheEntry miss() {
+            return MISS;
+        }
+        
+        public Optional<SkyUser> getUser() { return user; }
+        
+        /**
+         * True if the user should be loaded again in the background, the cached copy is still valid
+         */
+        public boolean isRefreshDue() { return refreshDue; }
+    }
+    
     /**
      * Cache information data class
      */
@@ -69,21 +153,171 @@ public interface SkyUserCacheRepository {
         private final long totalKeys;
         private final long usedMemory;
         private final boolean connected;
+        private final CacheStats localStats;
+        private final CacheStats clusterStats;
+        private final long nearCacheEntries;
+        private final long nearCacheMemory;
+        private final CacheStats nearCacheStats;
+        private final String circuitState;
+        private final long circuitOpenedAt;
+        private final long circuitTrips;
         
         public CacheInfo(long totalKeys, long usedMemory, boolean connected) {
+            this(totalKeys, usedMemory, connected, null, null);
+        }
+        
+        public CacheInfo(long totalKeys, long usedMemory, boolean connected,
+                         CacheStats localStats, CacheStats clusterStats) {
+            this(totalKeys, usedMemory, connected, localStats, clusterStats, 0, 0, null, null, 0, 0);
+        }
+        
+        private CacheInfo(long totalKeys, long usedMemory, boolean connected,
+                          CacheStats localStats, CacheStats clusterStats,
+                          long nearCacheEntries, long nearCacheMemory, CacheStats nearCacheStats,
+                          String circuitState, long circuitOpenedAt, long circuitTrips) {
             this.totalKeys = totalKeys;
             this.usedMemory = usedMemory;
             this.connected = connected;
+            this.localStats = localStats;
+            this.clusterStats = clusterStats;
+            this.nearCacheEntries = nearCacheEntries;
+            this.nearCacheMemory = nearCacheMemory;
+            this.nearCacheStats = nearCacheStats;
+            this.circuitState = circuitState;
+            this.circuitOpenedAt = circuitOpenedAt;
+            this.circuitTrips = circuitTrips;
+        }
+        
+        /**
+         * Copy this info with the state of an in-process cache tier in front of it
+         */
+        public CacheInfo withNearCache(long entries, long memory, CacheStats stats) {
+            return new CacheInfo(totalKeys, usedMemory, connected, localStats, clusterStats, entries, memory, stats,
+                    circuitState, circuitOpenedAt, circuitTrips);
+        }
+        
+        /**
+         * Copy this info with the state of a circuit breaker in front of the cache
+         */
+        public CacheInfo withCircuitBreaker(String state, long openedAt, long trips) {
+            return new CacheInfo(totalKeys, usedMemory, connected, localStats, clusterStats,
+                    nearCacheEntries, nearCacheMemory, nearCacheStats, state, openedAt, trips);
         }
         
         public long getTotalKeys() { return totalKeys; }
         public long getUsedMemory() { return usedMemory; }
         public boolean isConnected() { return connected; }
         
+        /**
+         * Statistics of this server, null if not tracked
+         */
+        public CacheStats getLocalStats() { return localStats; }
+        
+        /**
+         * Statistics summed over all servers sharing the cache, null if not tracked
+         */
+        public CacheStats getClusterStats() { return clusterStats; }
+        
+        public long getNearCacheEntries() { return nearCacheEntries; }
+        
+        /**
+         * Approximate bytes held by the in-process tier
+         */
+        public long getNearCacheMemory() { return nearCacheMemory; }
+        
+        /**
+         * Statistics of the in-process tier, null if there is none
+         */
+        public CacheStats getNearCacheStats() { return nearCacheStats; }
+        
+        /**
+         * State of the circuit breaker (closed, open, half_open), null if there is none
+         */
+        public String getCircuitState() { return circuitState; }
+        
+        /**
+         * Time the circuit last opened in epoch millis, 0 if it never did
+         */
+        public long getCircuitOpenedAt() { return circuitOpenedAt; }
+        
+        public long getCircuitTrips() { return circuitTrips; }
+        
         @Override
         public String toString() {
             return String.format("CacheInfo{keys=%d, memory=%d bytes, connected=%s}", 
                     totalKeys, usedMemory, connected);
         }
     }
+    
+    /**
+     * Cache usage statistics data class
+     */
+    class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long puts;
+        private final long removes;
+        private final long evictions;
+        private final long errors;
+        private final double averageReadMillis;
+        private final double averageWriteMillis;
+        
+        public CacheStats(long hits, long misses, long puts, long removes, long evictions, long errors,
+                          double averageReadMillis, double averageWriteMillis) {
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+            this.removes = removes;
+            this.evictions = evictions;
+            this.errors = errors;
+            this.averageReadMillis = averageReadMillis;
+            this.averageWriteMillis = averageWriteMillis;
+        }
+        
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getPuts() { return puts; }
+        public long getRemoves() { return removes; }
+        public long getEvictions() { return evictions; }
+        public long getErrors() { return errors; }
+        public double getAverageReadMillis() { return averageReadMillis; }
+        public double getAverageWriteMillis() { return averageWriteMillis; }
+        
+        /**
+         * Combine the statistics of two caches, e.g. two shards, averaging times by operation count
+         */
+        public CacheStats plus(CacheStats other) {
+            if (other == null) {
+                return this;
+            }
+            
+            long reads = hits + misses;
+            long otherReads = other.hits + other.misses;
+            long writes = puts + removes;
+            long otherWrites = other.puts + other.removes;
+            return new CacheStats(hits + other.hits, misses + other.misses, puts + other.puts,
+                    removes + other.removes, evictions + other.evictions, errors + other.errors,
+                    weightedAverage(averageReadMillis, reads, other.averageReadMillis, otherReads),
+                    weightedAverage(averageWriteMillis, writes, other.averageWriteMillis, otherWrites));
+        }
+        
+        private static double weightedAverage(double a, long weightA, double b, long weightB) {
+            long total = weightA + weightB;
+            return total == 0 ? 0.0 : (a * weightA + b * weightB) / total;
+        }
+        
+        /**
+         * Get the share of lookups answered from cache, 0 if there were none
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("CacheStats{hits=%d, misses=%d, hitRate=%.1f%%, puts=%d, removes=%d, evictions=%d, errors=%d, read=%.2f ms, write=%.2f ms}",
+                    hits, misses, getHitRate() * 100, puts, removes, evictions, errors, averageReadMillis, averageWriteMillis);
+        }
+    }
 }
@@ -1,11 +1,17 @@
 package com.skywars.domain.repository;
 
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.leaderboard.LeaderboardCursor;
+import com.skywars.domain.leaderboard.LeaderboardStat;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * SkyUserRepository Interface - Domain layer contract
@@ -29,8 +35,17 @@ public interface SkyUserRepository {
      */
     CompletableFuture<Optional<SkyUser>> findByName(String name);
     
+    /**
+     * Find many users by UUID in as few queries as possible
+     * @param uuids Players' UUIDs
+     * @return CompletableFuture containing the found users by UUID (missing users are left out)
+     */
+    CompletableFuture<Map<UUID, SkyUser>> findAllByUuids(Collection<UUID> uuids);
+    
     /**
      * Save or update a user
+     * The counters (kills, deaths, wins, losses, coins) are only stored for a new user,
+     * an existing user's counters change through {@link #applyDelta(UUID, StatDelta)} only.
      * @param user The user to save
      * @return CompletableFuture that completes when the operation is done
      */
@@ -43,6 +58,36 @@ public interface SkyUserRepository {
      */
     CompletableFuture<Void> saveAll(List<SkyUser> users);
     
+    /**
+     * Insert a new user unless a user with the same UUID already exists
+     * @param user The user to insert
+     * @return CompletableFuture containing true if the user was inserted, false if it already existed
+     */
+    CompletableFuture<Boolean> insertIfAbsent(SkyUser user);
+    
+    /**
+     * Atomically add a stat delta to a stored user without reading it first
+     * @param uuid Player's UUID
+     * @param delta Relative stat changes to apply
+     * @return CompletableFuture containing true if the user exists and was updated
+     */
+    CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta);
+    
+    /**
+     * Atomically remove coins from a stored user if the balance covers the amount
+     * @param uuid Player's UUID
+     * @param amount Number of coins to remove
+     * @return CompletableFuture containing true if the user exists and could afford the amount
+     */
+    CompletableFuture<Boolean> spendCoins(UUID uuid, int amount);
+    
+    /**
+     * Atomically add stat deltas to multiple stored users (batch operation)
+     * @param deltas Relative stat changes per player
+     * @return CompletableFuture that completes when the operation is done
+     */
+    CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas);
+    
     /**
      * Delete a user by UUID
      * @param uuid Player's UUID
@@ -71,15 +116,64 @@ public interface SkyUserRepository {
      */
     CompletableFuture<List<SkyUser>> getTopPlayersByWins(int limit);
     
+    /**
+     * Get a page of a leaderboard using keyset pagination
+     * @param stat Statistic to rank by
+     * @param after Cursor of the last row of the previous page, or null for the first page
+     * @param limit Number of players to return
+     * @return CompletableFuture containing players ordered by score (descending) and UUID
+     */
+    CompletableFuture<List<SkyUser>> getLeaderboardPage(LeaderboardStat stat, LeaderboardCursor after, int limit);
+    
+    /**
+     * Get the rank of a player for a statistic
+     * @param uuid Player's UUID
+     * @param stat Statistic to rank by
+     * @return CompletableFuture containing the 1-based rank (players with equal scores share a rank),
+     *         or empty if the player does not exist; fails where no bounded-time ranking is
+     *         available (e.g. MySQL alone, or while the leaderboard sets are not built)
+     */
+    CompletableFuture<Optional<Long>> rankOf(UUID uuid, LeaderboardStat stat);
+    
+    /**
+     * Get the UUIDs of the most recently seen players
+     * @param limit Number of players to return
+     * @return CompletableFuture containing UUIDs ordered by last seen time (most recent first)
+     */
+    CompletableFuture<List<UUID>> findRecentlySeenUuids(int limit);
+    
     /**
      * Get all users (use with caution for large datasets)
      * @return CompletableFuture containing list of all users
+     * @deprecated Loads every row into memory, use {@link #streamAll(Consumer, int)} instead
      */
+    @Deprecated
     CompletableFuture<List<SkyUser>> findAll();
     
+    /**
+     * Stream all users with bounded memory
+     * 
+     * Users are fetched from the database in chunks of {@code batchSize} and handed to
+     * the consumer one by one on the loading thread. The next chunk is only fetched once
+     * the consumer has returned, so a slow consumer slows the stream down instead of
+     * buffering rows in memory.
+     * 
+     * @param consumer Callback invoked for every user
+     * @param batchSize Number of rows fetched per round trip
+     * @return CompletableFuture containing the number of streamed users
+     */
+    CompletableFuture<Long> streamAll(Consumer<SkyUser> consumer, int batchSize);
+    
     /**
      * Get total number of registered users
      * @return CompletableFuture containing the count
      */
     CompletableFuture<Long> count();
+    
+    /**
+     * Get the last known number of registered users without querying the database,
+     * falls back to count() if no count is known yet
+     * @return CompletableFuture containing the (possibly slightly outdated) count
+     */
+    CompletableFuture<Long> approximateCount();
 }
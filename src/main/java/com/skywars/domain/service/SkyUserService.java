@@ -1,6 +1,7 @@
 package com.skywars.domain.service;
 
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -27,6 +28,15 @@ public interface SkyUserService {
      */
     CompletableFuture<Void> saveUser(SkyUser user);
     
+    /**
+     * Save a user whose counters were changed, e.g. by spending coins
+     * 
+     * @param user The user to save
+     * @param statChange The change made to the user's counters
+     * @return A CompletableFuture indicating completion
+     */
+    CompletableFuture<Void> saveUser(SkyUser user, StatDelta statChange);
+    
     /**
      * Create a new user
      * 
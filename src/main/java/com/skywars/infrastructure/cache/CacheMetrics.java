@@ -0,0 +1,142 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.domain.repository.SkyUserCacheRepository.CacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CacheMetrics - In-process counters of cache usage
+ *
+ * Counters are striped LongAdders, so recording never contends between threads
+ * and never costs a Redis round trip. The growth since the last flush can be
+ * taken periodically and added to a shared Redis hash, which sums the
+ * statistics of every server using the cache.
+ */
+public class CacheMetrics {
+
+    // Field names in the shared Redis hash, in the order of totals()
+    private static final String[] FIELDS = {
+            "hits", "misses", "puts", "removes", "evictions", "errors",
+            "reads", "read_micros", "writes", "write_micros"
+    };
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder removes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+
+    // Totals already added to the shared hash
+    private final long[] flushed = new long[FIELDS.length];
+
+    public void recordHits(long count) {
+        hits.add(count);
+    }
+
+    public void recordMisses(long count) {
+        misses.add(count);
+    }
+
+    public void recordPuts(long count) {
+        puts.add(count);
+    }
+
+    public void recordRemoves(long count) {
+        removes.add(count);
+    }
+
+    /**
+     * Record entries dropped by the cache itself (unreadable or not updatable in place)
+     */
+    public void recordEvictions(long count) {
+        evictions.add(count);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Record the duration of a read operation, started at the given System.nanoTime()
+     */
+    public void recordRead(long startNanos) {
+        reads.increment();
+        readNanos.add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record the duration of a write operation, started at the given System.nanoTime()
+     */
+    public void recordWrite(long startNanos) {
+        writes.increment();
+        writeNanos.add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Take a snapshot of the statistics of this server since startup
+     */
+    public CacheStats snapshot() {
+        return toStats(totals());
+    }
+
+    /**
+     * Get the growth of every counter since the last flush, by Redis field name.
+     * The flush only counts once {@link #markFlushed(Map)} is called with the result.
+     */
+    public synchronized Map<String, Long> unflushed() {
+        long[] totals = totals();
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        for (int i = 0; i < FIELDS.length; i++) {
+            long delta = totals[i] - flushed[i];
+            if (delta != 0) {
+                deltas.put(FIELDS[i], delta);
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * Record that the given growth was added to the shared hash
+     */
+    public synchronized void markFlushed(Map<String, Long> deltas) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            flushed[i] += deltas.getOrDefault(FIELDS[i], 0L);
+        }
+    }
+
+    /**
+     * Read statistics from the shared Redis hash
+     */
+    public static CacheStats fromHash(Map<String, String> hash) {
+        long[] totals = new long[FIELDS.length];
+        for (int i = 0; i < FIELDS.length; i++) {
+            try {
+                totals[i] = Long.parseLong(hash.getOrDefault(FIELDS[i], "0"));
+            } catch (NumberFormatException e) {
+                totals[i] = 0;
+            }
+        }
+        return toStats(totals);
+    }
+
+    private long[] totals() {
+        return new long[]{
+                hits.sum(), misses.sum(), puts.sum(), removes.sum(), evictions.sum(), errors.sum(),
+                reads.sum(), readNanos.sum() / 1000, writes.sum(), writeNanos.sum() / 1000
+        };
+    }
+
+    private static CacheStats toStats(long[] totals) {
+        double averageReadMillis = totals[6] == 0 ? 0.0 : totals[7] / (double) totals[6] / 1000.0;
+        double averageWriteMillis = totals[8] == 0 ? 0.0 : totals[9] / (double) totals[8] / 1000.0;
+        return new CacheStats(totals[0], totals[1], totals[2], totals[3], totals[4], totals[5],
+                averageReadMillis, averageWriteMillis);
+    }
+}
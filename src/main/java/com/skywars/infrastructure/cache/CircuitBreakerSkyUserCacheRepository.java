@@ -0,0 +1,188 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.repository.SkyUserCacheRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * CircuitBreakerSkyUserCacheRepository - Degraded mode for the Redis cache
+ *
+ * Calls go through a RedisCircuitBreaker. While the circuit is open, reads
+ * are answered as cache misses and writes are skipped at once, so lookups go
+ * straight to MySQL instead of waiting for Redis.
+ *
+ * Users whose cache writes were skipped or failed may be stale in Redis when
+ * it comes back (e.g. when only this server lost its connection). They are
+ * removed from Redis before the circuit closes; when too many were missed the
+ * whole cache is cleared instead.
+ */
+public class CircuitBreakerSkyUserCacheRepository implements SkyUserCacheRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreakerSkyUserCacheRepository.class.getName());
+
+    // Beyond this many missed users, recovery clears the cache instead of removing them one by one
+    private static final int MAX_DIRTY_USERS = 10000;
+
+    // Users removed at once during recovery
+    private static final int RECOVERY_BATCH_SIZE = 100;
+
+    private final SkyUserCacheRepository delegate;
+    private final RedisCircuitBreaker breaker;
+
+    // Users whose cached copy may be stale
+    private final Set<UUID> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private volatile boolean dirtyOverflow;
+
+    public CircuitBreakerSkyUserCacheRepository(SkyUserCacheRepository delegate, RedisCircuitBreaker breaker) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+        breaker.addRecoveryTask(this::dropDirtyUsers);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> get(UUID uuid) {
+        return breaker.read(() -> delegate.get(uuid), Optional::empty);
+    }
+
+    @Override
+    public CompletableFuture<CacheEntry> getEntry(UUID uuid, long recomputeMillis) {
+        return breaker.read(() -> delegate.getEntry(uuid, recomputeMillis), CacheEntry::miss);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> getAll(Collection<UUID> uuids) {
+        return breaker.read(() -> delegate.getAll(uuids), HashMap::new);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> getStats(UUID uuid) {
+        return breaker.read(() -> delegate.getStats(uuid), Optional::empty);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(SkyUser user) {
+        return write(Collections.singleton(user.getUuid()), () -> delegate.put(user), null);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(SkyUser user, long ttlSeconds) {
+        return write(Collections.singleton(user.getUuid()), () -> delegate.put(user, ttlSeconds), null);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAll(Collection<SkyUser> users) {
+        List<UUID> uuids = new ArrayList<>(users.size());
+        users.forEach(user -> uuids.add(user.getUuid()));
+        return write(uuids, () -> delegate.putAll(users), null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return write(Collections.singleton(uuid), () -> delegate.applyDelta(uuid, delta), false);
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        return write(deltas.keySet(), () -> delegate.applyDeltas(deltas), null);
+    }
+
+    @Override
+    public CompletableFuture<Void> remove(UUID uuid) {
+        return write(Collections.singleton(uuid), () -> delegate.remove(uuid), null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAll(Collection<UUID> uuids) {
+        return write(uuids, () -> delegate.removeAll(uuids), null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(UUID uuid) {
+        return breaker.read(() -> delegate.exists(uuid), () -> false);
+    }
+
+    @Override
+    public CompletableFuture<Void> clear() {
+        if (!breaker.isClosed()) {
+            return CompletableFuture.failedFuture(new CompletionException("Redis is unreachable, cache not cleared", null));
+        }
+        return delegate.clear();
+    }
+
+    @Override
+    public CompletableFuture<CacheInfo> getInfo() {
+        return breaker.read(delegate::getInfo, () -> new CacheInfo(0, 0, false))
+                .thenApply(info -> info.withCircuitBreaker(breaker.getState().name().toLowerCase(Locale.ROOT),
+                        breaker.getOpenedAt(), breaker.getTripCount()));
+    }
+
+    /**
+     * Get the number of users that will be removed from Redis when it recovers
+     */
+    public int getDirtyCount() {
+        return dirtyUsers.size();
+    }
+
+    /**
+     * Run a write through the breaker, remembering the users when it is skipped or fails
+     */
+    private <T> CompletableFuture<T> write(Collection<UUID> uuids, Supplier<CompletableFuture<T>> call, T skipped) {
+        return breaker.write(call, () -> {
+                    markDirty(uuids);
+                    return skipped;
+                })
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        markDirty(uuids);
+                    }
+                });
+    }
+
+    private void markDirty(Collection<UUID> uuids) {
+        if (dirtyOverflow) {
+            return;
+        }
+        dirtyUsers.addAll(uuids);
+        if (dirtyUsers.size() > MAX_DIRTY_USERS) {
+            dirtyOverflow = true;
+            dirtyUsers.clear();
+        }
+    }
+
+    /**
+     * Recovery task, remove the possibly stale users from Redis
+     */
+    private CompletableFuture<Void> dropDirtyUsers() {
+        if (dirtyOverflow) {
+            LOGGER.info("Too many cache writes were missed while Redis was unreachable, clearing the cache.");
+            return delegate.clear().thenRun(() -> dirtyOverflow = false);
+        }
+        if (!dirtyUsers.isEmpty()) {
+            LOGGER.info("Removing " + dirtyUsers.size() + " users from the cache that missed writes while Redis was unreachable.");
+        }
+        return removeDirtyUsers();
+    }
+
+    private CompletableFuture<Void> removeDirtyUsers() {
+        if (dirtyUsers.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // A few at a time, the cache executor has a bounded queue
+        List<UUID> batch = new ArrayList<>(dirtyUsers);
+        batch = batch.subList(0, Math.min(batch.size(), RECOVERY_BATCH_SIZE));
+        CompletableFuture<?>[] removals = batch.stream()
+                .map(uuid -> delegate.remove(uuid).thenRun(() -> dirtyUsers.remove(uuid)))
+                .toArray(CompletableFuture[]::new);
+
+        // Until none are left, including users skipped while this batch was taken
+        return CompletableFuture.allOf(removals).thenCompose(v -> removeDirtyUsers());
+    }
+}
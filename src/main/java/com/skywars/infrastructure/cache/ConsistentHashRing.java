@@ -0,0 +1,84 @@
+package com.skywars.infrastructure.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * ConsistentHashRing - Assigns UUIDs to nodes by consistent hashing
+ *
+ * Every node is placed on a 64-bit ring at a number of points (virtual
+ * nodes) derived from its name, a UUID belongs to the first node point at or
+ * after the UUID's own hash. Adding or removing one of n nodes only moves the
+ * UUIDs next to its points, about 1/n of them, and the virtual nodes spread
+ * the load evenly. Node positions depend on names only, not on their order.
+ * Immutable once built.
+ */
+public final class ConsistentHashRing<T> {
+
+    private final NavigableMap<Long, T> ring = new TreeMap<>();
+    private final List<T> nodes;
+
+    /**
+     * @param nodes Nodes by their unique name (e.g. "host:port")
+     * @param virtualNodes Points on the ring per node
+     */
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+
+        this.nodes = List.copyOf(nodes.values());
+        int points = Math.max(1, virtualNodes);
+        // In name order, so a collision keeps the same node on every server
+        for (Map.Entry<String, T> node : new TreeMap<>(nodes).entrySet()) {
+            for (int i = 0; i < points; i++) {
+                ring.merge(hash(node.getKey() + "#" + i), node.getValue(), (existing, added) -> existing);
+            }
+        }
+    }
+
+    /**
+     * Get the node a UUID belongs to
+     */
+    public T get(UUID uuid) {
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(uuid));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Group items by the node of their UUID
+     */
+    public <E> Map<T, List<E>> partition(Collection<E> items, Function<E, UUID> uuidOf) {
+        Map<T, List<E>> partitions = new LinkedHashMap<>();
+        for (E item : items) {
+            partitions.computeIfAbsent(get(uuidOf.apply(item)), node -> new ArrayList<>()).add(item);
+        }
+        return partitions;
+    }
+
+    public List<T> getNodes() {
+        return nodes;
+    }
+
+    private static long hash(UUID uuid) {
+        return mix(uuid.getMostSignificantBits() ^ mix(uuid.getLeastSignificantBits()));
+    }
+
+    /**
+     * 64-bit FNV-1a of the name, finished with a mixer so nearby names land far apart
+     */
+    private static long hash(String name) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
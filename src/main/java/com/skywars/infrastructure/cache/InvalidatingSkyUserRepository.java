@@ -0,0 +1,158 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.application.cache.CacheInvalidationBus;
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.leaderboard.LeaderboardCursor;
+import com.skywars.domain.leaderboard.LeaderboardStat;
+import com.skywars.domain.repository.SkyUserRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * InvalidatingSkyUserRepository - Announces persisted changes on the invalidation bus
+ *
+ * Every save, stat change and delete that completes successfully publishes the
+ * users involved, so other servers drop or reload their in-memory copies.
+ * Reads are passed through unchanged.
+ */
+public class InvalidatingSkyUserRepository implements SkyUserRepository {
+
+    private final SkyUserRepository delegate;
+    private final CacheInvalidationBus invalidationBus;
+
+    public InvalidatingSkyUserRepository(SkyUserRepository delegate, CacheInvalidationBus invalidationBus) {
+        this.delegate = delegate;
+        this.invalidationBus = invalidationBus;
+    }
+
+    @Override
+    public CompletableFuture<Void> save(SkyUser user) {
+        UUID uuid = user.getUuid();
+        return delegate.save(user)
+                .thenRun(() -> invalidationBus.publish(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(List<SkyUser> users) {
+        List<UUID> uuids = new ArrayList<>(users.size());
+        users.forEach(user -> uuids.add(user.getUuid()));
+        return delegate.saveAll(users)
+                .thenRun(() -> uuids.forEach(invalidationBus::publish));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertIfAbsent(SkyUser user) {
+        UUID uuid = user.getUuid();
+        return delegate.insertIfAbsent(user)
+                .thenApply(inserted -> {
+                    if (inserted) {
+                        invalidationBus.publish(uuid);
+                    }
+                    return inserted;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return delegate.applyDelta(uuid, delta)
+                .thenApply(applied -> {
+                    if (applied) {
+                        invalidationBus.publish(uuid);
+                    }
+                    return applied;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> spendCoins(UUID uuid, int amount) {
+        return delegate.spendCoins(uuid, amount)
+                .thenApply(spent -> {
+                    if (spent) {
+                        invalidationBus.publish(uuid);
+                    }
+                    return spent;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        Set<UUID> uuids = new HashSet<>(deltas.keySet());
+        return delegate.applyDeltas(deltas)
+                .thenRun(() -> uuids.forEach(invalidationBus::publish));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteByUuid(UUID uuid) {
+        return delegate.deleteByUuid(uuid)
+                .thenRun(() -> invalidationBus.publish(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByUuid(UUID uuid) {
+        return delegate.findByUuid(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> findAllByUuids(Collection<UUID> uuids) {
+        return delegate.findAllByUuids(uuids);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByName(String name) {
+        return delegate.findByName(name);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByUuid(UUID uuid) {
+        return delegate.existsByUuid(uuid);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByKills(int limit) {
+        return delegate.getTopPlayersByKills(limit);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByWins(int limit) {
+        return delegate.getTopPlayersByWins(limit);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getLeaderboardPage(LeaderboardStat stat, LeaderboardCursor after, int limit) {
+        return delegate.getLeaderboardPage(stat, after, limit);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Long>> rankOf(UUID uuid, LeaderboardStat stat) {
+        return delegate.rankOf(uuid, stat);
+    }
+
+    @Override
+    public CompletableFuture<List<UUID>> findRecentlySeenUuids(int limit) {
+        return delegate.findRecentlySeenUuids(limit);
+    }
+
+    @Override
+    @Deprecated
+    public CompletableFuture<List<SkyUser>> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public CompletableFuture<Long> streamAll(Consumer<SkyUser> consumer, int batchSize) {
+        return delegate.streamAll(consumer, batchSize);
+    }
+
+    @Override
+    public CompletableFuture<Long> count() {
+        return delegate.count();
+    }
+
+    @Override
+    public CompletableFuture<Long> approximateCount() {
+        return delegate.approximateCount();
+    }
+}
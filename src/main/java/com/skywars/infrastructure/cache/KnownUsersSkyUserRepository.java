@@ -0,0 +1,143 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.leaderboard.LeaderboardCursor;
+import com.skywars.domain.leaderboard.LeaderboardStat;
+import com.skywars.domain.repository.SkyUserRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * KnownUsersSkyUserRepository - Keeps the known users filter up to date
+ *
+ * Users are added to the RedisBloomFilter before they are saved or inserted,
+ * so the filter never says "certainly missing" for a stored user or name
+ * (including new names after a rename). When a filter update fails the filter
+ * answers "maybe" until it is rebuilt, then the write continues. Everything
+ * else is passed through.
+ */
+public class KnownUsersSkyUserRepository implements SkyUserRepository {
+
+    private final SkyUserRepository delegate;
+    private final RedisBloomFilter knownUsers;
+
+    public KnownUsersSkyUserRepository(SkyUserRepository delegate, RedisBloomFilter knownUsers) {
+        this.delegate = delegate;
+        this.knownUsers = knownUsers;
+    }
+
+    @Override
+    public CompletableFuture<Void> save(SkyUser user) {
+        return recorded(knownUsers.add(user.getUuid(), user.getName()))
+                .thenCompose(v -> delegate.save(user));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(List<SkyUser> users) {
+        return recorded(knownUsers.addAll(users))
+                .thenCompose(v -> delegate.saveAll(users));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertIfAbsent(SkyUser user) {
+        return recorded(knownUsers.add(user.getUuid(), user.getName()))
+                .thenCompose(v -> delegate.insertIfAbsent(user));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return delegate.applyDelta(uuid, delta);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> spendCoins(UUID uuid, int amount) {
+        return delegate.spendCoins(uuid, amount);
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        return delegate.applyDeltas(deltas);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteByUuid(UUID uuid) {
+        // Bloom filters cannot remove entries, the deleted user stays a "maybe"
+        return delegate.deleteByUuid(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByUuid(UUID uuid) {
+        return delegate.findByUuid(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByName(String name) {
+        return delegate.findByName(name);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> findAllByUuids(Collection<UUID> uuids) {
+        return delegate.findAllByUuids(uuids);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByUuid(UUID uuid) {
+        return delegate.existsByUuid(uuid);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByKills(int limit) {
+        return delegate.getTopPlayersByKills(limit);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByWins(int limit) {
+        return delegate.getTopPlayersByWins(limit);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getLeaderboardPage(LeaderboardStat stat, LeaderboardCursor after, int limit) {
+        return delegate.getLeaderboardPage(stat, after, limit);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Long>> rankOf(UUID uuid, LeaderboardStat stat) {
+        return delegate.rankOf(uuid, stat);
+    }
+
+    @Override
+    public CompletableFuture<List<UUID>> findRecentlySeenUuids(int limit) {
+        return delegate.findRecentlySeenUuids(limit);
+    }
+
+    @Override
+    @Deprecated
+    public CompletableFuture<List<SkyUser>> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public CompletableFuture<Long> streamAll(Consumer<SkyUser> consumer, int batchSize) {
+        return delegate.streamAll(consumer, batchSize);
+    }
+
+    @Override
+    public CompletableFuture<Long> count() {
+        return delegate.count();
+    }
+
+    @Override
+    public CompletableFuture<Long> approximateCount() {
+        return delegate.approximateCount();
+    }
+
+    private static CompletableFuture<Void> recorded(CompletableFuture<Void> update) {
+        return update.exceptionally(throwable -> {
+            System.err.println("Error updating known users filter: " + throwable.getMessage());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,188 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.leaderboard.LeaderboardCursor;
+import com.skywars.domain.leaderboard.LeaderboardPeriod;
+import com.skywars.domain.leaderboard.LeaderboardStat;
+import com.skywars.domain.repository.SkyUserRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * LeaderboardSkyUserRepository - Serves leaderboards from Redis sorted sets
+ *
+ * Stat changes, saves and deletes that complete successfully are mirrored into
+ * the RedisLeaderboardRepository; saves only add users not listed yet, scores
+ * change through stat changes alone. Top lists, leaderboard pages and ranks are
+ * read from the sorted sets, only the users of the page are then loaded by
+ * primary key. While the sorted sets are not built, or when Redis fails, the
+ * wrapped repository answers instead.
+ */
+public class LeaderboardSkyUserRepository implements SkyUserRepository {
+
+    private final SkyUserRepository delegate;
+    private final RedisLeaderboardRepository leaderboards;
+
+    public LeaderboardSkyUserRepository(SkyUserRepository delegate, RedisLeaderboardRepository leaderboards) {
+        this.delegate = delegate;
+        this.leaderboards = leaderboards;
+    }
+
+    @Override
+    public CompletableFuture<Void> save(SkyUser user) {
+        SkyUser saved = user.copy();
+        return delegate.save(user)
+                .thenRun(() -> mirror(leaderboards.addMissing(List.of(saved))));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(List<SkyUser> users) {
+        List<SkyUser> saved = new ArrayList<>(users.size());
+        users.forEach(user -> saved.add(user.copy()));
+        return delegate.saveAll(users)
+                .thenRun(() -> mirror(leaderboards.addMissing(saved)));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertIfAbsent(SkyUser user) {
+        SkyUser inserted = user.copy();
+        return delegate.insertIfAbsent(user)
+                .thenApply(wasInserted -> {
+                    if (wasInserted) {
+                        mirror(leaderboards.addMissing(List.of(inserted)));
+                    }
+                    return wasInserted;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return delegate.applyDelta(uuid, delta)
+                .thenApply(applied -> {
+                    if (applied) {
+                        mirror(leaderboards.record(Map.of(uuid, delta)));
+                    }
+                    return applied;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> spendCoins(UUID uuid, int amount) {
+        // Coins are not ranked, there is nothing to mirror
+        return delegate.spendCoins(uuid, amount);
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        Map<UUID, StatDelta> applied = new HashMap<>(deltas);
+        return delegate.applyDeltas(deltas)
+                .thenRun(() -> mirror(leaderboards.record(applied)));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteByUuid(UUID uuid) {
+        return delegate.deleteByUuid(uuid)
+                .thenRun(() -> mirror(leaderboards.remove(uuid)));
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByKills(int limit) {
+        return getLeaderboardPage(LeaderboardStat.KILLS, null, limit);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByWins(int limit) {
+        return getLeaderboardPage(LeaderboardStat.WINS, null, limit);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getLeaderboardPage(LeaderboardStat stat, LeaderboardCursor after, int limit) {
+        return leaderboards.findPage(stat, after, limit)
+                .thenCompose(page -> {
+                    if (page.isEmpty()) {
+                        return delegate.getLeaderboardPage(stat, after, limit);
+                    }
+                    List<UUID> uuids = page.get();
+                    return delegate.findAllByUuids(uuids)
+                            .thenApply(users -> {
+                                List<SkyUser> ordered = new ArrayList<>(uuids.size());
+                                for (UUID uuid : uuids) {
+                                    SkyUser user = users.get(uuid);
+                                    if (user != null) {
+                                        ordered.add(user);
+                                    }
+                                }
+                                return ordered;
+                            });
+                })
+                .exceptionallyCompose(throwable -> {
+                    System.err.println("Error reading " + stat + " leaderboard from Redis: " + throwable.getMessage());
+                    return delegate.getLeaderboardPage(stat, after, limit);
+                });
+    }
+
+    @Override
+    public CompletableFuture<Optional<Long>> rankOf(UUID uuid, LeaderboardStat stat) {
+        // Sorted sets only, fails while they are not built or Redis is unreachable
+        return leaderboards.rankOf(uuid, stat, LeaderboardPeriod.ALL_TIME);
+    }
+
+    @Override
+    public CompletableFuture<List<UUID>> findRecentlySeenUuids(int limit) {
+        return delegate.findRecentlySeenUuids(limit);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByUuid(UUID uuid) {
+        return delegate.findByUuid(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByName(String name) {
+        return delegate.findByName(name);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> findAllByUuids(Collection<UUID> uuids) {
+        return delegate.findAllByUuids(uuids);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByUuid(UUID uuid) {
+        return delegate.existsByUuid(uuid);
+    }
+
+    @Override
+    @Deprecated
+    public CompletableFuture<List<SkyUser>> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public CompletableFuture<Long> streamAll(Consumer<SkyUser> consumer, int batchSize) {
+        return delegate.streamAll(consumer, batchSize);
+    }
+
+    @Override
+    public CompletableFuture<Long> count() {
+        return delegate.count();
+    }
+
+    @Override
+    public CompletableFuture<Long> approximateCount() {
+        return delegate.approximateCount();
+    }
+
+    /**
+     * The database write already succeeded, a failed leaderboard update is only logged
+     */
+    private static void mirror(CompletableFuture<Void> update) {
+        update.exceptionally(throwable -> {
+            System.err.println("Error updating leaderboards: " + throwable.getMessage());
+            return null;
+        });
+    }
+}
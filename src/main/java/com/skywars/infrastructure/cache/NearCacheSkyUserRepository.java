@@ -0,0 +1,451 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.domain.cosmetic.UserCosmetics;
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.repository.SkyUserCacheRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * NearCacheSkyUserRepository - In-process cache tier in front of another cache
+ *
+ * Users read through this tier are kept in memory for a short time, so repeated
+ * lookups skip the network round trip and deserialization. The tier is bounded
+ * by entry count and approximate memory. New entries first enter a small LRU
+ * window; when it overflows, the window's oldest entry only replaces the oldest
+ * entry of the main area if it was accessed more often recently (TinyLFU
+ * admission), so a burst of one-off lookups cannot flush out popular players.
+ *
+ * Writes go through to the wrapped cache and update this tier once they
+ * succeed. Changes made by other servers become visible when entries expire,
+ * or earlier when they are announced and {@link #invalidate(UUID)} is called.
+ * Users are copied on the way in and out, callers may change what they get.
+ */
+public class NearCacheSkyUserRepository implements SkyUserCacheRepository {
+
+    // Share of the entries reserved for the admission window
+    private static final double WINDOW_RATIO = 0.01;
+
+    // Loads slower than this do not fill the tier, so older write times can be forgotten
+    private static final long MAX_LOAD_NANOS = 60_000_000_000L;
+
+    private final SkyUserCacheRepository delegate;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final int windowCapacity;
+
+    // Both in access order, eldest first
+    private final LinkedHashMap<UUID, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<UUID, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long totalBytes;
+
+    // Time (System.nanoTime) of the last write per user, a load of that user
+    // started before it does not fill the tier. Loads of other users are unaffected.
+    private final ConcurrentHashMap<UUID, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile long lastClear = System.nanoTime();
+    private volatile int pruneThreshold;
+
+    private final CacheMetrics metrics = new CacheMetrics();
+
+    public NearCacheSkyUserRepository(SkyUserCacheRepository delegate, int maxEntries,
+                                      long maxBytes, long ttlSeconds) {
+        this.delegate = delegate;
+        this.maxEntries = Math.max(2, maxEntries);
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.windowCapacity = Math.max(1, (int) (this.maxEntries * WINDOW_RATIO));
+        this.sketch = new FrequencySketch(this.maxEntries);
+        this.pruneThreshold = this.maxEntries;
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> get(UUID uuid) {
+        long start = System.nanoTime();
+        SkyUser cached = lookup(uuid);
+        if (cached != null) {
+            metrics.recordHits(1);
+            metrics.recordRead(start);
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+
+        metrics.recordMisses(1);
+        return delegate.get(uuid)
+                .thenApply(user -> {
+                    user.ifPresent(skyUser -> fill(skyUser, start));
+                    return user;
+                });
+    }
+
+    @Override
+    public CompletableFuture<CacheEntry> getEntry(UUID uuid, long recomputeMillis) {
+        long start = System.nanoTime();
+        SkyUser cached = lookup(uuid);
+        if (cached != null) {
+            // Entries here are short-lived, the refresh hint comes from the wrapped cache on a miss
+            metrics.recordHits(1);
+            metrics.recordRead(start);
+            return CompletableFuture.completedFuture(new CacheEntry(Optional.of(cached), false));
+        }
+
+        metrics.recordMisses(1);
+        return delegate.getEntry(uuid, recomputeMillis)
+                .thenApply(entry -> {
+                    entry.getUser().ifPresent(skyUser -> fill(skyUser, start));
+                    return entry;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> getStats(UUID uuid) {
+        long start = System.nanoTime();
+        SkyUser cached = lookup(uuid);
+        if (cached != null) {
+            metrics.recordHits(1);
+            metrics.recordRead(start);
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+
+        // Users without cosmetics are never kept here
+        metrics.recordMisses(1);
+        return delegate.getStats(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> getAll(Collection<UUID> uuids) {
+        long start = System.nanoTime();
+        Map<UUID, SkyUser> users = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+
+        for (UUID uuid : uuids) {
+            SkyUser cached = lookup(uuid);
+            if (cached != null) {
+                users.put(uuid, cached);
+            } else {
+                missing.add(uuid);
+            }
+        }
+
+        metrics.recordHits(users.size());
+        metrics.recordMisses(missing.size());
+        if (missing.isEmpty()) {
+            metrics.recordRead(start);
+            return CompletableFuture.completedFuture(users);
+        }
+
+        return delegate.getAll(missing)
+                .thenApply(loaded -> {
+                    loaded.values().forEach(user -> fill(user, start));
+                    users.putAll(loaded);
+                    return users;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> put(SkyUser user) {
+        return writeThrough(user, delegate::put, ttlNanos);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(SkyUser user, long ttlSeconds) {
+        long entryTtlNanos = ttlSeconds > 0 ? Math.min(ttlNanos, ttlSeconds * 1_000_000_000L) : ttlNanos;
+        return writeThrough(user, skyUser -> delegate.put(skyUser, ttlSeconds), entryTtlNanos);
+    }
+
+    private CompletableFuture<Void> writeThrough(SkyUser user,
+                                                 Function<SkyUser, CompletableFuture<Void>> write,
+                                                 long entryTtlNanos) {
+        SkyUser copy = user.copy();
+        recordWrite(copy.getUuid());
+
+        return write.apply(user)
+                .whenComplete((v, throwable) -> {
+                    if (throwable != null) {
+                        invalidate(copy.getUuid());
+                    } else {
+                        store(copy, entryTtlNanos);
+                    }
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> putAll(Collection<SkyUser> users) {
+        List<SkyUser> copies = new ArrayList<>(users.size());
+        users.forEach(user -> copies.add(user.copy()));
+        copies.forEach(copy -> recordWrite(copy.getUuid()));
+
+        return delegate.putAll(users)
+                .whenComplete((v, throwable) -> {
+                    for (SkyUser copy : copies) {
+                        if (throwable != null) {
+                            invalidate(copy.getUuid());
+                        } else {
+                            store(copy, ttlNanos);
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        recordWrite(uuid);
+        return delegate.applyDelta(uuid, delta)
+                .whenComplete((updated, throwable) -> applyLocally(uuid, delta, throwable == null));
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        deltas.keySet().forEach(this::recordWrite);
+        return delegate.applyDeltas(deltas)
+                .whenComplete((v, throwable) ->
+                        deltas.forEach((uuid, delta) -> applyLocally(uuid, delta, throwable == null)));
+    }
+
+    @Override
+    public CompletableFuture<Void> remove(UUID uuid) {
+        recordWrite(uuid);
+        invalidate(uuid);
+        metrics.recordRemoves(1);
+        return delegate.remove(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAll(Collection<UUID> uuids) {
+        for (UUID uuid : uuids) {
+            recordWrite(uuid);
+            invalidate(uuid);
+        }
+        metrics.recordRemoves(uuids.size());
+        return delegate.removeAll(uuids);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(UUID uuid) {
+        if (lookup(uuid) != null) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return delegate.exists(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> clear() {
+        lastClear = System.nanoTime();
+        invalidateAll();
+        return delegate.clear();
+    }
+
+    @Override
+    public CompletableFuture<CacheInfo> getInfo() {
+        return delegate.getInfo()
+                .thenApply(info -> info.withNearCache(size(), getMemoryUsage(), metrics.snapshot()));
+    }
+
+    /**
+     * Drop a user from this tier only, e.g. when another server changed it
+     */
+    public void invalidate(UUID uuid) {
+        synchronized (this) {
+            Entry entry = window.remove(uuid);
+            if (entry == null) {
+                entry = main.remove(uuid);
+            }
+            if (entry != null) {
+                totalBytes -= entry.weight;
+            }
+        }
+    }
+
+    /**
+     * Drop all users from this tier only
+     */
+    public void invalidateAll() {
+        synchronized (this) {
+            window.clear();
+            main.clear();
+            totalBytes = 0;
+        }
+    }
+
+    /**
+     * Get the statistics of this tier since startup
+     */
+    public CacheStats getStats() {
+        return metrics.snapshot();
+    }
+
+    public synchronized int size() {
+        return window.size() + main.size();
+    }
+
+    /**
+     * Get the approximate number of bytes held by this tier
+     */
+    public synchronized long getMemoryUsage() {
+        return totalBytes;
+    }
+
+    /**
+     * Find a live entry and return a copy of its user
+     */
+    private synchronized SkyUser lookup(UUID uuid) {
+        sketch.increment(uuid);
+
+        Entry entry = window.get(uuid);
+        if (entry == null) {
+            entry = main.get(uuid);
+        }
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.nanoTime() - entry.expiresAt > 0) {
+            invalidate(uuid);
+            return null;
+        }
+        return entry.user.copy();
+    }
+
+    /**
+     * Keep a user loaded from the wrapped cache, unless the user was written since the load started
+     */
+    private void fill(SkyUser user, long loadStart) {
+        if (user.getCosmetics() == null || !user.getCosmetics().isLoaded()) {
+            return;
+        }
+
+        synchronized (this) {
+            if (System.nanoTime() - loadStart > MAX_LOAD_NANOS || lastClear - loadStart >= 0) {
+                return;
+            }
+            Long lastWrite = lastWrites.get(user.getUuid());
+            if (lastWrite != null && lastWrite - loadStart >= 0) {
+                return;
+            }
+            if (window.containsKey(user.getUuid()) || main.containsKey(user.getUuid())) {
+                return;
+            }
+            insert(user.copy(), ttlNanos);
+        }
+    }
+
+    /**
+     * Remember a write so loads of the user already running do not fill the tier
+     */
+    private void recordWrite(UUID uuid) {
+        long now = System.nanoTime();
+        lastWrites.put(uuid, now);
+
+        // Writes older than any load that may still fill the tier are forgotten
+        if (lastWrites.size() > pruneThreshold) {
+            lastWrites.values().removeIf(time -> now - time > MAX_LOAD_NANOS);
+            pruneThreshold = Math.max(maxEntries, lastWrites.size() * 2);
+        }
+    }
+
+    /**
+     * Keep a user written through this tier, replacing any entry
+     */
+    private void store(SkyUser user, long entryTtlNanos) {
+        if (entryTtlNanos <= 0 || user.getCosmetics() == null || !user.getCosmetics().isLoaded()) {
+            invalidate(user.getUuid());
+            return;
+        }
+
+        synchronized (this) {
+            invalidate(user.getUuid());
+            insert(user, entryTtlNanos);
+        }
+        metrics.recordPuts(1);
+    }
+
+    private void applyLocally(UUID uuid, StatDelta delta, boolean persisted) {
+        synchronized (this) {
+            Entry entry = window.get(uuid);
+            if (entry == null) {
+                entry = main.get(uuid);
+            }
+            if (entry == null) {
+                return;
+            }
+
+            if (persisted) {
+                delta.applyTo(entry.user);
+            } else {
+                // Unknown state in the wrapped cache, load it again next time
+                invalidate(uuid);
+            }
+        }
+    }
+
+    private void insert(SkyUser user, long entryTtlNanos) {
+        Entry entry = new Entry(user, System.nanoTime() + entryTtlNanos, estimateBytes(user));
+        window.put(user.getUuid(), entry);
+        totalBytes += entry.weight;
+
+        while (window.size() > windowCapacity) {
+            Map.Entry<UUID, Entry> eldest = window.entrySet().iterator().next();
+            window.remove(eldest.getKey());
+            admit(eldest.getKey(), eldest.getValue());
+        }
+
+        // Memory bound, evict from the main area first
+        while (totalBytes > maxBytes && size() > 0) {
+            LinkedHashMap<UUID, Entry> area = main.isEmpty() ? window : main;
+            UUID victim = area.keySet().iterator().next();
+            totalBytes -= area.remove(victim).weight;
+            metrics.recordEvictions(1);
+        }
+    }
+
+    /**
+     * Move an entry leaving the window into the main area if it is worth it
+     */
+    private void admit(UUID candidate, Entry entry) {
+        if (main.size() < maxEntries - windowCapacity) {
+            main.put(candidate, entry);
+            return;
+        }
+
+        UUID victim = main.keySet().iterator().next();
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            totalBytes -= main.remove(victim).weight;
+            main.put(candidate, entry);
+        } else {
+            totalBytes -= entry.weight;
+        }
+        metrics.recordEvictions(1);
+    }
+
+    /**
+     * Rough heap size of a cached user and its cosmetics
+     */
+    private static int estimateBytes(SkyUser user) {
+        int bytes = 200 + (user.getName() != null ? 40 + 2 * user.getName().length() : 0);
+
+        UserCosmetics cosmetics = user.getCosmetics();
+        bytes += 150;
+        bytes += 64 * (cosmetics.getOwnedCosmetics().size() + cosmetics.getPersistedOwned().size());
+        bytes += 48 * (cosmetics.getSelectedCosmetics().size() + cosmetics.getPersistedSelected().size());
+        return bytes;
+    }
+
+    /**
+     * A cached user with its expiry time (System.nanoTime) and estimated size
+     */
+    private static class Entry {
+        private final SkyUser user;
+        private final long expiresAt;
+        private final int weight;
+
+        private Entry(SkyUser user, long expiresAt, int weight) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.application.cache.KnownUserFilter;
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.repository.SkyUserRepository;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * RedisBloomFilter - KnownUserFilter kept in a Redis bitmap
+ *
+ * UUIDs and lowercase names of stored users are added to a Bloom filter in a
+ * bitmap shared by all servers, so a user created on one server is known to
+ * every other server at once. Checks and additions set or read a few bits in
+ * one pipelined round trip.
+ *
+ * The filter is built from MySQL by streaming every user once (on the first
+ * start, or after the bitmap was lost) and answers "maybe" until the build
+ * has completed. The bitmap key contains its size and hash count, so changing
+ * them in the configuration starts a new filter.
+ *
+ * With a circuit breaker, checks answer "maybe" while Redis is unreachable and
+ * additions are kept in memory, then written when Redis is back. When too many
+ * were kept, the filter is marked as not built so it is built again.
+ *
+ * An addition that fails is never retried: the filter is marked as not built
+ * at once, so every server answers "maybe" until it was built again, and this
+ * server does so even while Redis cannot be told.
+ */
+public class RedisBloomFilter implements KnownUserFilter {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisBloomFilter.class.getName());
+
+    private static final String KEY_PREFIX = "skywars:bloom:users:";
+
+    private static final long REBUILD_LOCK_SECONDS = 600;
+
+    // How long a server trusts the last readiness check
+    private static final long READY_REFRESH_MILLIS = 5000;
+
+    // Redis bitmaps are limited to 2^32 bits
+    private static final long MAX_BITS = 1L << 32;
+
+    // Entries kept while Redis is unreachable before giving up and rebuilding
+    private static final int MAX_PENDING_ENTRIES = 100000;
+
+    private final JedisPool jedisPool;
+    private final Executor executor;
+    private final SkyUserRepository userRepository;
+    private final long bits;
+    private final int hashCount;
+    private final String key;
+    private final RedisCircuitBreaker breaker;
+
+    // Entries skipped while the circuit was open, written on recovery
+    private final Set<String> pendingEntries = ConcurrentHashMap.newKeySet();
+
+    // Entries were lost, the filter must be marked as not built in Redis
+    private volatile boolean rebuildNeeded;
+
+    private volatile boolean ready;
+    private volatile long readyCheckedAt;
+
+    /**
+     * @param expectedUsers Number of users the filter is sized for
+     * @param falsePositiveRate Wanted rate of wrong "maybe" answers at that size
+     */
+    public RedisBloomFilter(JedisPool jedisPool, Executor executor, SkyUserRepository userRepository,
+                            long expectedUsers, double falsePositiveRate) {
+        this(jedisPool, executor, userRepository, expectedUsers, falsePositiveRate, null);
+    }
+
+    public RedisBloomFilter(JedisPool jedisPool, Executor executor, SkyUserRepository userRepository,
+                            long expectedUsers, double falsePositiveRate, RedisCircuitBreaker breaker) {
+        this.jedisPool = jedisPool;
+        this.executor = executor;
+        this.userRepository = userRepository;
+
+        // Every user adds two entries, its UUID and its name
+        double entries = Math.max(1, expectedUsers) * 2.0;
+        double rate = Math.min(0.5, Math.max(1e-6, falsePositiveRate));
+        this.bits = Math.min(MAX_BITS, (long) Math.ceil(-entries * Math.log(rate) / (Math.log(2) * Math.log(2))));
+        this.hashCount = Math.max(1, (int) Math.round(bits / entries * Math.log(2)));
+        this.key = KEY_PREFIX + bits + ":" + hashCount;
+        this.breaker = breaker;
+        if (breaker != null) {
+            breaker.addRecoveryTask(this::writePending);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> mightContainUuid(UUID uuid) {
+        return mightContain(uuidEntry(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> mightContainName(String name) {
+        return mightContain(nameEntry(name));
+    }
+
+    @Override
+    public CompletableFuture<Void> add(UUID uuid, String name) {
+        List<String> entries = new ArrayList<>(2);
+        entries.add(uuidEntry(uuid));
+        if (name != null) {
+            entries.add(nameEntry(name));
+        }
+
+        return write(entries, () -> CompletableFuture.runAsync(() -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                writeEntries(jedis, entries);
+            } catch (Exception e) {
+                throw new CompletionException("Failed to add user to known users: " + uuid, e);
+            }
+        }, executor));
+    }
+
+    /**
+     * Add many users in one round trip
+     */
+    public CompletableFuture<Void> addAll(List<SkyUser> users) {
+        List<String> entries = new ArrayList<>(users.size() * 2);
+        for (SkyUser user : users) {
+            entries.add(uuidEntry(user.getUuid()));
+            if (user.getName() != null) {
+                entries.add(nameEntry(user.getName()));
+            }
+        }
+
+        return write(entries, () -> CompletableFuture.runAsync(() -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                writeEntries(jedis, entries);
+            } catch (Exception e) {
+                throw new CompletionException("Failed to add " + users.size() + " users to known users", e);
+            }
+        }, executor));
+    }
+
+    /**
+     * Build the filter from MySQL unless it exists or another server is building it.
+     * Bits are only ever set, so users added while the build runs are kept.
+     * @return CompletableFuture containing the number of users added, 0 if nothing was built
+     */
+    public CompletableFuture<Long> rebuildIfMissing() {
+        return writePending().thenApplyAsync(v -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                if (isBuilt(jedis)) {
+                    markReady(true);
+                    return false;
+                }
+                // The bitmap may have been evicted, nobody may trust it until it is built
+                jedis.del(getReadyKey());
+                markReady(false);
+                return "OK".equals(jedis.set(getLockKey(), "1", SetParams.setParams().nx().ex(REBUILD_LOCK_SECONDS)));
+            } catch (Exception e) {
+                throw new CompletionException("Failed to check known users", e);
+            }
+        }, executor).thenCompose(acquired -> {
+            if (!acquired) {
+                return CompletableFuture.completedFuture(0L);
+            }
+
+            List<SkyUser> batch = new ArrayList<>();
+            return userRepository.streamAll(user -> {
+                        batch.add(user);
+                        if (batch.size() >= 1000) {
+                            writeBatch(batch);
+                            batch.clear();
+                        }
+                    }, 1000)
+                    .thenApplyAsync(streamed -> {
+                        writeBatch(batch);
+                        try (Jedis jedis = jedisPool.getResource()) {
+                            // Creates the bitmap of a filter built from no users
+                            jedis.setbit(key, bits - 1, jedis.getbit(key, bits - 1));
+                            jedis.set(getReadyKey(), String.valueOf(System.currentTimeMillis()));
+                        }
+                        markReady(true);
+                        LOGGER.info("Built known users filter from " + streamed + " users ("
+                                + (bits / 8 / 1024) + " KB, " + hashCount + " hashes).");
+                        return streamed;
+                    }, executor)
+                    .whenComplete((streamed, throwable) -> {
+                        try (Jedis jedis = jedisPool.getResource()) {
+                            jedis.del(getLockKey());
+                        } catch (Exception e) {
+                            LOGGER.warning("Failed to release known users build lock: " + e.getMessage());
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Whether the filter is built, checked in Redis at most every few seconds
+     */
+    public boolean isReady() {
+        if (rebuildNeeded) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - readyCheckedAt >= READY_REFRESH_MILLIS) {
+            try (Jedis jedis = jedisPool.getResource()) {
+                markReady(isBuilt(jedis));
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * Built means the build completed and the bitmap is still there
+     */
+    private boolean isBuilt(Jedis jedis) {
+        return jedis.exists(getReadyKey(), key) == 2;
+    }
+
+    private CompletableFuture<Boolean> mightContain(String entry) {
+        if (breaker != null) {
+            return breaker.read(() -> check(entry), () -> true);
+        }
+        return check(entry);
+    }
+
+    private CompletableFuture<Boolean> check(String entry) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                if (!isReady()) {
+                    return true;
+                }
+
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<Boolean>> responses = new ArrayList<>(hashCount);
+                for (long offset : offsets(entry)) {
+                    responses.add(pipeline.getbit(key, offset));
+                }
+                pipeline.sync();
+
+                for (Response<Boolean> response : responses) {
+                    if (!response.get()) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (Exception e) {
+                throw new CompletionException("Failed to check known users", e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Run an addition through the circuit breaker, keeping the entries while it
+     * is open. A failed addition marks the filter as not built instead, so the
+     * user about to be stored is never ruled out.
+     */
+    private CompletableFuture<Void> write(List<String> entries, Supplier<CompletableFuture<Void>> call) {
+        CompletableFuture<Void> written;
+        try {
+            written = breaker == null ? call.get() : breaker.write(call, () -> {
+                keepPending(entries);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // E.g. the executor rejected the task
+            written = CompletableFuture.failedFuture(e);
+        }
+
+        return written.exceptionally(throwable -> {
+            requireRebuild();
+            LOGGER.warning("Failed to add to known users, the filter answers \"maybe\" until it is rebuilt: "
+                    + throwable.getMessage());
+            return null;
+        });
+    }
+
+    private void keepPending(Collection<String> entries) {
+        if (rebuildNeeded) {
+            return;
+        }
+        pendingEntries.addAll(entries);
+        if (pendingEntries.size() > MAX_PENDING_ENTRIES) {
+            requireRebuild();
+        }
+    }
+
+    /**
+     * Stop trusting the filter and tell the other servers as soon as Redis takes it
+     */
+    private void requireRebuild() {
+        rebuildNeeded = true;
+        markReady(false);
+        pendingEntries.clear();
+
+        if (breaker != null && !breaker.isClosed()) {
+            // Done by the recovery task
+            return;
+        }
+        try {
+            writePending().exceptionally(throwable -> null);
+        } catch (RuntimeException e) {
+            // Retried by the next build check
+        }
+    }
+
+    /**
+     * Recovery task, write the entries kept while Redis was unreachable
+     * (also run before every build check)
+     */
+    private CompletableFuture<Void> writePending() {
+        if (!rebuildNeeded && pendingEntries.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.runAsync(() -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                if (rebuildNeeded) {
+                    // Not built means "maybe" for everyone until the next build
+                    jedis.del(getReadyKey());
+                    markReady(false);
+                    rebuildNeeded = false;
+                    LOGGER.info("Known users were missed, the filter will be rebuilt.");
+                    return;
+                }
+
+                List<String> entries = new ArrayList<>(pendingEntries);
+                if (!entries.isEmpty()) {
+                    writeEntries(jedis, entries);
+                    pendingEntries.removeAll(entries);
+                }
+            } catch (Exception e) {
+                throw new CompletionException("Failed to add missed known users", e);
+            }
+        }, executor);
+    }
+
+    private void markReady(boolean value) {
+        ready = value;
+        readyCheckedAt = System.currentTimeMillis();
+    }
+
+    private void writeBatch(List<SkyUser> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        try (Jedis jedis = jedisPool.getResource()) {
+            writeUsers(jedis, users);
+        } catch (Exception e) {
+            throw new CompletionException("Failed to write known users batch", e);
+        }
+    }
+
+    private void writeUsers(Jedis jedis, List<SkyUser> users) {
+        Pipeline pipeline = jedis.pipelined();
+        for (SkyUser user : users) {
+            setBits(pipeline, uuidEntry(user.getUuid()));
+            if (user.getName() != null) {
+                setBits(pipeline, nameEntry(user.getName()));
+            }
+        }
+        pipeline.sync();
+    }
+
+    private void writeEntries(Jedis jedis, Collection<String> entries) {
+        Pipeline pipeline = jedis.pipelined();
+        entries.forEach(entry -> setBits(pipeline, entry));
+        pipeline.sync();
+    }
+
+    private void setBits(Pipeline pipeline, String entry) {
+        for (long offset : offsets(entry)) {
+            pipeline.setbit(key, offset, true);
+        }
+    }
+
+    /**
+     * Bit positions of an entry, from two 64-bit hashes (double hashing)
+     */
+    private long[] offsets(String entry) {
+        byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+
+        long[] offsets = new long[hashCount];
+        for (int i = 0; i < hashCount; i++) {
+            offsets[i] = Math.floorMod(h1 + i * h2, bits);
+        }
+        return offsets;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static String uuidEntry(UUID uuid) {
+        return "u:" + uuid;
+    }
+
+    private static String nameEntry(String name) {
+        return "n:" + name.toLowerCase(Locale.ROOT);
+    }
+
+    private String getReadyKey() {
+        return key + ":ready";
+    }
+
+    private String getLockKey() {
+        return key + ":build";
+    }
+}
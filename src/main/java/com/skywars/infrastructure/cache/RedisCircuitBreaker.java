@@ -0,0 +1,260 @@
+package com.skywars.infrastructure.cache;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * RedisCircuitBreaker - Stops calling Redis while it is unreachable
+ *
+ * Calls are given a time limit. After a number of consecutive calls failed
+ * because Redis could not be reached (connection errors, no pool connection,
+ * time limit, saturated executor) the circuit opens: callers get their
+ * fallback at once instead of waiting for a connection, and the server runs
+ * on MySQL alone. Errors Redis answered with do not count.
+ *
+ * While open, Redis is pinged in the background. Once it answers the circuit
+ * is half open: writes go through again while the recovery tasks run (e.g.
+ * dropping entries that missed writes), reads still use the fallback. The
+ * circuit closes when the tasks succeed and opens again when they fail.
+ * The scheduler only starts probes, pings and recovery run on the Redis
+ * executor and never block a scheduler thread.
+ */
+public class RedisCircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisCircuitBreaker.class.getName());
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final JedisPool jedisPool;
+    private final int failureThreshold;
+    private final long callTimeoutMillis;
+    private final long probeIntervalMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private volatile long openedAt;
+
+    private final List<Supplier<CompletableFuture<Void>>> recoveryTasks = new CopyOnWriteArrayList<>();
+    private ScheduledFuture<?> probeTask;
+
+    // Set from a probe's ping until its recovery completed, probes never overlap
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    public RedisCircuitBreaker(JedisPool jedisPool, int failureThreshold, long callTimeoutMillis, long probeIntervalMillis) {
+        this.jedisPool = jedisPool;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.probeIntervalMillis = probeIntervalMillis;
+    }
+
+    /**
+     * Start probing Redis while the circuit is open
+     * @param scheduler Triggers the probes
+     * @param executor Runs the pings
+     */
+    public synchronized void start(ScheduledExecutorService scheduler, Executor executor) {
+        if (probeTask == null) {
+            probeTask = scheduler.scheduleWithFixedDelay(() -> probe(executor),
+                    probeIntervalMillis, probeIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (probeTask != null) {
+            probeTask.cancel(false);
+            probeTask = null;
+        }
+    }
+
+    /**
+     * Register work that must succeed before the circuit closes again
+     */
+    public void addRecoveryTask(Supplier<CompletableFuture<Void>> task) {
+        recoveryTasks.add(task);
+    }
+
+    /**
+     * Run a read, or return the fallback at once unless the circuit is closed
+     */
+    public <T> CompletableFuture<T> read(Supplier<CompletableFuture<T>> call, Supplier<T> fallback) {
+        return state.get() == State.CLOSED ? guard(call) : reject(fallback);
+    }
+
+    /**
+     * Run a write, or return the fallback at once while the circuit is open
+     */
+    public <T> CompletableFuture<T> write(Supplier<CompletableFuture<T>> call, Supplier<T> fallback) {
+        return state.get() != State.OPEN ? guard(call) : reject(fallback);
+    }
+
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Get the time the circuit last opened in epoch millis, 0 if it never did
+     */
+    public long getOpenedAt() {
+        return openedAt;
+    }
+
+    /**
+     * Get the number of times the circuit opened since startup
+     */
+    public long getTripCount() {
+        return trips.get();
+    }
+
+    /**
+     * Get the number of calls answered with their fallback since startup
+     */
+    public long getRejectedCount() {
+        return rejectedCalls.get();
+    }
+
+    private <T> CompletableFuture<T> guard(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            // E.g. the executor rejected the task
+            recordFailure(e);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // A timed out call completes on the JDK's single delay thread: dependents of the returned
+        // future must not block, fall back with exceptionallyCompose rather than join()
+        return future.orTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((result, throwable) -> {
+                    if (throwable == null) {
+                        consecutiveFailures.set(0);
+                    } else {
+                        recordFailure(throwable);
+                    }
+                });
+    }
+
+    private <T> CompletableFuture<T> reject(Supplier<T> fallback) {
+        rejectedCalls.incrementAndGet();
+        return CompletableFuture.completedFuture(fallback.get());
+    }
+
+    private void recordFailure(Throwable throwable) {
+        if (!isUnavailable(throwable)) {
+            return;
+        }
+
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            State current = state.get();
+            if (current != State.OPEN && state.compareAndSet(current, State.OPEN)) {
+                openedAt = System.currentTimeMillis();
+                trips.incrementAndGet();
+                LOGGER.warning("Redis unreachable after " + consecutiveFailures.get()
+                        + " failed calls, cache disabled until it recovers: " + throwable.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ping Redis while open, then run the recovery tasks and close
+     */
+    private void probe(Executor executor) {
+        if (state.get() != State.OPEN || !probing.compareAndSet(false, true)) {
+            return;
+        }
+
+        CompletableFuture<Boolean> ping;
+        try {
+            ping = CompletableFuture.supplyAsync(this::ping, executor);
+        } catch (RuntimeException e) {
+            // Executor saturated, the next probe tries again
+            probing.set(false);
+            return;
+        }
+
+        ping.thenCompose(answered -> answered ? recover() : CompletableFuture.completedFuture(null))
+                .whenComplete((v, throwable) -> probing.set(false));
+    }
+
+    private boolean ping() {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return "PONG".equals(jedis.ping());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Run the recovery tasks half open, closing the circuit once they all succeeded
+     */
+    private CompletableFuture<Void> recover() {
+        if (!state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        consecutiveFailures.set(0);
+
+        CompletableFuture<Void> recovered;
+        try {
+            CompletableFuture<?>[] tasks = recoveryTasks.stream().map(Supplier::get).toArray(CompletableFuture[]::new);
+            recovered = CompletableFuture.allOf(tasks);
+        } catch (RuntimeException e) {
+            recovered = CompletableFuture.failedFuture(e);
+        }
+
+        return recovered.orTimeout(Math.max(callTimeoutMillis, 30000), TimeUnit.MILLISECONDS)
+                .handle((v, throwable) -> {
+                    if (throwable != null) {
+                        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+                        LOGGER.warning("Redis answered but cache recovery failed, retrying: " + throwable.getMessage());
+                    } else if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                        LOGGER.info("Redis reachable again after " + (System.currentTimeMillis() - openedAt) / 1000
+                                + "s, cache enabled.");
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Whether a failure means Redis could not be reached, rather than an answer with an error
+     */
+    private static boolean isUnavailable(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JedisDataException) {
+                return false;
+            }
+            if (cause instanceof JedisException || cause instanceof TimeoutException
+                    || cause instanceof RejectedExecutionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
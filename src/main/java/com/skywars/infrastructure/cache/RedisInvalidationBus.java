@@ -0,0 +1,272 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.application.cache.CacheInvalidationBus;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * RedisInvalidationBus - CacheInvalidationBus over Redis pub/sub
+ *
+ * Changed UUIDs are collected and published once per tick as a single message
+ * "serverId;sequence;uuid:version,uuid:version,...", a UUID changed several
+ * times within a tick is sent once. Every server skips its own messages.
+ * A gap in another server's sequence numbers, or a lost subscription, means
+ * messages were missed and listeners are told to drop everything. The
+ * subscription runs on its own thread and is re-established after a
+ * disconnect with an increasing delay. Publishing runs on the Redis executor,
+ * one tick at a time so messages leave in sequence order.
+ */
+public class RedisInvalidationBus implements CacheInvalidationBus {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisInvalidationBus.class.getName());
+
+    private static final String CHANNEL = "skywars:invalidate";
+
+    // Entries per published message
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private static final long MIN_RETRY_MILLIS = 500;
+    private static final long MAX_RETRY_MILLIS = 30000;
+
+    private final JedisPool jedisPool;
+    private final long publishIntervalMillis;
+    private final String serverId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequence = new AtomicLong();
+
+    // UUIDs waiting for the next publication, with the time of their latest change
+    private final Map<UUID, Long> pending = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Subscriber thread state
+    private final Map<String, Long> lastSequences = new HashMap<>();
+    private boolean everSubscribed;
+    private long retryMillis = MIN_RETRY_MILLIS;
+
+    private volatile boolean running;
+    private volatile JedisPubSub subscription;
+    private Thread subscriberThread;
+    private ScheduledFuture<?> publishTask;
+
+    // Set while a publication waits for or runs on the executor
+    private final AtomicBoolean publishing = new AtomicBoolean();
+
+    public RedisInvalidationBus(JedisPool jedisPool, long publishIntervalMillis) {
+        this.jedisPool = jedisPool;
+        this.publishIntervalMillis = publishIntervalMillis;
+    }
+
+    /**
+     * Start listening and publishing
+     * @param scheduler Triggers the publications
+     * @param executor Runs the publications, they borrow a pool connection
+     */
+    public synchronized void start(ScheduledExecutorService scheduler, Executor executor) {
+        if (running) {
+            return;
+        }
+        running = true;
+
+        subscriberThread = new Thread(this::subscribeLoop, "SkyWars-Invalidation");
+        subscriberThread.setDaemon(true);
+        subscriberThread.start();
+
+        publishTask = scheduler.scheduleAtFixedRate(() -> submitPublish(executor),
+                publishIntervalMillis, publishIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Publish what is still pending and stop listening
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        if (publishTask != null) {
+            publishTask.cancel(false);
+            publishTask = null;
+        }
+        publishPending();
+
+        JedisPubSub current = subscription;
+        if (current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+        if (subscriberThread != null) {
+            subscriberThread.interrupt();
+            subscriberThread = null;
+        }
+    }
+
+    @Override
+    public void publish(UUID uuid) {
+        pending.merge(uuid, System.currentTimeMillis(), Math::max);
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isSubscribed() {
+        JedisPubSub current = subscription;
+        return current != null && current.isSubscribed();
+    }
+
+    /**
+     * Hand the pending UUIDs to the executor, unless the previous tick is still publishing
+     */
+    private void submitPublish(Executor executor) {
+        if (pending.isEmpty() || !publishing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    publishPending();
+                } finally {
+                    publishing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Executor saturated, the UUIDs stay pending for the next tick
+            publishing.set(false);
+        }
+    }
+
+    private void publishPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<UUID, Long>> batch = new ArrayList<>();
+        for (UUID uuid : pending.keySet()) {
+            Long version = pending.remove(uuid);
+            if (version != null) {
+                batch.add(new AbstractMap.SimpleEntry<>(uuid, version));
+            }
+        }
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            for (int start = 0; start < batch.size(); start += MAX_BATCH_SIZE) {
+                List<Map.Entry<UUID, Long>> chunk = batch.subList(start, Math.min(start + MAX_BATCH_SIZE, batch.size()));
+
+                StringBuilder message = new StringBuilder(serverId).append(';')
+                        .append(sequence.incrementAndGet()).append(';');
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (i > 0) {
+                        message.append(',');
+                    }
+                    message.append(chunk.get(i).getKey()).append(':').append(chunk.get(i).getValue());
+                }
+                jedis.publish(CHANNEL, message.toString());
+            }
+        } catch (Exception e) {
+            // Retry on the next tick, sending some UUIDs twice is harmless
+            batch.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), Math::max));
+            LOGGER.warning("Failed to publish " + batch.size() + " cache invalidations: " + e.getMessage());
+        }
+    }
+
+    private void subscribeLoop() {
+        while (running) {
+            JedisPubSub pubSub = new JedisPubSub() {
+                @Override
+                public void onSubscribe(String channel, int subscribedChannels) {
+                    retryMillis = MIN_RETRY_MILLIS;
+                    lastSequences.clear();
+                    if (everSubscribed) {
+                        // Messages published while disconnected are lost
+                        LOGGER.info("Resubscribed to cache invalidations.");
+                        notifyInvalidateAll();
+                    }
+                    everSubscribed = true;
+                }
+
+                @Override
+                public void onMessage(String channel, String message) {
+                    handleMessage(message);
+                }
+            };
+
+            try (Jedis jedis = jedisPool.getResource()) {
+                subscription = pubSub;
+                // Blocks until unsubscribed or disconnected
+                jedis.subscribe(pubSub, CHANNEL);
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                LOGGER.warning("Cache invalidation subscription lost, retrying in " + retryMillis + " ms: " + e.getMessage());
+            }
+
+            if (!running) {
+                break;
+            }
+
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        }
+        subscription = null;
+    }
+
+    private void handleMessage(String message) {
+        String[] parts = message.split(";", 3);
+        if (parts.length < 3 || parts[0].equals(serverId)) {
+            return;
+        }
+
+        try {
+            long messageSequence = Long.parseLong(parts[1]);
+            Long previous = lastSequences.put(parts[0], messageSequence);
+            if (previous != null && messageSequence != previous + 1) {
+                notifyInvalidateAll();
+                return;
+            }
+
+            for (String entry : parts[2].split(",")) {
+                int separator = entry.lastIndexOf(':');
+                UUID uuid = UUID.fromString(entry.substring(0, separator));
+                long version = Long.parseLong(entry.substring(separator + 1));
+                for (Listener listener : listeners) {
+                    notifySafely(() -> listener.onInvalidate(uuid, version));
+                }
+            }
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            LOGGER.warning("Ignoring malformed cache invalidation: " + e.getMessage());
+        }
+    }
+
+    private void notifyInvalidateAll() {
+        for (Listener listener : listeners) {
+            notifySafely(listener::onInvalidateAll);
+        }
+    }
+
+    private void notifySafely(Runnable notification) {
+        try {
+            notification.run();
+        } catch (RuntimeException e) {
+            LOGGER.warning("Cache invalidation listener failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.leaderboard.LeaderboardCursor;
+import com.skywars.domain.leaderboard.LeaderboardEntry;
+import com.skywars.domain.leaderboard.LeaderboardPeriod;
+import com.skywars.domain.leaderboard.LeaderboardStat;
+import com.skywars.domain.repository.LeaderboardRepository;
+import com.skywars.domain.repository.SkyUserRepository;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.resps.Tuple;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.IsoFields;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * RedisLeaderboardRepository - Leaderboards kept in Redis sorted sets
+ *
+ * Every statistic has an all-time sorted set and one per day and ISO week
+ * (UTC), with the player UUIDs as members. Scores are stored negated, so the
+ * ascending order of a sorted set (score, then member) is the leaderboard
+ * order: score descending, then UUID ascending, the same as MySQL.
+ *
+ * Stat changes are added with ZINCRBY, the only way scores of listed users
+ * change, as saves never change an existing user's counters in MySQL either.
+ * Saved users missing from the sets (new users) are added with ZADD NX, which
+ * never overwrites a score. The all-time sets are built from MySQL by
+ * streaming every user; until a build has completed they are not used. They
+ * can be rebuilt periodically, which corrects changes that failed to reach
+ * Redis or were made while the previous build ran. Window sets only hold
+ * changes made while they existed and expire some time after their window.
+ */
+public class RedisLeaderboardRepository implements LeaderboardRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisLeaderboardRepository.class.getName());
+
+    private static final String KEY_PREFIX = "skywars:lb:";
+
+    // Present once the all-time sets were built from MySQL
+    private static final String READY_KEY = "skywars:lb:ready";
+
+    // Held by the server building the all-time sets
+    private static final String REBUILD_LOCK_KEY = "skywars:lb:rebuild";
+    private static final long REBUILD_LOCK_SECONDS = 600;
+
+    // How long window sets are kept after their window started
+    private static final long DAILY_TTL_SECONDS = 2 * 24 * 3600;
+    private static final long WEEKLY_TTL_SECONDS = 14 * 24 * 3600;
+
+    // How long a server trusts the last readiness check
+    private static final long READY_REFRESH_MILLIS = 5000;
+
+    private final JedisPool jedisPool;
+    private final Executor executor;
+    private final SkyUserRepository userRepository;
+    private final int batchSize;
+
+    private volatile boolean ready;
+    private volatile long readyCheckedAt;
+
+    public RedisLeaderboardRepository(JedisPool jedisPool, Executor executor, SkyUserRepository userRepository) {
+        this(jedisPool, executor, userRepository, 1000);
+    }
+
+    public RedisLeaderboardRepository(JedisPool jedisPool, Executor executor, SkyUserRepository userRepository,
+                                      int batchSize) {
+        this.jedisPool = jedisPool;
+        this.executor = executor;
+        this.userRepository = userRepository;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public CompletableFuture<List<LeaderboardEntry>> getPage(LeaderboardStat stat, LeaderboardPeriod period, long offset, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (period == LeaderboardPeriod.ALL_TIME && !isReady()) {
+                return Collections.<Tuple>emptyList();
+            }
+            try (Jedis jedis = jedisPool.getResource()) {
+                return jedis.zrangeWithScores(getKey(stat, period), offset, offset + limit - 1);
+            } catch (Exception e) {
+                throw new CompletionException("Failed to get " + stat + " leaderboard page", e);
+            }
+        }, executor).thenCompose(tuples -> toEntries(tuples, offset));
+    }
+
+    @Override
+    public CompletableFuture<List<LeaderboardEntry>> getAround(UUID uuid, LeaderboardStat stat, LeaderboardPeriod period, int radius) {
+        long[] start = new long[1];
+        return CompletableFuture.supplyAsync(() -> {
+            if (period == LeaderboardPeriod.ALL_TIME && !isReady()) {
+                return Collections.<Tuple>emptyList();
+            }
+            try (Jedis jedis = jedisPool.getResource()) {
+                String key = getKey(stat, period);
+                Long rank = jedis.zrank(key, uuid.toString());
+                if (rank == null) {
+                    return Collections.<Tuple>emptyList();
+                }
+                start[0] = Math.max(0, rank - radius);
+                return jedis.zrangeWithScores(key, start[0], rank + radius);
+            } catch (Exception e) {
+                throw new CompletionException("Failed to get " + stat + " leaderboard around: " + uuid, e);
+            }
+        }, executor).thenCompose(tuples -> toEntries(tuples, start[0]));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Long>> rankOf(UUID uuid, LeaderboardStat stat, LeaderboardPeriod period) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (period == LeaderboardPeriod.ALL_TIME && !isReady()) {
+                // Not ranked yet is not the same as not ranked
+                throw new CompletionException("The all-time leaderboards are not built yet", null);
+            }
+            try (Jedis jedis = jedisPool.getResource()) {
+                String key = getKey(stat, period);
+                Double score = jedis.zscore(key, uuid.toString());
+                if (score == null) {
+                    return Optional.<Long>empty();
+                }
+                // Players with a strictly higher score have a strictly lower stored score
+                return Optional.of(jedis.zcount(key, "-inf", "(" + formatScore(score)) + 1);
+            } catch (Exception e) {
+                throw new CompletionException("Failed to get " + stat + " rank of user: " + uuid, e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Get the UUIDs of an all-time leaderboard page in keyset order
+     * @return the UUIDs, or empty if the all-time sets are not built
+     */
+    public CompletableFuture<Optional<List<UUID>>> findPage(LeaderboardStat stat, LeaderboardCursor after, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!isReady()) {
+                return Optional.<List<UUID>>empty();
+            }
+
+            try (Jedis jedis = jedisPool.getResource()) {
+                String key = getKey(stat, LeaderboardPeriod.ALL_TIME);
+                long start = 0;
+
+                if (after != null) {
+                    String member = after.getUuid().toString();
+                    double cursorScore = -after.getScore();
+
+                    Pipeline pipeline = jedis.pipelined();
+                    Response<Double> score = pipeline.zscore(key, member);
+                    Response<Long> rank = pipeline.zrank(key, member);
+                    Response<Long> better = pipeline.zcount(key, "-inf", "(" + formatScore(cursorScore));
+                    pipeline.sync();
+
+                    if (score.get() != null && score.get() == cursorScore && rank.get() != null) {
+                        start = rank.get() + 1;
+                    } else {
+                        // The cursor's player moved since, restart at its old score (rows may repeat)
+                        start = better.get();
+                    }
+                }
+
+                List<UUID> uuids = new ArrayList<>(limit);
+                for (String member : jedis.zrange(key, start, start + limit - 1)) {
+                    uuids.add(UUID.fromString(member));
+                }
+                return Optional.of(uuids);
+            } catch (Exception e) {
+                throw new CompletionException("Failed to get " + stat + " leaderboard page", e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Add stat changes to the all-time and current window leaderboards
+     */
+    public CompletableFuture<Void> record(Map<UUID, StatDelta> deltas) {
+        return CompletableFuture.runAsync(() -> {
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+            try (Jedis jedis = jedisPool.getResource()) {
+                Pipeline pipeline = jedis.pipelined();
+                Set<String> touchedWindows = new HashSet<>();
+
+                deltas.forEach((uuid, delta) -> {
+                    String member = uuid.toString();
+                    for (LeaderboardStat stat : LeaderboardStat.values()) {
+                        int change = stat.getChange(delta);
+                        if (change == 0) {
+                            continue;
+                        }
+                        for (LeaderboardPeriod period : LeaderboardPeriod.values()) {
+                            String key = getKey(stat, period, today);
+                            pipeline.zincrby(key, -change, member);
+                            if (period != LeaderboardPeriod.ALL_TIME) {
+                                touchedWindows.add(key);
+                            }
+                        }
+                    }
+                });
+
+                for (String key : touchedWindows) {
+                    pipeline.expire(key, key.contains(":daily:") ? DAILY_TTL_SECONDS : WEEKLY_TTL_SECONDS);
+                }
+                pipeline.sync();
+            } catch (Exception e) {
+                throw new CompletionException("Failed to record " + deltas.size() + " leaderboard changes", e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Add saved users that are not on the all-time leaderboards yet, listed users keep their score
+     */
+    public CompletableFuture<Void> addMissing(Collection<SkyUser> users) {
+        return CompletableFuture.runAsync(() -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                Pipeline pipeline = jedis.pipelined();
+                for (LeaderboardStat stat : LeaderboardStat.values()) {
+                    Map<String, Double> scores = new HashMap<>();
+                    users.forEach(user -> scores.put(user.getUuid().toString(), (double) -stat.getScore(user)));
+                    if (!scores.isEmpty()) {
+                        pipeline.zadd(getKey(stat, LeaderboardPeriod.ALL_TIME), scores, ZAddParams.zAddParams().nx());
+                    }
+                }
+                pipeline.sync();
+            } catch (Exception e) {
+                throw new CompletionException("Failed to add " + users.size() + " users to leaderboards", e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Remove a deleted user from the all-time and current window leaderboards
+     */
+    public CompletableFuture<Void> remove(UUID uuid) {
+        return CompletableFuture.runAsync(() -> {
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+            try (Jedis jedis = jedisPool.getResource()) {
+                Pipeline pipeline = jedis.pipelined();
+                for (LeaderboardStat stat : LeaderboardStat.values()) {
+                    for (LeaderboardPeriod period : LeaderboardPeriod.values()) {
+                        pipeline.zrem(getKey(stat, period, today), uuid.toString());
+                    }
+                }
+                pipeline.sync();
+            } catch (Exception e) {
+                throw new CompletionException("Failed to remove user from leaderboards: " + uuid, e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Build the all-time leaderboards from MySQL unless they exist or another server is building them.
+     * Users are streamed into temporary sets which then replace the live ones.
+     * Changes made while the build runs may be missing until the next build.
+     * @return CompletableFuture containing the number of users added, 0 if nothing was built
+     */
+    public CompletableFuture<Long> rebuildIfMissing() {
+        return rebuildIfMissing(0);
+    }
+
+    /**
+     * Build the all-time leaderboards from MySQL, like {@link #rebuildIfMissing()},
+     * also when the last build is older than the given age
+     * @param maxAgeSeconds Age after which the leaderboards are rebuilt, 0 to only build missing ones
+     */
+    public CompletableFuture<Long> rebuildIfMissing(long maxAgeSeconds) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                String builtAt = jedis.get(READY_KEY);
+                if (builtAt != null && !isOutdated(builtAt, maxAgeSeconds)) {
+                    markReady(true);
+                    return false;
+                }
+                // Outdated sets are still served while they are rebuilt
+                markReady(builtAt != null);
+                if (!"OK".equals(jedis.set(REBUILD_LOCK_KEY, "1", SetParams.setParams().nx().ex(REBUILD_LOCK_SECONDS)))) {
+                    return false;
+                }
+                // Leftovers of an interrupted build
+                for (LeaderboardStat stat : LeaderboardStat.values()) {
+                    jedis.unlink(getBuildKey(stat));
+                }
+                return true;
+            } catch (Exception e) {
+                throw new CompletionException("Failed to check leaderboards", e);
+            }
+        }, executor).thenCompose(acquired -> {
+            if (!acquired) {
+                return CompletableFuture.completedFuture(0L);
+            }
+
+            List<SkyUser> batch = new ArrayList<>(batchSize);
+            return userRepository.streamAll(user -> {
+                        batch.add(user);
+                        if (batch.size() >= batchSize) {
+                            writeBuildBatch(batch);
+                            batch.clear();
+                        }
+                    }, batchSize)
+                    .thenApplyAsync(streamed -> {
+                        writeBuildBatch(batch);
+                        publishBuild();
+                        LOGGER.info("Built leaderboards from " + streamed + " users.");
+                        return streamed;
+                    }, executor)
+                    .whenComplete((streamed, throwable) -> {
+                        try (Jedis jedis = jedisPool.getResource()) {
+                            jedis.del(REBUILD_LOCK_KEY);
+                        } catch (Exception e) {
+                            LOGGER.warning("Failed to release leaderboard build lock: " + e.getMessage());
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Whether the all-time leaderboards are built, checked in Redis at most every few seconds
+     */
+    public boolean isReady() {
+        long now = System.currentTimeMillis();
+        if (now - readyCheckedAt >= READY_REFRESH_MILLIS) {
+            try (Jedis jedis = jedisPool.getResource()) {
+                markReady(jedis.exists(READY_KEY));
+            }
+        }
+        return ready;
+    }
+
+    private static boolean isOutdated(String builtAt, long maxAgeSeconds) {
+        if (maxAgeSeconds <= 0) {
+            return false;
+        }
+        try {
+            return System.currentTimeMillis() - Long.parseLong(builtAt) > maxAgeSeconds * 1000;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private void markReady(boolean value) {
+        ready = value;
+        readyCheckedAt = System.currentTimeMillis();
+    }
+
+    private void writeBuildBatch(List<SkyUser> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (LeaderboardStat stat : LeaderboardStat.values()) {
+                Map<String, Double> scores = new HashMap<>();
+                users.forEach(user -> scores.put(user.getUuid().toString(), (double) -stat.getScore(user)));
+                pipeline.zadd(getBuildKey(stat), scores);
+            }
+            pipeline.sync();
+        } catch (Exception e) {
+            throw new CompletionException("Failed to write leaderboard build batch", e);
+        }
+    }
+
+    private void publishBuild() {
+        try (Jedis jedis = jedisPool.getResource()) {
+            for (LeaderboardStat stat : LeaderboardStat.values()) {
+                String buildKey = getBuildKey(stat);
+                if (jedis.exists(buildKey)) {
+                    jedis.rename(buildKey, getKey(stat, LeaderboardPeriod.ALL_TIME));
+                } else {
+                    jedis.unlink(getKey(stat, LeaderboardPeriod.ALL_TIME));
+                }
+            }
+            jedis.set(READY_KEY, String.valueOf(System.currentTimeMillis()));
+            markReady(true);
+        } catch (Exception e) {
+            throw new CompletionException("Failed to publish built leaderboards", e);
+        }
+    }
+
+    /**
+     * Resolve names and turn sorted set rows into entries starting at the given offset
+     */
+    private CompletableFuture<List<LeaderboardEntry>> toEntries(List<Tuple> tuples, long offset) {
+        if (tuples.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        List<UUID> uuids = new ArrayList<>(tuples.size());
+        tuples.forEach(tuple -> uuids.add(UUID.fromString(tuple.getElement())));
+
+        return userRepository.findAllByUuids(uuids)
+                .thenApply(users -> {
+                    List<LeaderboardEntry> entries = new ArrayList<>(tuples.size());
+                    for (int i = 0; i < tuples.size(); i++) {
+                        SkyUser user = users.get(uuids.get(i));
+                        String name = user != null ? user.getName() : uuids.get(i).toString().substring(0, 8);
+                        entries.add(new LeaderboardEntry(offset + i + 1, uuids.get(i), name,
+                                (long) -tuples.get(i).getScore()));
+                    }
+                    return entries;
+                });
+    }
+
+    private static String getKey(LeaderboardStat stat, LeaderboardPeriod period) {
+        return getKey(stat, period, LocalDate.now(ZoneOffset.UTC));
+    }
+
+    private static String getKey(LeaderboardStat stat, LeaderboardPeriod period, LocalDate today) {
+        String key = KEY_PREFIX + stat.name().toLowerCase(Locale.ROOT);
+        return switch (period) {
+            case ALL_TIME -> key;
+            case DAILY -> key + ":daily:" + today;
+            case WEEKLY -> key + ":weekly:" + today.get(IsoFields.WEEK_BASED_YEAR)
+                    + "-W" + today.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+        };
+    }
+
+    private static String getBuildKey(LeaderboardStat stat) {
+        return getKey(stat, LeaderboardPeriod.ALL_TIME) + ":build";
+    }
+
+    private static String formatScore(double score) {
+        return String.valueOf((long) score);
+    }
+}
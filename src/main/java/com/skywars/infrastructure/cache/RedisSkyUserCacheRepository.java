@@ -2,113 +2,472 @@ package com.skywars.infrastructure.cache;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
 import com.skywars.domain.repository.SkyUserCacheRepository;
 import com.skywars.infrastructure.util.JsonSerializer;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * RedisSkyUserCacheRepository - Redis implementation of SkyUserCacheRepository
  * 
- * This class handles all cache operations using Redis with Jackson JSON serialization
- * for fast data access and reduced database load.
+ * This class handles all cache operations using Redis for fast data access and
+ * reduced database load. Users are stored either as a hash per user, whose
+ * counters are updated in place with HINCRBY and whose statistics can be read
+ * without the cosmetics, or as a single Jackson JSON string (the old layout).
+ * In hash mode old JSON keys are converted to hashes when they are read.
+ * 
+ * Cached UUIDs are also kept in a sorted set scored by expiry time, so the
+ * number of cached users can be read without walking the keyspace. Expired
+ * members are removed in small batches by {@link #pruneKeyIndex()}.
+ * 
+ * Keys are namespaced by a generation number shared through Redis
+ * (skyuser:<generation>:<uuid>, generation 0 being the unversioned
+ * skyuser:<uuid>). Clearing the cache only increments the generation, the
+ * old keys are no longer read and expire through their TTL. Servers pick up
+ * a new generation within a second.
+ * 
+ * Default TTLs are shortened by a random share (TTL jitter) so users cached
+ * together, e.g. by a bulk load, do not all expire at the same moment.
+ * {@link #getEntry(UUID, long)} reads the remaining TTL with the user and
+ * flags it for refresh with a probability that grows as expiry approaches
+ * (XFetch: refresh when recompute * beta * -ln(random) reaches the remaining TTL),
+ * so hot users are reloaded by one reader before they expire instead of by
+ * all readers after.
  */
 public class RedisSkyUserCacheRepository implements SkyUserCacheRepository {
     
+    /**
+     * How users are stored under their key
+     */
+    public enum StorageFormat {
+        // One hash per user with a field per stat
+        HASH,
+        // One JSON string per user
+        JSON;
+        
+        public static StorageFormat fromString(String value, StorageFormat defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return defaultValue;
+            }
+        }
+    }
+    
     private final JedisPool jedisPool;
     private final Executor executor;
     private final long defaultTtlSeconds;
+    private final StorageFormat storageFormat;
+    
+    // Largest share of the default TTL randomly cut off, 0 for exact TTLs
+    private final double ttlJitter;
+    
+    // XFetch beta, higher refreshes earlier, 0 disables early refresh
+    private final double earlyRefreshBeta;
+    
+    // SHA1 of the delta script once loaded into Redis
+    private volatile String applyDeltaSha;
+    
+    private volatile long generation;
+    private volatile long generationCheckedAt;
+    
+    private final CacheMetrics metrics = new CacheMetrics();
     
     private static final String KEY_PREFIX = "skyuser:";
     private static final String STATS_KEY = "skywars:stats";
     
+    // Sorted set of cached UUIDs per generation, scored by the epoch millis their key expires at
+    private static final String INDEX_KEY = "skywars:cache:keys";
+    
+    // Current key generation, missing means generation 0
+    private static final String GENERATION_KEY = "skywars:cache:generation";
+    
+    // How long a server keeps using the generation it read last
+    private static final long GENERATION_REFRESH_MILLIS = 1000;
+    
+    // Maximum number of keys per MGET or pipeline flush
+    private static final int BULK_CHUNK_SIZE = 500;
+    
+    // Keys requested per SCAN call
+    private static final int SCAN_BATCH_SIZE = 500;
+    
+    // Expired index members removed per script call, and calls per prune run
+    private static final int INDEX_PRUNE_BATCH_SIZE = 1000;
+    private static final int INDEX_PRUNE_MAX_BATCHES = 10;
+    
+    // Atomic, so a member refreshed in the meantime is not removed
+    private static final String PRUNE_INDEX_SCRIPT = String.join("\n",
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])",
+            "if #expired > 0 then redis.call('ZREM', KEYS[1], unpack(expired)) end",
+            "return #expired");
+    
     public RedisSkyUserCacheRepository(JedisPool jedisPool, Executor executor, long defaultTtlSeconds) {
+        this(jedisPool, executor, defaultTtlSeconds, StorageFormat.JSON);
+    }
+    
+    public RedisSkyUserCacheRepository(JedisPool jedisPool, Executor executor, long defaultTtlSeconds,
+                                       StorageFormat storageFormat) {
+        this(jedisPool, executor, defaultTtlSeconds, storageFormat, 0.0, 0.0);
+    }
+    
+    public RedisSkyUserCacheRepository(JedisPool jedisPool, Executor executor, long defaultTtlSeconds,
+                                       StorageFormat storageFormat, double ttlJitter, double earlyRefreshBeta) {
         this.jedisPool = jedisPool;
         this.executor = executor;
         this.defaultTtlSeconds = defaultTtlSeconds;
+        this.storageFormat = storageFormat;
+        this.ttlJitter = Math.max(0.0, Math.min(ttlJitter, 1.0));
+        this.earlyRefreshBeta = Math.max(0.0, earlyRefreshBeta);
     }
     
     @Override
     public CompletableFuture<Optional<SkyUser>> get(UUID uuid) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
+            long start = System.nanoTime();
+            try (Jedis jedis = getJedis()) {
+                return recordLookup(readUser(jedis, uuid), start);
+            } catch (Exception e) {
+                metrics.recordError();
+                throw new CompletionException("Failed to get user from cache: " + uuid, e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<CacheEntry> getEntry(UUID uuid, long recomputeMillis) {
+        if (earlyRefreshBeta <= 0 || recomputeMillis <= 0) {
+            return get(uuid).thenApply(user -> new CacheEntry(user, false));
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try (Jedis jedis = getJedis()) {
                 String key = getKey(uuid);
-                String json = jedis.get(key);
                 
-                if (json != null) {
-                    try {
-                        SkyUser user = JsonSerializer.deserialize(json, SkyUser.class);
-                        return Optional.of(user);
-                    } catch (JsonProcessingException e) {
-                        // Invalid JSON in cache, remove it
-                        jedis.del(key);
-                        System.err.println("Invalid JSON in cache for user " + uuid + ", removed: " + e.getMessage());
-                        return Optional.<SkyUser>empty();
+                // Value and remaining TTL in one round trip
+                Pipeline pipeline = jedis.pipelined();
+                Response<Map<String, String>> hash = storageFormat == StorageFormat.HASH ? pipeline.hgetAll(key) : null;
+                Response<String> json = storageFormat == StorageFormat.JSON ? pipeline.get(key) : null;
+                Response<Long> ttlMillis = pipeline.pttl(key);
+                pipeline.sync();
+                
+                Optional<SkyUser> user;
+                try {
+                    user = hash != null ? decodeHash(jedis, uuid, hash.get()) : decodeJson(jedis, uuid, json.get());
+                } catch (JedisDataException e) {
+                    if (!isWrongType(e)) {
+                        throw e;
                     }
-                } else {
-                    return Optional.<SkyUser>empty();
+                    user = hash != null ? migrateJsonKey(jedis, uuid) : evictHash(jedis, uuid);
                 }
+                
+                recordLookup(user, start);
+                return new CacheEntry(user, isRefreshDue(ttlMillis.get(), recomputeMillis));
             } catch (Exception e) {
+                metrics.recordError();
                 throw new CompletionException("Failed to get user from cache: " + uuid, e);
             }
         }, executor);
     }
     
+    @Override
+    public CompletableFuture<Optional<SkyUser>> getStats(UUID uuid) {
+        if (storageFormat == StorageFormat.JSON) {
+            return get(uuid);
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try (Jedis jedis = getJedis()) {
+                String key = getKey(uuid);
+                try {
+                    List<String> values = jedis.hmget(key, SkyUserHashCodec.STAT_FIELDS);
+                    return recordLookup(Optional.ofNullable(SkyUserHashCodec.fromStatFields(uuid, values)), start);
+                } catch (JedisDataException e) {
+                    if (!isWrongType(e)) {
+                        throw e;
+                    }
+                    return recordLookup(migrateJsonKey(jedis, uuid), start);
+                }
+            } catch (Exception e) {
+                metrics.recordError();
+                throw new CompletionException("Failed to get user stats from cache: " + uuid, e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> getAll(Collection<UUID> uuids) {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<UUID, SkyUser> users = new HashMap<>();
+            if (uuids.isEmpty()) {
+                return users;
+            }
+            
+            long startNanos = System.nanoTime();
+            List<UUID> uuidList = new ArrayList<>(uuids);
+            try (Jedis jedis = getJedis()) {
+                for (int start = 0; start < uuidList.size(); start += BULK_CHUNK_SIZE) {
+                    List<UUID> chunk = uuidList.subList(start, Math.min(start + BULK_CHUNK_SIZE, uuidList.size()));
+                    String[] keys = chunk.stream().map(this::getKey).toArray(String[]::new);
+                    
+                    if (storageFormat == StorageFormat.HASH) {
+                        readHashChunk(jedis, chunk, users);
+                        continue;
+                    }
+                    
+                    List<String> values = jedis.mget(keys);
+                    for (int i = 0; i < keys.length; i++) {
+                        String json = values.get(i);
+                        if (json == null) {
+                            continue;
+                        }
+                        
+                        try {
+                            users.put(chunk.get(i), JsonSerializer.deserialize(json, SkyUser.class));
+                        } catch (JsonProcessingException e) {
+                            // Invalid JSON in cache, remove it
+                            evict(jedis, chunk.get(i));
+                            System.err.println("Invalid JSON in cache for user " + chunk.get(i) + ", removed: " + e.getMessage());
+                        }
+                    }
+                }
+                
+                metrics.recordHits(users.size());
+                metrics.recordMisses(uuidList.size() - users.size());
+                metrics.recordRead(startNanos);
+                return users;
+            } catch (Exception e) {
+                metrics.recordError();
+                throw new CompletionException("Failed to get " + uuids.size() + " users from cache", e);
+            }
+        }, executor);
+    }
+    
     @Override
     public CompletableFuture<Void> put(SkyUser user) {
-        return put(user, defaultTtlSeconds);
+        return put(user, jitter(defaultTtlSeconds));
     }
     
     @Override
     public CompletableFuture<Void> put(SkyUser user, long ttlSeconds) {
         return CompletableFuture.runAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
-                String key = getKey(user.getUuid());
-                String json = JsonSerializer.serialize(user);
-                
-                if (ttlSeconds > 0) {
-                    jedis.setex(key, (int) ttlSeconds, json);
-                } else {
-                    jedis.set(key, json);
-                }
-                
-                // Update cache statistics
-                updateCacheStats(jedis, "put");
-                
+            long start = System.nanoTime();
+            try (Jedis jedis = getJedis()) {
+                writeUser(jedis, user, ttlSeconds);
+                metrics.recordPuts(1);
+                metrics.recordWrite(start);
             } catch (JsonProcessingException e) {
+                metrics.recordError();
                 throw new CompletionException("Failed to serialize user to JSON: " + user.getUuid(), e);
             } catch (Exception e) {
+                metrics.recordError();
                 throw new CompletionException("Failed to put user in cache: " + user.getUuid(), e);
             }
         }, executor);
     }
     
     @Override
-    public CompletableFuture<Void> remove(UUID uuid) {
+    public CompletableFuture<Void> putAll(Collection<SkyUser> users) {
         return CompletableFuture.runAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
+            if (users.isEmpty()) {
+                return;
+            }
+            
+            long start = System.nanoTime();
+            try (Jedis jedis = getJedis()) {
+                Pipeline pipeline = jedis.pipelined();
+                Map<SkyUser, Response<Long>> hashWrites = new LinkedHashMap<>();
+                int queued = 0;
+                
+                for (SkyUser user : users) {
+                    String key = getKey(user.getUuid());
+                    long ttlSeconds = jitter(defaultTtlSeconds);
+                    try {
+                        if (storageFormat == StorageFormat.HASH) {
+                            hashWrites.put(user, pipeline.hset(key, SkyUserHashCodec.toHash(user)));
+                            if (ttlSeconds > 0) {
+                                pipeline.expire(key, ttlSeconds);
+                            }
+                        } else {
+                            String json = JsonSerializer.serialize(user);
+                            if (ttlSeconds > 0) {
+                                pipeline.setex(key, (int) ttlSeconds, json);
+                            } else {
+                                pipeline.set(key, json);
+                            }
+                        }
+                        pipeline.zadd(getIndexKey(), expiresAt(ttlSeconds), user.getUuid().toString());
+                    } catch (JsonProcessingException e) {
+                        System.err.println("Failed to serialize user to JSON: " + user.getUuid() + ": " + e.getMessage());
+                        continue;
+                    }
+                    
+                    if (++queued % BULK_CHUNK_SIZE == 0) {
+                        pipeline.sync();
+                    }
+                }
+                
+                pipeline.sync();
+                
+                // Keys still holding an old JSON string could not be written as a hash
+                for (Map.Entry<SkyUser, Response<Long>> write : hashWrites.entrySet()) {
+                    try {
+                        write.getValue().get();
+                    } catch (JedisDataException e) {
+                        if (!isWrongType(e)) {
+                            throw e;
+                        }
+                        writeUser(jedis, write.getKey(), jitter(defaultTtlSeconds));
+                    }
+                }
+                
+                metrics.recordPuts(queued);
+                metrics.recordWrite(start);
+            } catch (Exception e) {
+                metrics.recordError();
+                throw new CompletionException("Failed to put " + users.size() + " users in cache", e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try (Jedis jedis = getJedis()) {
+                if (storageFormat == StorageFormat.JSON) {
+                    // A JSON copy cannot be changed in place
+                    evict(jedis, uuid);
+                    metrics.recordWrite(start);
+                    return false;
+                }
+                
                 String key = getKey(uuid);
-                jedis.del(key);
+                List<String> keys = Collections.singletonList(key);
+                List<String> args = SkyUserHashCodec.deltaArgs(delta);
+                Object result;
+                try {
+                    result = jedis.evalsha(getApplyDeltaSha(jedis), keys, args);
+                } catch (JedisNoScriptException e) {
+                    // Script cache was flushed or Redis restarted
+                    applyDeltaSha = null;
+                    result = jedis.evalsha(getApplyDeltaSha(jedis), keys, args);
+                }
+                metrics.recordWrite(start);
+                return Long.valueOf(1).equals(result);
+            } catch (Exception e) {
+                metrics.recordError();
+                throw new CompletionException("Failed to apply stat change to cached user: " + uuid, e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        return CompletableFuture.runAsync(() -> {
+            if (deltas.isEmpty()) {
+                return;
+            }
+            
+            long start = System.nanoTime();
+            try (Jedis jedis = getJedis()) {
+                if (storageFormat == StorageFormat.JSON) {
+                    // JSON copies cannot be changed in place
+                    unlinkUsers(jedis, deltas.keySet());
+                    metrics.recordEvictions(deltas.size());
+                    metrics.recordWrite(start);
+                    return;
+                }
                 
-                // Update cache statistics
-                updateCacheStats(jedis, "remove");
+                // Load the script right before pipelining, a pipeline cannot retry on NOSCRIPT
+                String sha = jedis.scriptLoad(SkyUserHashCodec.APPLY_DELTA_SCRIPT);
+                applyDeltaSha = sha;
                 
+                Pipeline pipeline = jedis.pipelined();
+                int queued = 0;
+                for (Map.Entry<UUID, StatDelta> entry : deltas.entrySet()) {
+                    pipeline.evalsha(sha, Collections.singletonList(getKey(entry.getKey())),
+                            SkyUserHashCodec.deltaArgs(entry.getValue()));
+                    
+                    if (++queued % BULK_CHUNK_SIZE == 0) {
+                        pipeline.sync();
+                    }
+                }
+                pipeline.sync();
+                metrics.recordWrite(start);
+            } catch (Exception e) {
+                metrics.recordError();
+                throw new CompletionException("Failed to apply stat changes to " + deltas.size() + " cached users", e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Void> remove(UUID uuid) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            try (Jedis jedis = getJedis()) {
+                unlinkUser(jedis, uuid);
+                metrics.recordRemoves(1);
+                metrics.recordWrite(start);
             } catch (Exception e) {
+                metrics.recordError();
                 throw new CompletionException("Failed to remove user from cache: " + uuid, e);
             }
         }, executor);
     }
     
+    @Override
+    public CompletableFuture<Void> removeAll(Collection<UUID> uuids) {
+        if (uuids.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            try (Jedis jedis = getJedis()) {
+                unlinkUsers(jedis, uuids);
+                metrics.recordRemoves(uuids.size());
+                metrics.recordWrite(start);
+            } catch (Exception e) {
+                metrics.recordError();
+                throw new CompletionException("Failed to remove " + uuids.size() + " users from cache", e);
+            }
+        }, executor);
+    }
+    
     @Override
     public CompletableFuture<Boolean> exists(UUID uuid) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
+            try (Jedis jedis = getJedis()) {
                 String key = getKey(uuid);
                 return jedis.exists(key);
             } catch (Exception e) {
@@ -120,15 +479,22 @@ public class RedisSkyUserCacheRepository implements SkyUserCacheRepository {
     @Override
     public CompletableFuture<Void> clear() {
         return CompletableFuture.runAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
-                // Get all keys with our prefix
-                var keys = jedis.keys(KEY_PREFIX + "*");
-                if (!keys.isEmpty()) {
-                    jedis.del(keys.toArray(new String[0]));
+            try (Jedis jedis = getJedis()) {
+                // Move every server to a fresh namespace, the old keys are no longer read
+                long next = jedis.incr(GENERATION_KEY);
+                long previous = next - 1;
+                generation = next;
+                generationCheckedAt = System.currentTimeMillis();
+                
+                jedis.unlink(getIndexKey(previous));
+                
+                // Without a TTL the old keys would never expire, delete them in small batches
+                if (defaultTtlSeconds <= 0) {
+                    unlinkNamespace(jedis, previous);
                 }
                 
                 // Reset cache statistics
-                jedis.del(STATS_KEY);
+                jedis.unlink(STATS_KEY);
                 
             } catch (Exception e) {
                 throw new CompletionException("Failed to clear cache", e);
@@ -139,10 +505,9 @@ public class RedisSkyUserCacheRepository implements SkyUserCacheRepository {
     @Override
     public CompletableFuture<CacheInfo> getInfo() {
         return CompletableFuture.supplyAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
-                // Get number of keys with our prefix
-                var keys = jedis.keys(KEY_PREFIX + "*");
-                long totalKeys = keys.size();
+            try (Jedis jedis = getJedis()) {
+                // Users whose key has not expired yet, expired ones are pruned in the background
+                long totalKeys = jedis.zcount(getIndexKey(), "(" + System.currentTimeMillis(), "+inf");
                 
                 // Get memory usage (approximate)
                 String memoryInfo = jedis.info("memory");
@@ -151,34 +516,102 @@ public class RedisSkyUserCacheRepository implements SkyUserCacheRepository {
                 // Check connection
                 boolean connected = "PONG".equals(jedis.ping());
                 
-                return new CacheInfo(totalKeys, usedMemory, connected);
+                CacheStats clusterStats = CacheMetrics.fromHash(jedis.hgetAll(STATS_KEY));
+                return new CacheInfo(totalKeys, usedMemory, connected, metrics.snapshot(), clusterStats);
                 
             } catch (Exception e) {
                 // Return disconnected info if error occurs
-                return new CacheInfo(0, 0, false);
+                return new CacheInfo(0, 0, false, metrics.snapshot(), null);
             }
         }, executor);
     }
     
     /**
-     * Get user from cache synchronously (for internal use)
+     * Remove expired users from the index of cached users, a bounded number of
+     * small batches per call so no single command has to walk a large backlog
+     * 
+     * @return CompletableFuture containing the number of removed entries
      */
-    public Optional<SkyUser> getSync(UUID uuid) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = getKey(uuid);
-            String json = jedis.get(key);
-            
-            if (json != null) {
-                try {
-                    SkyUser user = JsonSerializer.deserialize(json, SkyUser.class);
-                    return Optional.of(user);
-                } catch (JsonProcessingException e) {
-                    jedis.del(key);
-                    return Optional.empty();
+    public CompletableFuture<Long> pruneKeyIndex() {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Jedis jedis = getJedis()) {
+                List<String> keys = Collections.singletonList(getIndexKey());
+                List<String> args = List.of(String.valueOf(System.currentTimeMillis()),
+                        String.valueOf(INDEX_PRUNE_BATCH_SIZE));
+                
+                long removed = 0;
+                for (int i = 0; i < INDEX_PRUNE_MAX_BATCHES; i++) {
+                    long batch = (Long) jedis.eval(PRUNE_INDEX_SCRIPT, keys, args);
+                    removed += batch;
+                    if (batch < INDEX_PRUNE_BATCH_SIZE) {
+                        break;
+                    }
                 }
-            } else {
-                return Optional.empty();
+                return removed;
+            } catch (Exception e) {
+                throw new CompletionException("Failed to prune cached users index", e);
+            }
+        }, executor);
+    }
+    
+    /**
+     * Build the index of cached users from the keyspace if it does not exist yet,
+     * for keys written before the index was introduced
+     * 
+     * @return CompletableFuture containing the number of indexed users
+     */
+    public CompletableFuture<Long> rebuildKeyIndex() {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Jedis jedis = getJedis()) {
+                String indexKey = getIndexKey();
+                if (jedis.exists(indexKey)) {
+                    return 0L;
+                }
+                
+                String keyPrefix = getKeyPrefix(generation);
+                long indexed = 0;
+                ScanParams params = new ScanParams().match(getKeyPattern(generation)).count(SCAN_BATCH_SIZE);
+                String cursor = ScanParams.SCAN_POINTER_START;
+                do {
+                    ScanResult<String> result = jedis.scan(cursor, params);
+                    List<String> keys = result.getResult();
+                    
+                    if (!keys.isEmpty()) {
+                        Pipeline pipeline = jedis.pipelined();
+                        List<Response<Long>> ttls = new ArrayList<>(keys.size());
+                        keys.forEach(key -> ttls.add(pipeline.ttl(key)));
+                        pipeline.sync();
+                        
+                        Pipeline indexPipeline = jedis.pipelined();
+                        for (int i = 0; i < keys.size(); i++) {
+                            long ttl = ttls.get(i).get();
+                            if (ttl == -2) {
+                                // Expired in the meantime
+                                continue;
+                            }
+                            
+                            String member = keys.get(i).substring(keyPrefix.length());
+                            indexPipeline.zadd(indexKey, expiresAt(ttl), member);
+                            indexed++;
+                        }
+                        indexPipeline.sync();
+                    }
+                    cursor = result.getCursor();
+                } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+                
+                return indexed;
+            } catch (Exception e) {
+                throw new CompletionException("Failed to rebuild cache key index", e);
             }
+        }, executor);
+    }
+    
+    /**
+     * Get user from cache synchronously (for internal use)
+     */
+    public Optional<SkyUser> getSync(UUID uuid) {
+        try (Jedis jedis = getJedis()) {
+            return readUser(jedis, uuid);
         } catch (Exception e) {
             System.err.println("Error getting user from cache sync: " + e.getMessage());
             return Optional.empty();
@@ -189,11 +622,9 @@ public class RedisSkyUserCacheRepository implements SkyUserCacheRepository {
      * Put user in cache synchronously (for internal use)
      */
     public void putSync(SkyUser user) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String key = getKey(user.getUuid());
-            String json = JsonSerializer.serialize(user);
-            jedis.setex(key, (int) defaultTtlSeconds, json);
-            updateCacheStats(jedis, "put");
+        try (Jedis jedis = getJedis()) {
+            writeUser(jedis, user, jitter(defaultTtlSeconds));
+            metrics.recordPuts(1);
         } catch (Exception e) {
             System.err.println("Error putting user in cache sync: " + e.getMessage());
         }
@@ -204,9 +635,14 @@ public class RedisSkyUserCacheRepository implements SkyUserCacheRepository {
      */
     public CompletableFuture<Boolean> extendTtl(UUID uuid, long ttlSeconds) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
+            try (Jedis jedis = getJedis()) {
                 String key = getKey(uuid);
-                return jedis.expire(key, (int) ttlSeconds) == 1;
+                if (jedis.expire(key, (int) ttlSeconds) != 1) {
+                    return false;
+                }
+                
+                jedis.zadd(getIndexKey(), expiresAt(ttlSeconds), uuid.toString());
+                return true;
             } catch (Exception e) {
                 throw new CompletionException("Failed to extend TTL for user: " + uuid, e);
             }
@@ -218,7 +654,7 @@ public class RedisSkyUserCacheRepository implements SkyUserCacheRepository {
      */
     public CompletableFuture<Long> getTtl(UUID uuid) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
+            try (Jedis jedis = getJedis()) {
                 String key = getKey(uuid);
                 return jedis.ttl(key);
             } catch (Exception e) {
@@ -227,17 +663,340 @@ public class RedisSkyUserCacheRepository implements SkyUserCacheRepository {
         }, executor);
     }
     
+    public StorageFormat getStorageFormat() {
+        return storageFormat;
+    }
+    
+    /**
+     * Get the key generation this server currently uses
+     */
+    public long getGeneration() {
+        return generation;
+    }
+    
+    /**
+     * Get a connection, reading the current key generation first if it was not checked recently
+     */
+    private Jedis getJedis() {
+        Jedis jedis = jedisPool.getResource();
+        
+        long now = System.currentTimeMillis();
+        if (now - generationCheckedAt >= GENERATION_REFRESH_MILLIS) {
+            try {
+                String value = jedis.get(GENERATION_KEY);
+                generation = value != null ? Long.parseLong(value) : 0;
+                generationCheckedAt = now;
+            } catch (RuntimeException e) {
+                jedis.close();
+                throw e;
+            }
+        }
+        return jedis;
+    }
+    
     private String getKey(UUID uuid) {
-        return KEY_PREFIX + uuid.toString();
+        return getKeyPrefix(generation) + uuid.toString();
+    }
+    
+    private static String getKeyPrefix(long generation) {
+        return generation == 0 ? KEY_PREFIX : KEY_PREFIX + generation + ":";
+    }
+    
+    /**
+     * SCAN pattern matching exactly the user keys of a generation
+     */
+    private static String getKeyPattern(long generation) {
+        // Generation 0 keys are followed directly by the UUID, not by another generation number
+        return generation == 0
+                ? KEY_PREFIX + "????????-????-????-????-????????????"
+                : getKeyPrefix(generation) + "*";
+    }
+    
+    private String getIndexKey() {
+        return getIndexKey(generation);
+    }
+    
+    private static String getIndexKey(long generation) {
+        return generation == 0 ? INDEX_KEY : INDEX_KEY + ":" + generation;
+    }
+    
+    /**
+     * Delete all user keys of a generation, walking them with SCAN in small batches
+     */
+    private void unlinkNamespace(Jedis jedis, long generation) {
+        ScanParams params = new ScanParams().match(getKeyPattern(generation)).count(SCAN_BATCH_SIZE);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        do {
+            ScanResult<String> result = jedis.scan(cursor, params);
+            if (!result.getResult().isEmpty()) {
+                jedis.unlink(result.getResult().toArray(new String[0]));
+            }
+            cursor = result.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
     }
     
-    private void updateCacheStats(Jedis jedis, String operation) {
+    /**
+     * Read a user stored in the configured format
+     */
+    private Optional<SkyUser> readUser(Jedis jedis, UUID uuid) {
+        String key = getKey(uuid);
+        
+        if (storageFormat == StorageFormat.HASH) {
+            Map<String, String> hash;
+            try {
+                hash = jedis.hgetAll(key);
+            } catch (JedisDataException e) {
+                if (!isWrongType(e)) {
+                    throw e;
+                }
+                return migrateJsonKey(jedis, uuid);
+            }
+            return decodeHash(jedis, uuid, hash);
+        }
+        
+        String json;
         try {
-            jedis.hincrBy(STATS_KEY, operation, 1);
-            jedis.hset(STATS_KEY, "last_update", String.valueOf(System.currentTimeMillis()));
-        } catch (Exception e) {
-            // Ignore stats update errors
+            json = jedis.get(key);
+        } catch (JedisDataException e) {
+            if (!isWrongType(e)) {
+                throw e;
+            }
+            return evictHash(jedis, uuid);
+        }
+        return decodeJson(jedis, uuid, json);
+    }
+    
+    /**
+     * Decode a user read as a hash, removing it if it cannot be used
+     */
+    private Optional<SkyUser> decodeHash(Jedis jedis, UUID uuid, Map<String, String> hash) {
+        if (hash.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        try {
+            SkyUser user = SkyUserHashCodec.fromHash(uuid, hash);
+            if (user == null) {
+                evict(jedis, uuid);
+                System.err.println("Incomplete hash in cache for user " + uuid + ", removed");
+            }
+            return Optional.ofNullable(user);
+        } catch (JsonProcessingException | RuntimeException e) {
+            evict(jedis, uuid);
+            System.err.println("Invalid hash in cache for user " + uuid + ", removed: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Decode a user read as a JSON string, removing it if it cannot be used
+     */
+    private Optional<SkyUser> decodeJson(Jedis jedis, UUID uuid, String json) {
+        if (json == null) {
+            return Optional.empty();
+        }
+        
+        try {
+            return Optional.of(JsonSerializer.deserialize(json, SkyUser.class));
+        } catch (JsonProcessingException e) {
+            // Invalid JSON in cache, remove it
+            evict(jedis, uuid);
+            System.err.println("Invalid JSON in cache for user " + uuid + ", removed: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Drop a user written as a hash while JSON is configured, e.g. before switching back to JSON
+     */
+    private Optional<SkyUser> evictHash(Jedis jedis, UUID uuid) {
+        evict(jedis, uuid);
+        return Optional.empty();
+    }
+    
+    /**
+     * Read many hashes with one pipelined round trip, converting old JSON keys on the way
+     */
+    private void readHashChunk(Jedis jedis, List<UUID> chunk, Map<UUID, SkyUser> users) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<Map<String, String>>> responses = new ArrayList<>(chunk.size());
+        for (UUID uuid : chunk) {
+            responses.add(pipeline.hgetAll(getKey(uuid)));
+        }
+        pipeline.sync();
+        
+        for (int i = 0; i < chunk.size(); i++) {
+            UUID uuid = chunk.get(i);
+            Map<String, String> hash;
+            try {
+                hash = responses.get(i).get();
+            } catch (JedisDataException e) {
+                if (!isWrongType(e)) {
+                    throw e;
+                }
+                migrateJsonKey(jedis, uuid).ifPresent(user -> users.put(uuid, user));
+                continue;
+            }
+            
+            if (hash.isEmpty()) {
+                continue;
+            }
+            
+            try {
+                SkyUser user = SkyUserHashCodec.fromHash(uuid, hash);
+                if (user != null) {
+                    users.put(uuid, user);
+                } else {
+                    evict(jedis, uuid);
+                }
+            } catch (JsonProcessingException | RuntimeException e) {
+                evict(jedis, uuid);
+                System.err.println("Invalid hash in cache for user " + uuid + ", removed: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Write a user in the configured format, replacing whatever the key held
+     */
+    private void writeUser(Jedis jedis, SkyUser user, long ttlSeconds) throws JsonProcessingException {
+        String key = getKey(user.getUuid());
+        
+        // One transaction so readers never see the key missing or half written
+        Transaction transaction = jedis.multi();
+        if (storageFormat == StorageFormat.JSON) {
+            String json = JsonSerializer.serialize(user);
+            if (ttlSeconds > 0) {
+                transaction.setex(key, (int) ttlSeconds, json);
+            } else {
+                transaction.set(key, json);
+            }
+        } else {
+            Map<String, String> hash = SkyUserHashCodec.toHash(user);
+            transaction.del(key);
+            transaction.hset(key, hash);
+            if (ttlSeconds > 0) {
+                transaction.expire(key, ttlSeconds);
+            }
+        }
+        transaction.zadd(getIndexKey(), expiresAt(ttlSeconds), user.getUuid().toString());
+        transaction.exec();
+    }
+    
+    /**
+     * Remove a cached user the cache could not use and count it as evicted
+     */
+    private void evict(Jedis jedis, UUID uuid) {
+        unlinkUser(jedis, uuid);
+        metrics.recordEvictions(1);
+    }
+    
+    /**
+     * Record a single lookup as a hit or miss
+     */
+    private Optional<SkyUser> recordLookup(Optional<SkyUser> user, long startNanos) {
+        if (user.isPresent()) {
+            metrics.recordHits(1);
+        } else {
+            metrics.recordMisses(1);
+        }
+        metrics.recordRead(startNanos);
+        return user;
+    }
+    
+    /**
+     * Remove a cached user and its index entry
+     */
+    private void unlinkUser(Jedis jedis, UUID uuid) {
+        unlinkUsers(jedis, Collections.singletonList(uuid));
+    }
+    
+    /**
+     * Remove cached users and their index entries, UNLINK frees the values in the background
+     */
+    private void unlinkUsers(Jedis jedis, Collection<UUID> uuids) {
+        List<UUID> uuidList = new ArrayList<>(uuids);
+        Pipeline pipeline = jedis.pipelined();
+        for (int start = 0; start < uuidList.size(); start += BULK_CHUNK_SIZE) {
+            List<UUID> chunk = uuidList.subList(start, Math.min(start + BULK_CHUNK_SIZE, uuidList.size()));
+            pipeline.unlink(chunk.stream().map(this::getKey).toArray(String[]::new));
+            pipeline.zrem(getIndexKey(), chunk.stream().map(UUID::toString).toArray(String[]::new));
+        }
+        pipeline.sync();
+    }
+    
+    /**
+     * Shorten a TTL by a random share of at most the configured jitter
+     */
+    private long jitter(long ttlSeconds) {
+        if (ttlSeconds <= 1 || ttlJitter <= 0) {
+            return ttlSeconds;
+        }
+        long cut = (long) (ttlSeconds * ttlJitter * ThreadLocalRandom.current().nextDouble());
+        return Math.max(1, ttlSeconds - cut);
+    }
+    
+    /**
+     * XFetch decision, the closer the expiry and the slower the reload, the likelier a refresh
+     * @param ttlMillis Remaining TTL as returned by PTTL, negative if the key has none or is gone
+     */
+    private boolean isRefreshDue(long ttlMillis, long recomputeMillis) {
+        if (ttlMillis <= 0) {
+            return false;
+        }
+        // 1 - nextDouble() is in (0, 1], so the logarithm is finite
+        double gap = recomputeMillis * earlyRefreshBeta * -Math.log(1.0 - ThreadLocalRandom.current().nextDouble());
+        return gap >= ttlMillis;
+    }
+    
+    /**
+     * Index score of a key written now with the given time to live
+     */
+    private static double expiresAt(long ttlSeconds) {
+        return ttlSeconds > 0 ? System.currentTimeMillis() + ttlSeconds * 1000.0 : Double.POSITIVE_INFINITY;
+    }
+    
+    /**
+     * Convert a user cached as a JSON string by the old layout to a hash,
+     * keeping the remaining time to live
+     */
+    private Optional<SkyUser> migrateJsonKey(Jedis jedis, UUID uuid) {
+        String key = getKey(uuid);
+        String json = jedis.get(key);
+        if (json == null) {
+            return Optional.empty();
+        }
+        
+        SkyUser user;
+        try {
+            user = JsonSerializer.deserialize(json, SkyUser.class);
+        } catch (JsonProcessingException e) {
+            evict(jedis, uuid);
+            System.err.println("Invalid JSON in cache for user " + uuid + ", removed: " + e.getMessage());
+            return Optional.empty();
+        }
+        
+        try {
+            long ttl = jedis.ttl(key);
+            writeUser(jedis, user, ttl > 0 ? ttl : defaultTtlSeconds);
+        } catch (JsonProcessingException e) {
+            // Still usable, the key expires in the old layout
+            System.err.println("Failed to convert cached user " + uuid + " to a hash: " + e.getMessage());
         }
+        return Optional.of(user);
+    }
+    
+    private String getApplyDeltaSha(Jedis jedis) {
+        String sha = applyDeltaSha;
+        if (sha == null) {
+            sha = jedis.scriptLoad(SkyUserHashCodec.APPLY_DELTA_SCRIPT);
+            applyDeltaSha = sha;
+        }
+        return sha;
+    }
+    
+    private static boolean isWrongType(JedisDataException e) {
+        return e.getMessage() != null && e.getMessage().startsWith("WRONGTYPE");
     }
     
     private long parseUsedMemory(String memoryInfo) {
@@ -266,7 +1025,38 @@ public class RedisSkyUserCacheRepository implements SkyUserCacheRepository {
     }
     
     /**
-     * Get cache statistics
+     * Get the cache statistics of this server since startup
+     */
+    public CacheStats getLocalStats() {
+        return metrics.snapshot();
+    }
+    
+    /**
+     * Add the statistics recorded since the last flush to the hash shared by all servers
+     */
+    public CompletableFuture<Void> flushStats() {
+        return CompletableFuture.runAsync(() -> {
+            synchronized (metrics) {
+                Map<String, Long> deltas = metrics.unflushed();
+                if (deltas.isEmpty()) {
+                    return;
+                }
+                
+                try (Jedis jedis = jedisPool.getResource()) {
+                    Pipeline pipeline = jedis.pipelined();
+                    deltas.forEach((field, delta) -> pipeline.hincrBy(STATS_KEY, field, delta));
+                    pipeline.hset(STATS_KEY, "last_update", String.valueOf(System.currentTimeMillis()));
+                    pipeline.sync();
+                    metrics.markFlushed(deltas);
+                } catch (Exception e) {
+                    throw new CompletionException("Failed to flush cache statistics", e);
+                }
+            }
+        }, executor);
+    }
+    
+    /**
+     * Get cache statistics summed over all servers, as stored in Redis
      */
     public CompletableFuture<java.util.Map<String, String>> getStats() {
         return CompletableFuture.supplyAsync(() -> {
@@ -0,0 +1,281 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.repository.SkyUserCacheRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * ShardedSkyUserCacheRepository - Spreads cached users over several caches
+ *
+ * Each user lives in one shard (typically one Redis node), chosen by
+ * consistent hashing of the UUID. Single-user calls go to that shard only.
+ * Bulk calls are split by shard and sent to all shards at once, clearing and
+ * statistics go to every shard and are combined.
+ *
+ * After the node list changed, the previous ring can be given for a while
+ * (about the cache TTL). Only the UUIDs whose owner changed are affected:
+ * a miss on the new owner is read from the previous one, and writes to a
+ * moved user drop the copy on its previous owner so it cannot be read after
+ * a newer one. All other users stay where they are.
+ */
+public class ShardedSkyUserCacheRepository implements SkyUserCacheRepository {
+
+    // Circuit states from best to worst, the combined state is the worst of any shard
+    private static final List<String> CIRCUIT_STATES = List.of("closed", "half_open", "open");
+
+    private final ConsistentHashRing<SkyUserCacheRepository> ring;
+
+    // Ring before the last node list change, null when none is kept
+    private final ConsistentHashRing<SkyUserCacheRepository> previousRing;
+
+    public ShardedSkyUserCacheRepository(ConsistentHashRing<SkyUserCacheRepository> ring) {
+        this(ring, null);
+    }
+
+    /**
+     * @param ring Current ring
+     * @param previousRing Ring before the last node list change, sharing the node instances, or null
+     */
+    public ShardedSkyUserCacheRepository(ConsistentHashRing<SkyUserCacheRepository> ring,
+                                         ConsistentHashRing<SkyUserCacheRepository> previousRing) {
+        this.ring = ring;
+        this.previousRing = previousRing;
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> get(UUID uuid) {
+        SkyUserCacheRepository previous = previousOwner(uuid);
+        CompletableFuture<Optional<SkyUser>> read = ring.get(uuid).get(uuid);
+        if (previous == null) {
+            return read;
+        }
+        return read.thenCompose(user -> user.isPresent() ? CompletableFuture.completedFuture(user) : previous.get(uuid));
+    }
+
+    @Override
+    public CompletableFuture<CacheEntry> getEntry(UUID uuid, long recomputeMillis) {
+        SkyUserCacheRepository previous = previousOwner(uuid);
+        CompletableFuture<CacheEntry> read = ring.get(uuid).getEntry(uuid, recomputeMillis);
+        if (previous == null) {
+            return read;
+        }
+        return read.thenCompose(entry -> entry.getUser().isPresent()
+                ? CompletableFuture.completedFuture(entry)
+                : previous.getEntry(uuid, recomputeMillis));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> getAll(Collection<UUID> uuids) {
+        return getAll(ring, uuids).thenCompose(users -> {
+            if (previousRing == null) {
+                return CompletableFuture.completedFuture(users);
+            }
+
+            // Moved users the new owner did not have yet
+            List<UUID> moved = new ArrayList<>();
+            for (UUID uuid : uuids) {
+                if (!users.containsKey(uuid) && previousOwner(uuid) != null) {
+                    moved.add(uuid);
+                }
+            }
+            if (moved.isEmpty()) {
+                return CompletableFuture.completedFuture(users);
+            }
+            return getAll(previousRing, moved).thenApply(previousUsers -> {
+                users.putAll(previousUsers);
+                return users;
+            });
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> getStats(UUID uuid) {
+        SkyUserCacheRepository previous = previousOwner(uuid);
+        CompletableFuture<Optional<SkyUser>> read = ring.get(uuid).getStats(uuid);
+        if (previous == null) {
+            return read;
+        }
+        return read.thenCompose(user -> user.isPresent() ? CompletableFuture.completedFuture(user) : previous.getStats(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> put(SkyUser user) {
+        return dropMoved(Collections.singleton(user.getUuid()), ring.get(user.getUuid()).put(user));
+    }
+
+    @Override
+    public CompletableFuture<Void> put(SkyUser user, long ttlSeconds) {
+        return dropMoved(Collections.singleton(user.getUuid()), ring.get(user.getUuid()).put(user, ttlSeconds));
+    }
+
+    @Override
+    public CompletableFuture<Void> putAll(Collection<SkyUser> users) {
+        Map<SkyUserCacheRepository, List<SkyUser>> partitions = ring.partition(users, SkyUser::getUuid);
+        List<CompletableFuture<Void>> writes = new ArrayList<>(partitions.size());
+        partitions.forEach((shard, shardUsers) -> writes.add(shard.putAll(shardUsers)));
+
+        List<UUID> uuids = new ArrayList<>(users.size());
+        users.forEach(user -> uuids.add(user.getUuid()));
+        return dropMoved(uuids, CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return dropMoved(Collections.singleton(uuid), ring.get(uuid).applyDelta(uuid, delta));
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        Map<SkyUserCacheRepository, List<UUID>> partitions = ring.partition(deltas.keySet(), Function.identity());
+        List<CompletableFuture<Void>> writes = new ArrayList<>(partitions.size());
+        partitions.forEach((shard, shardUuids) -> {
+            Map<UUID, StatDelta> shardDeltas = new HashMap<>();
+            shardUuids.forEach(uuid -> shardDeltas.put(uuid, deltas.get(uuid)));
+            writes.add(shard.applyDeltas(shardDeltas));
+        });
+        return dropMoved(deltas.keySet(), CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])));
+    }
+
+    @Override
+    public CompletableFuture<Void> remove(UUID uuid) {
+        return dropMoved(Collections.singleton(uuid), ring.get(uuid).remove(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAll(Collection<UUID> uuids) {
+        Map<SkyUserCacheRepository, List<UUID>> partitions = ring.partition(uuids, Function.identity());
+        List<CompletableFuture<Void>> removals = new ArrayList<>(partitions.size());
+        partitions.forEach((shard, shardUuids) -> removals.add(shard.removeAll(shardUuids)));
+        return dropMoved(uuids, CompletableFuture.allOf(removals.toArray(new CompletableFuture<?>[0])));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(UUID uuid) {
+        SkyUserCacheRepository previous = previousOwner(uuid);
+        CompletableFuture<Boolean> read = ring.get(uuid).exists(uuid);
+        if (previous == null) {
+            return read;
+        }
+        return read.thenCompose(exists -> exists ? CompletableFuture.completedFuture(true) : previous.exists(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> clear() {
+        return CompletableFuture.allOf(allNodes().stream()
+                .map(SkyUserCacheRepository::clear)
+                .toArray(CompletableFuture<?>[]::new));
+    }
+
+    @Override
+    public CompletableFuture<CacheInfo> getInfo() {
+        List<CompletableFuture<CacheInfo>> infos = new ArrayList<>();
+        for (SkyUserCacheRepository shard : allNodes()) {
+            infos.add(shard.getInfo().exceptionally(throwable -> new CacheInfo(0, 0, false)));
+        }
+
+        return CompletableFuture.allOf(infos.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> {
+                    long totalKeys = 0;
+                    long usedMemory = 0;
+                    boolean connected = true;
+                    CacheStats localStats = null;
+                    CacheStats clusterStats = null;
+                    String circuitState = null;
+                    long circuitOpenedAt = 0;
+                    long circuitTrips = 0;
+
+                    for (CompletableFuture<CacheInfo> future : infos) {
+                        CacheInfo info = future.join();
+                        totalKeys += info.getTotalKeys();
+                        usedMemory += info.getUsedMemory();
+                        connected &= info.isConnected();
+                        localStats = info.getLocalStats() != null ? info.getLocalStats().plus(localStats) : localStats;
+                        clusterStats = info.getClusterStats() != null ? info.getClusterStats().plus(clusterStats) : clusterStats;
+
+                        if (info.getCircuitState() != null) {
+                            if (circuitState == null
+                                    || CIRCUIT_STATES.indexOf(info.getCircuitState()) > CIRCUIT_STATES.indexOf(circuitState)) {
+                                circuitState = info.getCircuitState();
+                            }
+                            circuitOpenedAt = Math.max(circuitOpenedAt, info.getCircuitOpenedAt());
+                            circuitTrips += info.getCircuitTrips();
+                        }
+                    }
+
+                    CacheInfo combined = new CacheInfo(totalKeys, usedMemory, connected, localStats, clusterStats);
+                    return circuitState != null
+                            ? combined.withCircuitBreaker(circuitState, circuitOpenedAt, circuitTrips)
+                            : combined;
+                });
+    }
+
+    /**
+     * Get the number of shards
+     */
+    public int getShardCount() {
+        return ring.getNodes().size();
+    }
+
+    /**
+     * Get the node that held a user before the last node list change, null if its owner did not change
+     */
+    private SkyUserCacheRepository previousOwner(UUID uuid) {
+        if (previousRing == null) {
+            return null;
+        }
+        SkyUserCacheRepository previous = previousRing.get(uuid);
+        return previous != ring.get(uuid) ? previous : null;
+    }
+
+    private static CompletableFuture<Map<UUID, SkyUser>> getAll(ConsistentHashRing<SkyUserCacheRepository> ring,
+                                                               Collection<UUID> uuids) {
+        Map<SkyUserCacheRepository, List<UUID>> partitions = ring.partition(uuids, Function.identity());
+        List<CompletableFuture<Map<UUID, SkyUser>>> reads = new ArrayList<>(partitions.size());
+        partitions.forEach((shard, shardUuids) -> reads.add(shard.getAll(shardUuids)));
+
+        return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> {
+                    Map<UUID, SkyUser> users = new HashMap<>();
+                    reads.forEach(read -> users.putAll(read.join()));
+                    return users;
+                });
+    }
+
+    /**
+     * After a write to the new owners, remove the moved users' copies from their previous owners
+     */
+    private <T> CompletableFuture<T> dropMoved(Collection<UUID> uuids, CompletableFuture<T> write) {
+        if (previousRing == null) {
+            return write;
+        }
+
+        List<CompletableFuture<Void>> removals = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            SkyUserCacheRepository previous = previousOwner(uuid);
+            if (previous != null) {
+                removals.add(previous.remove(uuid));
+            }
+        }
+        if (removals.isEmpty()) {
+            return write;
+        }
+        return write.thenCombine(CompletableFuture.allOf(removals.toArray(new CompletableFuture<?>[0])),
+                (result, v) -> result);
+    }
+
+    /**
+     * Nodes of the current and the previous ring, each once
+     */
+    private Collection<SkyUserCacheRepository> allNodes() {
+        if (previousRing == null) {
+            return ring.getNodes();
+        }
+        Set<SkyUserCacheRepository> nodes = new LinkedHashSet<>(ring.getNodes());
+        nodes.addAll(previousRing.getNodes());
+        return nodes;
+    }
+}
@@ -0,0 +1,155 @@
+package com.skywars.infrastructure.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.skywars.domain.cosmetic.UserCosmetics;
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.infrastructure.util.JsonSerializer;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * SkyUserHashCodec - Maps a SkyUser to and from the fields of a Redis hash
+ *
+ * Counters are stored as plain integers so they can be changed with HINCRBY,
+ * timestamps as epoch milliseconds so they can be compared inside Redis.
+ * Cosmetics change rarely and are kept as a single JSON field, which reads
+ * of the statistics alone never have to parse.
+ */
+final class SkyUserHashCodec {
+
+    static final String NAME = "name";
+    static final String KILLS = "kills";
+    static final String DEATHS = "deaths";
+    static final String WINS = "wins";
+    static final String LOSSES = "losses";
+    static final String COINS = "coins";
+    static final String LAST_SEEN = "lastSeen";
+    static final String FIRST_JOIN = "firstJoin";
+    static final String COSMETICS = "cosmetics";
+
+    // Fields read by a statistics-only HMGET, in this order
+    static final String[] STAT_FIELDS = {NAME, KILLS, DEATHS, WINS, LOSSES, COINS, LAST_SEEN, FIRST_JOIN};
+
+    /**
+     * Adds a stat delta to a cached hash, only if the hash exists so a partial
+     * hash is never created. Anything else under the key (a JSON string written
+     * by the old layout) is dropped. Returns 1 if the hash was updated.
+     * ARGV: kills, deaths, wins, losses, coins, last seen millis (empty if unset)
+     */
+    static final String APPLY_DELTA_SCRIPT = String.join("\n",
+            "local keyType = redis.call('TYPE', KEYS[1]).ok",
+            "if keyType == 'none' then return 0 end",
+            "if keyType ~= 'hash' then",
+            "  redis.call('DEL', KEYS[1])",
+            "  return 0",
+            "end",
+            "local fields = {'" + KILLS + "', '" + DEATHS + "', '" + WINS + "', '" + LOSSES + "', '" + COINS + "'}",
+            "for i, field in ipairs(fields) do",
+            "  local amount = tonumber(ARGV[i])",
+            "  if amount ~= 0 then redis.call('HINCRBY', KEYS[1], field, amount) end",
+            "end",
+            "if ARGV[6] ~= '' then",
+            "  local current = tonumber(redis.call('HGET', KEYS[1], '" + LAST_SEEN + "') or '0') or 0",
+            "  if tonumber(ARGV[6]) > current then redis.call('HSET', KEYS[1], '" + LAST_SEEN + "', ARGV[6]) end",
+            "end",
+            "return 1");
+
+    private SkyUserHashCodec() {
+    }
+
+    /**
+     * Convert a user to hash fields
+     */
+    static Map<String, String> toHash(SkyUser user) throws JsonProcessingException {
+        Map<String, String> hash = new HashMap<>();
+        hash.put(NAME, user.getName());
+        hash.put(KILLS, String.valueOf(user.getKills()));
+        hash.put(DEATHS, String.valueOf(user.getDeaths()));
+        hash.put(WINS, String.valueOf(user.getWins()));
+        hash.put(LOSSES, String.valueOf(user.getLosses()));
+        hash.put(COINS, String.valueOf(user.getCoins()));
+        hash.put(LAST_SEEN, toMillis(user.getLastSeen()));
+        hash.put(FIRST_JOIN, toMillis(user.getFirstJoin()));
+        hash.put(COSMETICS, JsonSerializer.serialize(user.getCosmetics()));
+        return hash;
+    }
+
+    /**
+     * Convert a complete hash (HGETALL) to a user
+     *
+     * @return The user, or null if the hash is empty or incomplete
+     */
+    static SkyUser fromHash(UUID uuid, Map<String, String> hash) throws JsonProcessingException {
+        String[] values = new String[STAT_FIELDS.length];
+        for (int i = 0; i < STAT_FIELDS.length; i++) {
+            values[i] = hash.get(STAT_FIELDS[i]);
+        }
+
+        SkyUser user = fromStatFields(uuid, Arrays.asList(values));
+        String cosmetics = hash.get(COSMETICS);
+        if (user == null || cosmetics == null) {
+            return null;
+        }
+
+        user.setCosmetics(JsonSerializer.deserialize(cosmetics, UserCosmetics.class));
+        return user;
+    }
+
+    /**
+     * Convert the values of a statistics-only HMGET to a user whose cosmetics are not loaded
+     *
+     * @return The user, or null if the hash does not exist or is incomplete
+     */
+    static SkyUser fromStatFields(UUID uuid, List<String> values) {
+        if (values.get(0) == null) {
+            return null;
+        }
+
+        try {
+            return new SkyUser(uuid, values.get(0),
+                    Integer.parseInt(values.get(1)),
+                    Integer.parseInt(values.get(2)),
+                    Integer.parseInt(values.get(3)),
+                    Integer.parseInt(values.get(4)),
+                    Integer.parseInt(values.get(5)),
+                    fromMillis(values.get(6)),
+                    fromMillis(values.get(7)),
+                    UserCosmetics.notLoaded());
+        } catch (NumberFormatException e) {
+            // Missing counter field
+            return null;
+        }
+    }
+
+    /**
+     * Script arguments for a stat delta
+     */
+    static List<String> deltaArgs(StatDelta delta) {
+        return Arrays.asList(
+                String.valueOf(delta.getKills()),
+                String.valueOf(delta.getDeaths()),
+                String.valueOf(delta.getWins()),
+                String.valueOf(delta.getLosses()),
+                String.valueOf(delta.getCoins()),
+                delta.getLastSeen() != null ? toMillis(delta.getLastSeen()) : "");
+    }
+
+    private static String toMillis(LocalDateTime time) {
+        return time != null ? String.valueOf(time.toInstant(ZoneOffset.UTC).toEpochMilli()) : "";
+    }
+
+    private static LocalDateTime fromMillis(String millis) {
+        if (millis == null || millis.isEmpty()) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(millis)), ZoneOffset.UTC);
+    }
+}
@@ -4,6 +4,7 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.configuration.ConfigurationSection;
 
+import java.sql.Connection;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -11,36 +12,68 @@ import java.util.concurrent.TimeUnit;
  * 
  * This class manages HikariCP connection pool configuration
  * for optimal database performance and reliability.
+ * An optional read-replica pool can be configured for read-only queries.
  */
 public class DatabaseConfig {
     
     private final HikariDataSource dataSource;
     
+    // Read-replica pool, null when no replica is configured
+    private final HikariDataSource replicaDataSource;
+    
+    private final long replicaMaxLagSeconds;
+    
     public DatabaseConfig(ConfigurationSection config) {
-        this.dataSource = createDataSource(config);
+        // Accept both the plugin root config and the "database" section itself
+        ConfigurationSection databaseSection = config.getConfigurationSection("database");
+        if (databaseSection != null) {
+            config = databaseSection;
+        }
+        
+        this.dataSource = createDataSource(config.getConfigurationSection("mysql"), null, "SkyWars-MySQL-Pool", false);
+        
+        ConfigurationSection replicaConfig = config.getConfigurationSection("mysql.replica");
+        if (replicaConfig != null && replicaConfig.getBoolean("enabled", false)) {
+            this.replicaDataSource = createDataSource(replicaConfig, config.getConfigurationSection("mysql"),
+                    "SkyWars-MySQL-Replica-Pool", true);
+            this.replicaMaxLagSeconds = replicaConfig.getLong("max-lag-seconds", 5);
+        } else {
+            this.replicaDataSource = null;
+            this.replicaMaxLagSeconds = 0;
+        }
     }
     
-    private HikariDataSource createDataSource(ConfigurationSection config) {
+    /**
+     * Create a connection pool
+     * 
+     * @param config Connection settings (may be null for defaults)
+     * @param fallback Settings used for values missing in config (e.g. replica credentials), may be null
+     * @param poolName Name of the pool
+     * @param readOnly Whether connections are read-only
+     */
+    private HikariDataSource createDataSource(ConfigurationSection config, ConfigurationSection fallback,
+                                              String poolName, boolean readOnly) {
         HikariConfig hikariConfig = new HikariConfig();
         
         // Basic connection settings
-        String host = config.getString("mysql.host", "localhost");
-        int port = config.getInt("mysql.port", 3306);
-        String database = config.getString("mysql.database", "skywars");
-        String username = config.getString("mysql.username", "root");
-        String password = config.getString("mysql.password", "password");
+        String host = getString(config, fallback, "host", "localhost");
+        int port = getInt(config, fallback, "port", 3306);
+        String database = getString(config, fallback, "database", "skywars");
+        String username = getString(config, fallback, "username", "root");
+        String password = getString(config, fallback, "password", "password");
         
         // Build JDBC URL
         String jdbcUrl = String.format("jdbc:mysql://%s:%d/%s", host, port, database);
         hikariConfig.setJdbcUrl(jdbcUrl);
         hikariConfig.setUsername(username);
         hikariConfig.setPassword(password);
+        hikariConfig.setReadOnly(readOnly);
         
         // Driver class
         hikariConfig.setDriverClassName("com.mysql.cj.jdbc.Driver");
         
         // Connection pool settings
-        ConfigurationSection poolConfig = config.getConfigurationSection("mysql.pool");
+        ConfigurationSection poolConfig = config != null ? config.getConfigurationSection("pool") : null;
         if (poolConfig != null) {
             hikariConfig.setMaximumPoolSize(poolConfig.getInt("maximum-pool-size", 10));
             hikariConfig.setMinimumIdle(poolConfig.getInt("minimum-idle", 2));
@@ -58,7 +91,7 @@ public class DatabaseConfig {
         
         // Performance settings
         hikariConfig.setLeakDetectionThreshold(TimeUnit.MINUTES.toMillis(2));
-        hikariConfig.setPoolName("SkyWars-MySQL-Pool");
+        hikariConfig.setPoolName(poolName);
         
         // MySQL specific settings
         hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
@@ -71,6 +104,8 @@ public class DatabaseConfig {
         hikariConfig.addDataSourceProperty("cacheServerConfiguration", "true");
         hikariConfig.addDataSourceProperty("elideSetAutoCommits", "true");
         hikariConfig.addDataSourceProperty("maintainTimeStats", "false");
+        // Server-side cursors for statements with a fetch size (streaming reads)
+        hikariConfig.addDataSourceProperty("useCursorFetch", "true");
         
         // UTF-8 encoding
         hikariConfig.addDataSourceProperty("characterEncoding", "utf8");
@@ -86,25 +121,73 @@ public class DatabaseConfig {
         return new HikariDataSource(hikariConfig);
     }
     
+    private String getString(ConfigurationSection config, ConfigurationSection fallback, String path, String defaultValue) {
+        String fallbackValue = fallback != null ? fallback.getString(path, defaultValue) : defaultValue;
+        return config != null ? config.getString(path, fallbackValue) : fallbackValue;
+    }
+    
+    private int getInt(ConfigurationSection config, ConfigurationSection fallback, String path, int defaultValue) {
+        int fallbackValue = fallback != null ? fallback.getInt(path, defaultValue) : defaultValue;
+        return config != null ? config.getInt(path, fallbackValue) : fallbackValue;
+    }
+    
     public HikariDataSource getDataSource() {
         return dataSource;
     }
     
+    /**
+     * Get the read-replica pool, or null if no replica is configured
+     */
+    public HikariDataSource getReplicaDataSource() {
+        return replicaDataSource;
+    }
+    
+    /**
+     * Maximum replication lag in seconds before reads go back to the primary
+     */
+    public long getReplicaMaxLagSeconds() {
+        return replicaMaxLagSeconds;
+    }
+    
     public boolean isHealthy() {
-        try {
-            return !dataSource.isClosed() && dataSource.getConnection().isValid(5);
+        return isHealthy(dataSource);
+    }
+    
+    public boolean isReplicaHealthy() {
+        return replicaDataSource != null && isHealthy(replicaDataSource);
+    }
+    
+    private boolean isHealthy(HikariDataSource source) {
+        if (source.isClosed()) {
+            return false;
+        }
+        
+        try (Connection connection = source.getConnection()) {
+            return connection.isValid(5);
         } catch (Exception e) {
             return false;
         }
     }
     
     public void close() {
+        if (replicaDataSource != null && !replicaDataSource.isClosed()) {
+            replicaDataSource.close();
+        }
+        
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
         }
     }
     
     public String getStatus() {
+        String status = getStatus(dataSource);
+        if (replicaDataSource != null) {
+            status += " | Replica: " + getStatus(replicaDataSource);
+        }
+        return status;
+    }
+    
+    private String getStatus(HikariDataSource dataSource) {
         if (dataSource.isClosed()) {
             return "CLOSED";
         }
@@ -5,25 +5,75 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * RedisConfig - Configuration and setup for Redis connection
  * 
  * This class manages Jedis connection pool configuration
  * for optimal cache performance and reliability.
+ * 
+ * Cached users can be spread over several nodes (redis.cache-nodes, as
+ * "host:port"), each with its own pool and the same credentials and pool
+ * settings. Everything else uses the main node. The node list before the
+ * last change (redis.previous-cache-nodes) gets pools too, so users that
+ * moved can still be read from their previous node.
  */
 public class RedisConfig {
     
     private final JedisPool jedisPool;
     
+    // "host:port" of the main node
+    private final String mainNode;
+    
+    // Pools of the nodes holding cached users by "host:port", only the main node when none are configured
+    private final Map<String, JedisPool> cacheNodePools = new LinkedHashMap<>();
+    
+    // Pools of the nodes before the last node list change, empty when none are configured
+    private final Map<String, JedisPool> previousCacheNodePools = new LinkedHashMap<>();
+    
     public RedisConfig(ConfigurationSection config) {
-        this.jedisPool = createJedisPool(config);
+        String host = config.getString("redis.host", "localhost");
+        int port = config.getInt("redis.port", 6379);
+        this.jedisPool = createJedisPool(config, host, port);
+        this.mainNode = host + ":" + port;
+        
+        List<String> cacheNodes = config.getStringList("redis.cache-nodes");
+        if (cacheNodes.isEmpty()) {
+            cacheNodePools.put(mainNode, jedisPool);
+        }
+        addNodes(config, cacheNodes, cacheNodePools);
+        addNodes(config, config.getStringList("redis.previous-cache-nodes"), previousCacheNodePools);
     }
     
-    private JedisPool createJedisPool(ConfigurationSection config) {
+    /**
+     * Add a pool per "host:port" node, reusing the pool of a node that already has one
+     */
+    private void addNodes(ConfigurationSection config, List<String> nodes, Map<String, JedisPool> pools) {
+        for (String node : nodes) {
+            String name = node.trim();
+            int separator = name.lastIndexOf(':');
+            String nodeHost = separator > 0 ? name.substring(0, separator) : name;
+            int nodePort = separator > 0 ? Integer.parseInt(name.substring(separator + 1)) : 6379;
+            
+            String key = nodeHost + ":" + nodePort;
+            if (pools.containsKey(key)) {
+                continue;
+            }
+            
+            JedisPool pool = cacheNodePools.get(key);
+            if (pool == null) {
+                pool = key.equals(mainNode) ? jedisPool : createJedisPool(config, nodeHost, nodePort);
+            }
+            pools.put(key, pool);
+        }
+    }
+    
+    private JedisPool createJedisPool(ConfigurationSection config, String host, int port) {
         // Basic connection settings
-        String host = config.getString("redis.host", "localhost");
-        int port = config.getInt("redis.port", 6379);
         String password = config.getString("redis.password", "");
         int database = config.getInt("redis.database", 0);
         int timeout = config.getInt("redis.timeout", 2000);
@@ -65,6 +115,20 @@ public class RedisConfig {
         return jedisPool;
     }
     
+    /**
+     * Get the pools of the nodes holding cached users by "host:port"
+     */
+    public Map<String, JedisPool> getCacheNodePools() {
+        return Collections.unmodifiableMap(cacheNodePools);
+    }
+    
+    /**
+     * Get the pools of the nodes before the last node list change by "host:port", empty if none
+     */
+    public Map<String, JedisPool> getPreviousCacheNodePools() {
+        return Collections.unmodifiableMap(previousCacheNodePools);
+    }
+    
     public boolean isHealthy() {
         try {
             return !jedisPool.isClosed() && "PONG".equals(jedisPool.getResource().ping());
@@ -74,6 +138,16 @@ public class RedisConfig {
     }
     
     public void close() {
+        for (JedisPool pool : cacheNodePools.values()) {
+            if (pool != jedisPool && !pool.isClosed()) {
+                pool.close();
+            }
+        }
+        for (JedisPool pool : previousCacheNodePools.values()) {
+            if (pool != jedisPool && !pool.isClosed()) {
+                pool.close();
+            }
+        }
         if (jedisPool != null && !jedisPool.isClosed()) {
             jedisPool.close();
         }
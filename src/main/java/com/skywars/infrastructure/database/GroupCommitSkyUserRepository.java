@@ -0,0 +1,381 @@
+package com.skywars.infrastructure.database;
+
+import com.skywars.domain.cosmetic.CosmeticChanges;
+import com.skywars.domain.cosmetic.UserCosmetics;
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.leaderboard.LeaderboardCursor;
+import com.skywars.domain.leaderboard.LeaderboardStat;
+import com.skywars.domain.repository.SkyUserRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * GroupCommitSkyUserRepository - Batches concurrent saves into shared transactions
+ *
+ * Saves arriving within a short window are collected, deduplicated by UUID
+ * (the latest snapshot wins) and written with a single saveAll call on the
+ * wrapped repository, so many small saves use one connection and one commit.
+ * Every caller's future completes when the batch containing its save commits.
+ * A user whose previous batch is still committing is held back until it has,
+ * so snapshots of one user always commit in order.
+ * All other operations are passed through, after pending saves of the users
+ * involved have been written.
+ */
+public class GroupCommitSkyUserRepository implements SkyUserRepository {
+
+    private final SkyUserRepository delegate;
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+
+    // Saves waiting for the next commit, by UUID
+    private Map<UUID, PendingSave> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledCommit;
+
+    // Batches handed to the wrapped repository but not yet committed, by UUID
+    private final Map<UUID, CompletableFuture<Void>> committing = new HashMap<>();
+
+    public GroupCommitSkyUserRepository(SkyUserRepository delegate,
+                                        ScheduledExecutorService scheduler,
+                                        long windowMillis,
+                                        int maxBatchSize) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public CompletableFuture<Void> save(SkyUser user) {
+        CompletableFuture<Void> future;
+        boolean commitNow;
+
+        synchronized (lock) {
+            future = enqueue(user);
+            commitNow = pending.size() >= maxBatchSize;
+
+            if (!commitNow && scheduledCommit == null) {
+                scheduledCommit = scheduler.schedule(this::commit, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (commitNow) {
+            commit();
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(List<SkyUser> users) {
+        if (users.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Already a batch, join it with whatever is pending and commit right away
+        CompletableFuture<?>[] futures;
+        synchronized (lock) {
+            futures = users.stream()
+                    .map(this::enqueue)
+                    .toArray(CompletableFuture[]::new);
+        }
+
+        commit();
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Write all pending saves now
+     */
+    public CompletableFuture<Void> flush() {
+        return commit();
+    }
+
+    /**
+     * Get the number of saves waiting for the next commit
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(SkyUser user) {
+        // Queue a snapshot, the caller keeps changing its own instance until the commit
+        PendingSave save = pending.get(user.getUuid());
+        if (save != null) {
+            // Newer snapshot of the same user replaces the queued one
+            save.user = user.copy();
+            save.source = user;
+            return save.future;
+        }
+
+        save = new PendingSave(user);
+        pending.put(user.getUuid(), save);
+        return save.future;
+    }
+
+    /**
+     * Commit the pending saves
+     * @return CompletableFuture completing when all of them are committed,
+     *         including saves held back behind an earlier batch
+     */
+    private CompletableFuture<Void> commit() {
+        Map<UUID, PendingSave> batch = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> heldBack = new ArrayList<>();
+        CompletableFuture<Void> batchFuture = new CompletableFuture<>();
+
+        synchronized (lock) {
+            if (scheduledCommit != null) {
+                scheduledCommit.cancel(false);
+                scheduledCommit = null;
+            }
+
+            if (pending.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            Iterator<Map.Entry<UUID, PendingSave>> iterator = pending.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<UUID, PendingSave> save = iterator.next();
+                if (committing.containsKey(save.getKey())) {
+                    // Committed once the batch writing the older snapshot completes
+                    heldBack.add(save.getValue().future);
+                } else {
+                    batch.put(save.getKey(), save.getValue());
+                    iterator.remove();
+                }
+            }
+            batch.keySet().forEach(uuid -> committing.put(uuid, batchFuture));
+        }
+
+        if (batch.isEmpty()) {
+            batchFuture.complete(null);
+        } else {
+            write(batch, batchFuture);
+        }
+
+        if (heldBack.isEmpty()) {
+            return batchFuture;
+        }
+        heldBack.add(batchFuture);
+        return CompletableFuture.allOf(heldBack.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void write(Map<UUID, PendingSave> batch, CompletableFuture<Void> batchFuture) {
+        List<SkyUser> users = new ArrayList<>(batch.size());
+        Map<PendingSave, CosmeticChanges> cosmeticChanges = new IdentityHashMap<>();
+        for (PendingSave save : batch.values()) {
+            users.add(save.user);
+
+            UserCosmetics cosmetics = save.user.getCosmetics();
+            if (cosmetics != null && cosmetics.isLoaded()) {
+                CosmeticChanges changes = cosmetics.getChanges();
+                if (!changes.isEmpty()) {
+                    cosmeticChanges.put(save, changes);
+                }
+            }
+        }
+
+        CompletableFuture<Void> saved;
+        try {
+            saved = delegate.saveAll(users);
+        } catch (RuntimeException e) {
+            saved = CompletableFuture.failedFuture(e);
+        }
+
+        saved.whenComplete((v, throwable) -> {
+            boolean released;
+            synchronized (lock) {
+                batch.keySet().forEach(uuid -> committing.remove(uuid, batchFuture));
+                released = batch.keySet().stream().anyMatch(pending::containsKey);
+            }
+
+            if (throwable == null) {
+                // The snapshots were marked persisted, move the callers' instances forward too
+                cosmeticChanges.forEach((save, changes) -> save.source.getCosmetics().markPersisted(changes));
+            }
+
+            for (PendingSave save : batch.values()) {
+                if (throwable != null) {
+                    save.future.completeExceptionally(throwable);
+                } else {
+                    save.future.complete(null);
+                }
+            }
+
+            if (throwable != null) {
+                batchFuture.completeExceptionally(throwable);
+            } else {
+                batchFuture.complete(null);
+            }
+
+            if (released) {
+                // Newer snapshots held back behind this batch
+                commit();
+            }
+        });
+    }
+
+    /**
+     * Write pending saves first if any of the given users has one,
+     * so later operations never race with an older queued snapshot
+     */
+    private CompletableFuture<Void> flushIfPending(Collection<UUID> uuids) {
+        List<CompletableFuture<Void>> waitFor = new ArrayList<>();
+        boolean anyPending = false;
+
+        synchronized (lock) {
+            for (UUID uuid : uuids) {
+                if (pending.containsKey(uuid)) {
+                    anyPending = true;
+                }
+
+                CompletableFuture<Void> inProgress = committing.get(uuid);
+                if (inProgress != null && !waitFor.contains(inProgress)) {
+                    waitFor.add(inProgress);
+                }
+            }
+        }
+
+        if (anyPending) {
+            waitFor.add(commit());
+        }
+
+        if (waitFor.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // A failed save is reported to its own caller
+        return CompletableFuture.allOf(waitFor.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(throwable -> null);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByUuid(UUID uuid) {
+        return flushIfPending(Collections.singleton(uuid))
+                .thenCompose(v -> delegate.findByUuid(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> findAllByUuids(Collection<UUID> uuids) {
+        return flushIfPending(uuids)
+                .thenCompose(v -> delegate.findAllByUuids(uuids));
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByName(String name) {
+        return delegate.findByName(name);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return flushIfPending(Collections.singleton(uuid))
+                .thenCompose(v -> delegate.applyDelta(uuid, delta));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> spendCoins(UUID uuid, int amount) {
+        return flushIfPending(Collections.singleton(uuid))
+                .thenCompose(v -> delegate.spendCoins(uuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        return flushIfPending(deltas.keySet())
+                .thenCompose(v -> delegate.applyDeltas(deltas));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteByUuid(UUID uuid) {
+        return flushIfPending(Collections.singleton(uuid))
+                .thenCompose(v -> delegate.deleteByUuid(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertIfAbsent(SkyUser user) {
+        synchronized (lock) {
+            if (pending.containsKey(user.getUuid()) || committing.containsKey(user.getUuid())) {
+                return CompletableFuture.completedFuture(false);
+            }
+        }
+        return delegate.insertIfAbsent(user);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByUuid(UUID uuid) {
+        synchronized (lock) {
+            if (pending.containsKey(uuid) || committing.containsKey(uuid)) {
+                return CompletableFuture.completedFuture(true);
+            }
+        }
+        return delegate.existsByUuid(uuid);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByKills(int limit) {
+        return delegate.getTopPlayersByKills(limit);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByWins(int limit) {
+        return delegate.getTopPlayersByWins(limit);
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getLeaderboardPage(LeaderboardStat stat, LeaderboardCursor after, int limit) {
+        return delegate.getLeaderboardPage(stat, after, limit);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Long>> rankOf(UUID uuid, LeaderboardStat stat) {
+        return delegate.rankOf(uuid, stat);
+    }
+
+    @Override
+    public CompletableFuture<List<UUID>> findRecentlySeenUuids(int limit) {
+        return delegate.findRecentlySeenUuids(limit);
+    }
+
+    @Override
+    @Deprecated
+    public CompletableFuture<List<SkyUser>> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public CompletableFuture<Long> streamAll(Consumer<SkyUser> consumer, int batchSize) {
+        return delegate.streamAll(consumer, batchSize);
+    }
+
+    @Override
+    public CompletableFuture<Long> count() {
+        return delegate.count();
+    }
+
+    @Override
+    public CompletableFuture<Long> approximateCount() {
+        return delegate.approximateCount();
+    }
+
+    /**
+     * A queued save and the future shared by everyone who queued it
+     */
+    private static class PendingSave {
+        private SkyUser user;
+        private SkyUser source;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingSave(SkyUser user) {
+            this.user = user.copy();
+            this.source = user;
+        }
+    }
+}
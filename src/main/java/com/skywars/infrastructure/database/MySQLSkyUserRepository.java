@@ -1,35 +1,74 @@
 package com.skywars.infrastructure.database;
 
+import com.skywars.domain.cosmetic.CosmeticChanges;
+import com.skywars.domain.cosmetic.CosmeticType;
+import com.skywars.domain.cosmetic.UserCosmetics;
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.leaderboard.LeaderboardCursor;
+import com.skywars.domain.leaderboard.LeaderboardStat;
 import com.skywars.domain.repository.SkyUserRepository;
+import com.skywars.infrastructure.util.UuidUtil;
 import com.zaxxer.hikari.HikariDataSource;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * MySQLSkyUserRepository - MySQL implementation of SkyUserRepository
  * 
  * This class handles all database operations using HikariCP connection pooling
  * for optimal performance and reliability.
+ * Read-only queries that tolerate slightly stale data (leaderboards, name lookups,
+ * counts and scans) are routed through the ReplicaRouter. Lookups by UUID and all
+ * writes always use the primary, as does a name lookup the replica did not find.
+ * Tables are created and migrated by {@link #initialize}, queries fail until it completes.
  */
 public class MySQLSkyUserRepository implements SkyUserRepository {
     
     private final HikariDataSource dataSource;
+    private final ReplicaRouter readRouter;
     private final Executor executor;
     
+    // Last user count read or reconciled, -1 if not known yet
+    private final AtomicLong lastKnownCount = new AtomicLong(-1);
+    
+    // Completed once the tables exist and pending migrations are done
+    private final CompletableFuture<Void> schemaReady = new CompletableFuture<>();
+    
     // SQL Queries
-    private static final String CREATE_TABLE = """
-            CREATE TABLE IF NOT EXISTS sky_users (
-                uuid VARCHAR(36) PRIMARY KEY,
+    // UUIDs are stored as BINARY(16) to keep the clustered and secondary indexes small,
+    // name_lower is a generated column so case-insensitive lookups can use an index
+    private static final String CREATE_TABLE_TEMPLATE = """
+            CREATE TABLE IF NOT EXISTS %s (
+                uuid BINARY(16) PRIMARY KEY,
                 name VARCHAR(16) NOT NULL,
+                name_lower VARCHAR(16) AS (LOWER(name)) VIRTUAL,
                 kills INT DEFAULT 0,
                 deaths INT DEFAULT 0,
                 wins INT DEFAULT 0,
@@ -37,38 +76,119 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
                 coins INT DEFAULT 100,
                 last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
                 first_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                INDEX idx_name (name),
+                INDEX idx_name_lower (name_lower),
                 INDEX idx_kills (kills DESC),
                 INDEX idx_wins (wins DESC),
                 INDEX idx_last_seen (last_seen DESC)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
             """;
     
+    private static final String CREATE_TABLE = String.format(CREATE_TABLE_TEMPLATE, "sky_users");
+    
+    // Cosmetics are stored in normalized tables keyed by user, so saves can
+    // add and remove single rows instead of rewriting the whole set
+    private static final String CREATE_COSMETICS_OWNED_TABLE = """
+            CREATE TABLE IF NOT EXISTS sky_user_cosmetics_owned (
+                uuid BINARY(16) NOT NULL,
+                cosmetic_id VARCHAR(64) NOT NULL,
+                PRIMARY KEY (uuid, cosmetic_id)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+            """;
+    
+    private static final String CREATE_COSMETICS_SELECTED_TABLE = """
+            CREATE TABLE IF NOT EXISTS sky_user_cosmetics_selected (
+                uuid BINARY(16) NOT NULL,
+                cosmetic_type VARCHAR(32) NOT NULL,
+                cosmetic_id VARCHAR(64) NOT NULL,
+                PRIMARY KEY (uuid, cosmetic_type)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+            """;
+    
+    // Counters are only written for new users, an existing row only changes
+    // them through APPLY_DELTA so increments from other servers are never overwritten
     private static final String INSERT_OR_UPDATE = """
             INSERT INTO sky_users (uuid, name, kills, deaths, wins, losses, coins, last_seen, first_join)
             VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
             ON DUPLICATE KEY UPDATE
                 name = VALUES(name),
-                kills = VALUES(kills),
-                deaths = VALUES(deaths),
-                wins = VALUES(wins),
-                losses = VALUES(losses),
-                coins = VALUES(coins),
                 last_seen = VALUES(last_seen)
             """;
     
-    private static final String SELECT_BY_UUID = """
-            SELECT uuid, name, kills, deaths, wins, losses, coins, last_seen, first_join
-            FROM sky_users WHERE uuid = ?
+    // New users only, an existing row is left untouched
+    private static final String INSERT_IF_ABSENT = """
+            INSERT IGNORE INTO sky_users (uuid, name, kills, deaths, wins, losses, coins, last_seen, first_join)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
             """;
     
-    private static final String SELECT_BY_NAME = """
-            SELECT uuid, name, kills, deaths, wins, losses, coins, last_seen, first_join
-            FROM sky_users WHERE LOWER(name) = LOWER(?)
+    private static final String APPLY_DELTA = """
+            UPDATE sky_users SET
+                kills = kills + ?,
+                deaths = deaths + ?,
+                wins = wins + ?,
+                losses = losses + ?,
+                coins = coins + ?,
+                last_seen = GREATEST(last_seen, COALESCE(?, last_seen))
+            WHERE uuid = ?
+            """;
+    
+    // The balance check and the decrement are one statement, concurrent spends cannot overdraw
+    private static final String SPEND_COINS = "UPDATE sky_users SET coins = coins - ? WHERE uuid = ? AND coins >= ?";
+    
+    // Maximum number of statements sent in a single batch
+    private static final int BATCH_SIZE = 500;
+    
+    // Batches lock their rows in UUID order so concurrent batches cannot deadlock each other,
+    // a deadlock with another writer (InnoDB picks one victim) is retried this many times
+    private static final int DEADLOCK_RETRIES = 2;
+    private static final String DEADLOCK_SQL_STATE = "40001";
+    private static final int DEADLOCK_ERROR_CODE = 1213;
+    
+    // Single user lookups return the user row once per owned or selected cosmetic
+    // (or with NULL cosmetic columns), so the user and their cosmetics are loaded in
+    // one round trip. Each user is paired with one row per cosmetic kind and every kind
+    // joins only its own table, which avoids an owned x selected cross product without
+    // LATERAL (MySQL 8.0.14+, not supported by MariaDB).
+    private static final String SELECT_WITH_COSMETICS = """
+            SELECT u.uuid, u.name, u.kills, u.deaths, u.wins, u.losses, u.coins, u.last_seen, u.first_join,
+                   CASE WHEN o.cosmetic_id IS NOT NULL THEN 'owned'
+                        WHEN s.cosmetic_id IS NOT NULL THEN 'selected' END AS cosmetic_kind,
+                   s.cosmetic_type, COALESCE(o.cosmetic_id, s.cosmetic_id) AS cosmetic_id
+            FROM sky_users u
+            CROSS JOIN (SELECT 'owned' AS kind UNION ALL SELECT 'selected') k
+            LEFT JOIN sky_user_cosmetics_owned o ON k.kind = 'owned' AND o.uuid = u.uuid
+            LEFT JOIN sky_user_cosmetics_selected s ON k.kind = 'selected' AND s.uuid = u.uuid
+            """;
+    
+    private static final String SELECT_BY_UUID = SELECT_WITH_COSMETICS + "WHERE u.uuid = ?";
+    
+    private static final String SELECT_BY_NAME = SELECT_WITH_COSMETICS + "WHERE u.name_lower = ?";
+    
+    // Followed by a list of placeholders, at most IN_CHUNK_SIZE per query
+    private static final String SELECT_BY_UUIDS = SELECT_WITH_COSMETICS + "WHERE u.uuid IN ";
+    
+    private static final int IN_CHUNK_SIZE = 500;
+    
+    private static final String INSERT_OWNED_COSMETIC =
+            "INSERT IGNORE INTO sky_user_cosmetics_owned (uuid, cosmetic_id) VALUES (?, ?)";
+    
+    private static final String DELETE_OWNED_COSMETIC =
+            "DELETE FROM sky_user_cosmetics_owned WHERE uuid = ? AND cosmetic_id = ?";
+    
+    private static final String UPSERT_SELECTED_COSMETIC = """
+            INSERT INTO sky_user_cosmetics_selected (uuid, cosmetic_type, cosmetic_id)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE cosmetic_id = VALUES(cosmetic_id)
             """;
     
+    private static final String DELETE_SELECTED_COSMETIC =
+            "DELETE FROM sky_user_cosmetics_selected WHERE uuid = ? AND cosmetic_type = ?";
+    
     private static final String DELETE_BY_UUID = "DELETE FROM sky_users WHERE uuid = ?";
     
+    private static final String DELETE_OWNED_COSMETICS_BY_UUID = "DELETE FROM sky_user_cosmetics_owned WHERE uuid = ?";
+    
+    private static final String DELETE_SELECTED_COSMETICS_BY_UUID = "DELETE FROM sky_user_cosmetics_selected WHERE uuid = ?";
+    
     private static final String EXISTS_BY_UUID = "SELECT 1 FROM sky_users WHERE uuid = ? LIMIT 1";
     
     private static final String SELECT_TOP_KILLS = """
@@ -81,6 +201,39 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
             FROM sky_users ORDER BY wins DESC LIMIT ?
             """;
     
+    // Walks idx_last_seen, which carries the primary key, without reading the rows
+    private static final String SELECT_RECENTLY_SEEN_UUIDS = "SELECT uuid FROM sky_users ORDER BY last_seen DESC LIMIT ?";
+    
+    // Leaderboard queries. InnoDB secondary indexes carry the primary key, so idx_kills and
+    // idx_wins are effectively (score DESC, uuid) and cover the inner keyset scan. The outer
+    // join then only reads the rows of a single page.
+    private static final String SELECT_LEADERBOARD_FIRST_PAGE = """
+            SELECT u.uuid, u.name, u.kills, u.deaths, u.wins, u.losses, u.coins, u.last_seen, u.first_join
+            FROM (SELECT uuid FROM sky_users ORDER BY %1$s DESC, uuid LIMIT ?) page
+            JOIN sky_users u ON u.uuid = page.uuid
+            ORDER BY u.%1$s DESC, u.uuid
+            """;
+    
+    private static final String SELECT_LEADERBOARD_PAGE = """
+            SELECT u.uuid, u.name, u.kills, u.deaths, u.wins, u.losses, u.coins, u.last_seen, u.first_join
+            FROM (SELECT uuid FROM sky_users
+                  WHERE %1$s < ? OR (%1$s = ? AND uuid > ?)
+                  ORDER BY %1$s DESC, uuid LIMIT ?) page
+            JOIN sky_users u ON u.uuid = page.uuid
+            ORDER BY u.%1$s DESC, u.uuid
+            """;
+    
+    private static final Map<LeaderboardStat, String> LEADERBOARD_FIRST_PAGE_QUERIES = new EnumMap<>(LeaderboardStat.class);
+    private static final Map<LeaderboardStat, String> LEADERBOARD_PAGE_QUERIES = new EnumMap<>(LeaderboardStat.class);
+    
+    static {
+        for (LeaderboardStat stat : LeaderboardStat.values()) {
+            String column = getStatColumn(stat);
+            LEADERBOARD_FIRST_PAGE_QUERIES.put(stat, String.format(SELECT_LEADERBOARD_FIRST_PAGE, column));
+            LEADERBOARD_PAGE_QUERIES.put(stat, String.format(SELECT_LEADERBOARD_PAGE, column));
+        }
+    }
+    
     private static final String SELECT_ALL = """
             SELECT uuid, name, kills, deaths, wins, losses, coins, last_seen, first_join
             FROM sky_users
@@ -88,35 +241,127 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
     
     private static final String COUNT_ALL = "SELECT COUNT(*) FROM sky_users";
     
+    // Maintained row count of sky_users, kept up to date by the insert/delete
+    // triggers installed by SkyUserSchemaMigrator and reconciled periodically
+    private static final String CREATE_COUNTERS_TABLE = """
+            CREATE TABLE IF NOT EXISTS sky_user_counters (
+                name VARCHAR(32) PRIMARY KEY,
+                value BIGINT NOT NULL
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+            """;
+    
+    private static final String USER_COUNTER = "sky_users";
+    
+    private static final String SELECT_COUNTER = "SELECT value FROM sky_user_counters WHERE name = ?";
+    
+    private static final String SEED_COUNTER = "INSERT IGNORE INTO sky_user_counters (name, value) VALUES (?, ?)";
+    
+    // Only correct the counter if nothing changed it while the rows were being counted
+    private static final String RECONCILE_COUNTER = "UPDATE sky_user_counters SET value = ? WHERE name = ? AND value = ?";
+    
     public MySQLSkyUserRepository(HikariDataSource dataSource, Executor executor) {
+        this(dataSource, executor, new ReplicaRouter(dataSource));
+    }
+    
+    public MySQLSkyUserRepository(HikariDataSource dataSource, Executor executor, ReplicaRouter readRouter) {
         this.dataSource = dataSource;
+        this.readRouter = readRouter;
         this.executor = executor;
-        initializeDatabase();
     }
     
-    private void initializeDatabase() {
+    /**
+     * Create the tables and run pending schema migrations on the MySQL executor
+     * While another server holds the migration lock, the attempt is repeated
+     * every retryDelaySeconds instead of waiting for it.
+     * @return CompletableFuture completing once the schema is ready
+     */
+    public CompletableFuture<Void> initialize(ScheduledExecutorService scheduler, long retryDelaySeconds) {
+        attemptInitialize(scheduler, retryDelaySeconds);
+        return schemaReady;
+    }
+    
+    private void attemptInitialize(ScheduledExecutorService scheduler, long retryDelaySeconds) {
+        CompletableFuture<Boolean> migrated;
+        try {
+            migrated = CompletableFuture.supplyAsync(this::initializeDatabase, executor);
+        } catch (RejectedExecutionException e) {
+            migrated = CompletableFuture.failedFuture(e);
+        }
+        
+        migrated.whenComplete((done, throwable) -> {
+            if (throwable != null) {
+                schemaReady.completeExceptionally(throwable);
+            } else if (done) {
+                schemaReady.complete(null);
+            } else {
+                System.err.println("Waiting for another server to migrate sky_users, retrying in " + retryDelaySeconds + " seconds");
+                try {
+                    scheduler.schedule(() -> attemptInitialize(scheduler, retryDelaySeconds), retryDelaySeconds, TimeUnit.SECONDS);
+                } catch (RejectedExecutionException e) {
+                    schemaReady.completeExceptionally(e);
+                }
+            }
+        });
+    }
+    
+    /**
+     * @return True if the schema is ready, false if another server is migrating it
+     */
+    private boolean initializeDatabase() {
         try (Connection connection = dataSource.getConnection();
              Statement statement = connection.createStatement()) {
             statement.execute(CREATE_TABLE);
+            statement.execute(CREATE_COSMETICS_OWNED_TABLE);
+            statement.execute(CREATE_COSMETICS_SELECTED_TABLE);
+            statement.execute(CREATE_COUNTERS_TABLE);
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to initialize database", e);
+            throw new CompletionException("Failed to initialize database", e);
+        }
+        
+        SkyUserSchemaMigrator migrator = new SkyUserSchemaMigrator(dataSource);
+        try {
+            if (!migrator.migrate(CREATE_TABLE_TEMPLATE)) {
+                return false;
+            }
+        } catch (SQLException e) {
+            throw new CompletionException("Failed to migrate database schema", e);
+        }
+        
+        migrator.installCountTriggers();
+        seedUserCounter();
+        return true;
+    }
+    
+    /**
+     * Create the user counter row from a full count if it does not exist yet
+     */
+    private void seedUserCounter() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (readCounter(connection) >= 0) {
+                return;
+            }
+            
+            long count = countRows(connection);
+            try (PreparedStatement statement = connection.prepareStatement(SEED_COUNTER)) {
+                statement.setString(1, USER_COUNTER);
+                statement.setLong(2, count);
+                statement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to seed user counter: " + e.getMessage());
         }
     }
     
     @Override
     public CompletableFuture<Optional<SkyUser>> findByUuid(UUID uuid) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = dataSource.getConnection();
+            try (Connection connection = getConnection();
                  PreparedStatement statement = connection.prepareStatement(SELECT_BY_UUID)) {
                 
-                statement.setString(1, uuid.toString());
+                statement.setBytes(1, UuidUtil.toBytes(uuid));
                 
                 try (ResultSet resultSet = statement.executeQuery()) {
-                    if (resultSet.next()) {
-                        return Optional.of(mapResultSetToSkyUser(resultSet));
-                    } else {
-                        return Optional.<SkyUser>empty();
-                    }
+                    return mapResultSetToSkyUsersWithCosmetics(resultSet).values().stream().findFirst();
                 }
             } catch (SQLException e) {
                 throw new CompletionException("Failed to find user by UUID: " + uuid, e);
@@ -127,68 +372,90 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
     @Override
     public CompletableFuture<Optional<SkyUser>> findByName(String name) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = dataSource.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(SELECT_BY_NAME)) {
-                
-                statement.setString(1, name);
+            try {
+                Optional<SkyUser> user;
+                try (Connection connection = getReadConnection()) {
+                    user = findByName(connection, name);
+                }
                 
-                try (ResultSet resultSet = statement.executeQuery()) {
-                    if (resultSet.next()) {
-                        return Optional.of(mapResultSetToSkyUser(resultSet));
-                    } else {
-                        return Optional.<SkyUser>empty();
+                // A new or renamed player may not have reached the replica yet,
+                // callers remember misses so only the primary may report one
+                if (user.isEmpty() && readRouter.hasReplica()) {
+                    try (Connection connection = getPrimaryConnection()) {
+                        user = findByName(connection, name);
                     }
                 }
+                return user;
             } catch (SQLException e) {
                 throw new CompletionException("Failed to find user by name: " + name, e);
             }
         }, executor);
     }
     
+    private Optional<SkyUser> findByName(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_BY_NAME)) {
+            statement.setString(1, name.toLowerCase(Locale.ROOT));
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return mapResultSetToSkyUsersWithCosmetics(resultSet).values().stream().findFirst();
+            }
+        }
+    }
+    
     @Override
-    public CompletableFuture<Void> save(SkyUser user) {
-        return CompletableFuture.runAsync(() -> {
-            try (Connection connection = dataSource.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(INSERT_OR_UPDATE)) {
-                
-                statement.setString(1, user.getUuid().toString());
-                statement.setString(2, user.getName());
-                statement.setInt(3, user.getKills());
-                statement.setInt(4, user.getDeaths());
-                statement.setInt(5, user.getWins());
-                statement.setInt(6, user.getLosses());
-                statement.setInt(7, user.getCoins());
-                statement.setTimestamp(8, Timestamp.valueOf(user.getLastSeen()));
-                statement.setTimestamp(9, Timestamp.valueOf(user.getFirstJoin()));
-                
-                statement.executeUpdate();
+    public CompletableFuture<Map<UUID, SkyUser>> findAllByUuids(Collection<UUID> uuids) {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<UUID, SkyUser> users = new HashMap<>();
+            if (uuids.isEmpty()) {
+                return users;
+            }
+            
+            List<UUID> uuidList = new ArrayList<>(new LinkedHashSet<>(uuids));
+            try (Connection connection = getConnection()) {
+                for (int start = 0; start < uuidList.size(); start += IN_CHUNK_SIZE) {
+                    List<UUID> chunk = uuidList.subList(start, Math.min(start + IN_CHUNK_SIZE, uuidList.size()));
+                    String query = SELECT_BY_UUIDS + "(" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                    
+                    try (PreparedStatement statement = connection.prepareStatement(query)) {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            statement.setBytes(i + 1, UuidUtil.toBytes(chunk.get(i)));
+                        }
+                        
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            users.putAll(mapResultSetToSkyUsersWithCosmetics(resultSet));
+                        }
+                    }
+                }
+                return users;
             } catch (SQLException e) {
-                throw new CompletionException("Failed to save user: " + user.getUuid(), e);
+                throw new CompletionException("Failed to find " + uuidList.size() + " users by UUID", e);
             }
         }, executor);
     }
     
     @Override
-    public CompletableFuture<Void> saveAll(List<SkyUser> users) {
+    public CompletableFuture<Void> save(SkyUser user) {
         return CompletableFuture.runAsync(() -> {
-            try (Connection connection = dataSource.getConnection()) {
+            CosmeticChanges changes = getCosmeticChanges(user);
+            
+            try (Connection connection = getConnection()) {
+                if (changes == null) {
+                    try (PreparedStatement statement = connection.prepareStatement(INSERT_OR_UPDATE)) {
+                        bindUser(statement, user);
+                        statement.executeUpdate();
+                    }
+                    return;
+                }
+                
                 connection.setAutoCommit(false);
                 
-                try (PreparedStatement statement = connection.prepareStatement(INSERT_OR_UPDATE)) {
-                    for (SkyUser user : users) {
-                        statement.setString(1, user.getUuid().toString());
-                        statement.setString(2, user.getName());
-                        statement.setInt(3, user.getKills());
-                        statement.setInt(4, user.getDeaths());
-                        statement.setInt(5, user.getWins());
-                        statement.setInt(6, user.getLosses());
-                        statement.setInt(7, user.getCoins());
-                        statement.setTimestamp(8, Timestamp.valueOf(user.getLastSeen()));
-                        statement.setTimestamp(9, Timestamp.valueOf(user.getFirstJoin()));
-                        statement.addBatch();
-                    }
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_OR_UPDATE);
+                     CosmeticStatements cosmeticStatements = new CosmeticStatements(connection)) {
+                    bindUser(statement, user);
+                    statement.executeUpdate();
                     
-                    statement.executeBatch();
+                    cosmeticStatements.add(user.getUuid(), changes);
+                    cosmeticStatements.execute();
                     connection.commit();
                 } catch (SQLException e) {
                     connection.rollback();
@@ -196,20 +463,147 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
                 } finally {
                     connection.setAutoCommit(true);
                 }
+                
+                user.getCosmetics().markPersisted(changes);
+            } catch (SQLException e) {
+                throw new CompletionException("Failed to save user: " + user.getUuid(), e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> insertIfAbsent(SkyUser user) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = getConnection();
+                 PreparedStatement statement = connection.prepareStatement(INSERT_IF_ABSENT)) {
+                
+                bindUser(statement, user);
+                return statement.executeUpdate() > 0;
+            } catch (SQLException e) {
+                throw new CompletionException("Failed to insert user: " + user.getUuid(), e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Void> saveAll(List<SkyUser> users) {
+        return CompletableFuture.runAsync(() -> {
+            List<SkyUser> sorted = new ArrayList<>(users);
+            sorted.sort(Comparator.comparing(SkyUser::getUuid));
+            Map<SkyUser, CosmeticChanges> cosmeticChanges = new IdentityHashMap<>();
+            
+            try {
+                inTransaction(connection -> {
+                    cosmeticChanges.clear();
+                    try (PreparedStatement statement = connection.prepareStatement(INSERT_OR_UPDATE);
+                         CosmeticStatements cosmeticStatements = new CosmeticStatements(connection)) {
+                        for (SkyUser user : sorted) {
+                            bindUser(statement, user);
+                            statement.addBatch();
+                            
+                            CosmeticChanges changes = getCosmeticChanges(user);
+                            if (changes != null) {
+                                cosmeticStatements.add(user.getUuid(), changes);
+                                cosmeticChanges.put(user, changes);
+                            }
+                        }
+                        
+                        statement.executeBatch();
+                        cosmeticStatements.execute();
+                    }
+                });
             } catch (SQLException e) {
                 throw new CompletionException("Failed to save users batch", e);
             }
+            
+            cosmeticChanges.forEach((user, changes) -> user.getCosmetics().markPersisted(changes));
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = getConnection();
+                 PreparedStatement statement = connection.prepareStatement(APPLY_DELTA)) {
+                
+                bindDelta(statement, uuid, delta);
+                return statement.executeUpdate() > 0;
+            } catch (SQLException e) {
+                throw new CompletionException("Failed to apply stat delta for user: " + uuid, e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> spendCoins(UUID uuid, int amount) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = getConnection();
+                 PreparedStatement statement = connection.prepareStatement(SPEND_COINS)) {
+                
+                statement.setInt(1, amount);
+                statement.setBytes(2, UuidUtil.toBytes(uuid));
+                statement.setInt(3, amount);
+                return statement.executeUpdate() > 0;
+            } catch (SQLException e) {
+                throw new CompletionException("Failed to spend coins for user: " + uuid, e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        return CompletableFuture.runAsync(() -> {
+            if (deltas.isEmpty()) {
+                return;
+            }
+            
+            Map<UUID, StatDelta> sorted = new TreeMap<>(deltas);
+            try {
+                inTransaction(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(APPLY_DELTA)) {
+                        int batched = 0;
+                        for (Map.Entry<UUID, StatDelta> entry : sorted.entrySet()) {
+                            bindDelta(statement, entry.getKey(), entry.getValue());
+                            statement.addBatch();
+                            
+                            // rewriteBatchedStatements sends each batch in a single round trip
+                            if (++batched % BATCH_SIZE == 0) {
+                                statement.executeBatch();
+                            }
+                        }
+                        
+                        if (batched % BATCH_SIZE != 0) {
+                            statement.executeBatch();
+                        }
+                    }
+                });
+            } catch (SQLException e) {
+                throw new CompletionException("Failed to apply stat deltas batch", e);
+            }
         }, executor);
     }
     
     @Override
     public CompletableFuture<Void> deleteByUuid(UUID uuid) {
         return CompletableFuture.runAsync(() -> {
-            try (Connection connection = dataSource.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(DELETE_BY_UUID)) {
+            try (Connection connection = getConnection()) {
+                connection.setAutoCommit(false);
                 
-                statement.setString(1, uuid.toString());
-                statement.executeUpdate();
+                byte[] uuidBytes = UuidUtil.toBytes(uuid);
+                try {
+                    for (String query : new String[]{DELETE_OWNED_COSMETICS_BY_UUID, DELETE_SELECTED_COSMETICS_BY_UUID, DELETE_BY_UUID}) {
+                        try (PreparedStatement statement = connection.prepareStatement(query)) {
+                            statement.setBytes(1, uuidBytes);
+                            statement.executeUpdate();
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
             } catch (SQLException e) {
                 throw new CompletionException("Failed to delete user: " + uuid, e);
             }
@@ -219,10 +613,10 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
     @Override
     public CompletableFuture<Boolean> existsByUuid(UUID uuid) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = dataSource.getConnection();
+            try (Connection connection = getConnection();
                  PreparedStatement statement = connection.prepareStatement(EXISTS_BY_UUID)) {
                 
-                statement.setString(1, uuid.toString());
+                statement.setBytes(1, UuidUtil.toBytes(uuid));
                 
                 try (ResultSet resultSet = statement.executeQuery()) {
                     return resultSet.next();
@@ -236,7 +630,7 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
     @Override
     public CompletableFuture<List<SkyUser>> getTopPlayersByKills(int limit) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = dataSource.getConnection();
+            try (Connection connection = getReadConnection();
                  PreparedStatement statement = connection.prepareStatement(SELECT_TOP_KILLS)) {
                 
                 statement.setInt(1, limit);
@@ -257,7 +651,7 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
     @Override
     public CompletableFuture<List<SkyUser>> getTopPlayersByWins(int limit) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = dataSource.getConnection();
+            try (Connection connection = getReadConnection();
                  PreparedStatement statement = connection.prepareStatement(SELECT_TOP_WINS)) {
                 
                 statement.setInt(1, limit);
@@ -276,9 +670,68 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
     }
     
     @Override
+    public CompletableFuture<List<SkyUser>> getLeaderboardPage(LeaderboardStat stat, LeaderboardCursor after, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            String query = after == null ? LEADERBOARD_FIRST_PAGE_QUERIES.get(stat) : LEADERBOARD_PAGE_QUERIES.get(stat);
+            
+            try (Connection connection = getReadConnection();
+                 PreparedStatement statement = connection.prepareStatement(query)) {
+                
+                if (after == null) {
+                    statement.setInt(1, limit);
+                } else {
+                    statement.setInt(1, after.getScore());
+                    statement.setInt(2, after.getScore());
+                    statement.setBytes(3, UuidUtil.toBytes(after.getUuid()));
+                    statement.setInt(4, limit);
+                }
+                
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<SkyUser> users = new ArrayList<>();
+                    while (resultSet.next()) {
+                        users.add(mapResultSetToSkyUser(resultSet));
+                    }
+                    return users;
+                }
+            } catch (SQLException e) {
+                throw new CompletionException("Failed to get leaderboard page by " + stat, e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Optional<Long>> rankOf(UUID uuid, LeaderboardStat stat) {
+        // Counting the players with a higher score reads one index entry per player, O(rank)
+        return CompletableFuture.failedFuture(new UnsupportedOperationException(
+                "Ranks are served from the Redis leaderboards (leaderboards.redis.enabled)"));
+    }
+    
+    @Override
+    public CompletableFuture<List<UUID>> findRecentlySeenUuids(int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = getReadConnection();
+                 PreparedStatement statement = connection.prepareStatement(SELECT_RECENTLY_SEEN_UUIDS)) {
+                
+                statement.setInt(1, limit);
+                
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<UUID> uuids = new ArrayList<>();
+                    while (resultSet.next()) {
+                        uuids.add(UuidUtil.fromBytes(resultSet.getBytes(1)));
+                    }
+                    return uuids;
+                }
+            } catch (SQLException e) {
+                throw new CompletionException("Failed to get recently seen players", e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    @Deprecated
     public CompletableFuture<List<SkyUser>> findAll() {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = dataSource.getConnection();
+            try (Connection connection = getReadConnection();
                  PreparedStatement statement = connection.prepareStatement(SELECT_ALL);
                  ResultSet resultSet = statement.executeQuery()) {
                 
@@ -294,25 +747,261 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
     }
     
     @Override
-    public CompletableFuture<Long> count() {
+    public CompletableFuture<Long> streamAll(Consumer<SkyUser> consumer, int batchSize) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = dataSource.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(COUNT_ALL);
-                 ResultSet resultSet = statement.executeQuery()) {
+            // Forward-only, read-only statement with a fetch size uses a server-side cursor
+            // (useCursorFetch), so only one batch of rows is held in memory at a time
+            try (Connection connection = getReadConnection();
+                 PreparedStatement statement = connection.prepareStatement(SELECT_ALL,
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
                 
-                if (resultSet.next()) {
-                    return resultSet.getLong(1);
-                } else {
-                    return 0L;
+                statement.setFetchSize(Math.max(1, batchSize));
+                
+                long streamed = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(mapResultSetToSkyUser(resultSet));
+                        streamed++;
+                    }
                 }
+                return streamed;
+            } catch (SQLException e) {
+                throw new CompletionException("Failed to stream users", e);
+            }
+        }, executor);
+    }
+    
+    @Override
+    public CompletableFuture<Long> count() {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = getReadConnection()) {
+                long count = readCounter(connection);
+                if (count < 0) {
+                    // Counter not seeded (e.g. table created by another version)
+                    count = countRows(connection);
+                }
+                
+                lastKnownCount.set(count);
+                return count;
             } catch (SQLException e) {
                 throw new CompletionException("Failed to count users", e);
             }
         }, executor);
     }
     
+    @Override
+    public CompletableFuture<Long> approximateCount() {
+        long count = lastKnownCount.get();
+        if (count >= 0) {
+            return CompletableFuture.completedFuture(count);
+        }
+        return count();
+    }
+    
+    /**
+     * Compare the maintained counter with a full count and correct it if it drifted
+     * 
+     * Runs a full index scan, so it is meant to be scheduled rarely. The counter is
+     * only corrected if it did not change during the scan, otherwise the next run
+     * tries again.
+     * 
+     * @return CompletableFuture containing the exact count
+     */
+    public CompletableFuture<Long> reconcileCount() {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = getConnection()) {
+                long before = readCounter(connection);
+                long count = countRows(connection);
+                
+                if (before != count) {
+                    try (PreparedStatement statement = connection.prepareStatement(RECONCILE_COUNTER)) {
+                        statement.setLong(1, count);
+                        statement.setString(2, USER_COUNTER);
+                        statement.setLong(3, before);
+                        
+                        if (statement.executeUpdate() > 0) {
+                            System.err.println("User counter drifted by " + (count - before) + ", corrected to " + count);
+                        }
+                    }
+                }
+                
+                lastKnownCount.set(count);
+                return count;
+            } catch (SQLException e) {
+                throw new CompletionException("Failed to reconcile user count", e);
+            }
+        }, executor);
+    }
+    
+    private long readCounter(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_COUNTER)) {
+            statement.setString(1, USER_COUNTER);
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : -1;
+            }
+        }
+    }
+    
+    private long countRows(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(COUNT_ALL);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0L;
+        }
+    }
+    
+    private static String getStatColumn(LeaderboardStat stat) {
+        return switch (stat) {
+            case KILLS -> "kills";
+            case WINS -> "wins";
+        };
+    }
+    
+    /**
+     * Connections for queries, refused until the schema is ready so nothing
+     * runs against a table that is still being migrated
+     */
+    private Connection getConnection() throws SQLException {
+        checkSchemaReady();
+        return dataSource.getConnection();
+    }
+    
+    private Connection getReadConnection() throws SQLException {
+        checkSchemaReady();
+        return readRouter.getReadConnection();
+    }
+    
+    private Connection getPrimaryConnection() throws SQLException {
+        checkSchemaReady();
+        return readRouter.getPrimaryConnection();
+    }
+    
+    private void checkSchemaReady() throws SQLException {
+        if (!schemaReady.isDone() || schemaReady.isCompletedExceptionally()) {
+            throw new SQLException("The sky_users schema is not ready yet (migration pending or failed)");
+        }
+    }
+    
+    /**
+     * Run a unit of work in a transaction, retrying it from scratch when it was
+     * chosen as a deadlock victim (the rollback already released its locks)
+     */
+    private void inTransaction(Transaction transaction) throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            try (Connection connection = getConnection()) {
+                connection.setAutoCommit(false);
+                
+                try {
+                    transaction.run(connection);
+                    connection.commit();
+                    return;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    if (attempt >= DEADLOCK_RETRIES || !isDeadlock(e)) {
+                        throw e;
+                    }
+                    System.err.println("Transaction deadlocked, retrying (attempt " + (attempt + 2) + ")");
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        }
+    }
+    
+    private static boolean isDeadlock(SQLException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && (DEADLOCK_SQL_STATE.equals(sqlException.getSQLState())
+                    || sqlException.getErrorCode() == DEADLOCK_ERROR_CODE)) {
+                return true;
+            }
+        }
+        SQLException next = exception.getNextException();
+        return next != null && next != exception && isDeadlock(next);
+    }
+    
+    private void bindDelta(PreparedStatement statement, UUID uuid, StatDelta delta) throws SQLException {
+        statement.setInt(1, delta.getKills());
+        statement.setInt(2, delta.getDeaths());
+        statement.setInt(3, delta.getWins());
+        statement.setInt(4, delta.getLosses());
+        statement.setInt(5, delta.getCoins());
+        statement.setTimestamp(6, delta.getLastSeen() != null ? Timestamp.valueOf(delta.getLastSeen()) : null);
+        statement.setBytes(7, UuidUtil.toBytes(uuid));
+    }
+    
+    private void bindUser(PreparedStatement statement, SkyUser user) throws SQLException {
+        statement.setBytes(1, UuidUtil.toBytes(user.getUuid()));
+        statement.setString(2, user.getName());
+        statement.setInt(3, user.getKills());
+        statement.setInt(4, user.getDeaths());
+        statement.setInt(5, user.getWins());
+        statement.setInt(6, user.getLosses());
+        statement.setInt(7, user.getCoins());
+        statement.setTimestamp(8, Timestamp.valueOf(user.getLastSeen()));
+        statement.setTimestamp(9, Timestamp.valueOf(user.getFirstJoin()));
+    }
+    
+    /**
+     * Get the cosmetic changes to write for a user, or null if there are none
+     */
+    private CosmeticChanges getCosmeticChanges(SkyUser user) {
+        UserCosmetics cosmetics = user.getCosmetics();
+        if (cosmetics == null || !cosmetics.isLoaded()) {
+            return null;
+        }
+        
+        CosmeticChanges changes = cosmetics.getChanges();
+        return changes.isEmpty() ? null : changes;
+    }
+    
+    /**
+     * Map a user without cosmetics (leaderboards, scans)
+     */
     private SkyUser mapResultSetToSkyUser(ResultSet resultSet) throws SQLException {
-        UUID uuid = UUID.fromString(resultSet.getString("uuid"));
+        return mapResultSetToSkyUser(resultSet, UserCosmetics.notLoaded());
+    }
+    
+    /**
+     * Map users and their cosmetics from the rows of SELECT_WITH_COSMETICS,
+     * which contain each user once per owned or selected cosmetic (rows without
+     * a cosmetic have a NULL cosmetic_kind)
+     */
+    private Map<UUID, SkyUser> mapResultSetToSkyUsersWithCosmetics(ResultSet resultSet) throws SQLException {
+        Map<UUID, SkyUser> users = new LinkedHashMap<>();
+        Map<UUID, Set<String>> owned = new HashMap<>();
+        Map<UUID, Map<CosmeticType, String>> selected = new HashMap<>();
+        
+        while (resultSet.next()) {
+            UUID uuid = UuidUtil.fromBytes(resultSet.getBytes("uuid"));
+            if (!users.containsKey(uuid)) {
+                users.put(uuid, mapResultSetToSkyUser(resultSet, null));
+                owned.put(uuid, new HashSet<>());
+                selected.put(uuid, new EnumMap<>(CosmeticType.class));
+            }
+            
+            String kind = resultSet.getString("cosmetic_kind");
+            String cosmeticId = resultSet.getString("cosmetic_id");
+            
+            if ("owned".equals(kind)) {
+                owned.get(uuid).add(cosmeticId);
+            } else if ("selected".equals(kind)) {
+                try {
+                    selected.get(uuid).put(CosmeticType.valueOf(resultSet.getString("cosmetic_type")), cosmeticId);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Ignoring unknown cosmetic type for user " + uuid + ": " + resultSet.getString("cosmetic_type"));
+                }
+            }
+        }
+        
+        for (SkyUser user : users.values()) {
+            user.setCosmetics(UserCosmetics.fromPersisted(selected.get(user.getUuid()), owned.get(user.getUuid())));
+        }
+        return users;
+    }
+    
+    private SkyUser mapResultSetToSkyUser(ResultSet resultSet, UserCosmetics cosmetics) throws SQLException {
+        UUID uuid = UuidUtil.fromBytes(resultSet.getBytes("uuid"));
         String name = resultSet.getString("name");
         int kills = resultSet.getInt("kills");
         int deaths = resultSet.getInt("deaths");
@@ -322,6 +1011,73 @@ public class MySQLSkyUserRepository implements SkyUserRepository {
         LocalDateTime lastSeen = resultSet.getTimestamp("last_seen").toLocalDateTime();
         LocalDateTime firstJoin = resultSet.getTimestamp("first_join").toLocalDateTime();
         
-        return SkyUser.create(uuid, name, kills, deaths, wins, losses, coins, lastSeen, firstJoin);
+        return SkyUser.create(uuid, name, kills, deaths, wins, losses, coins, lastSeen, firstJoin, cosmetics);
+    }
+    
+    /**
+     * Batched statements writing cosmetic changes, executed in the caller's transaction
+     */
+    @FunctionalInterface
+    private interface Transaction {
+        void run(Connection connection) throws SQLException;
+    }
+    
+    private static class CosmeticStatements implements AutoCloseable {
+        
+        private final PreparedStatement insertOwned;
+        private final PreparedStatement deleteOwned;
+        private final PreparedStatement upsertSelected;
+        private final PreparedStatement deleteSelected;
+        
+        private CosmeticStatements(Connection connection) throws SQLException {
+            this.insertOwned = connection.prepareStatement(INSERT_OWNED_COSMETIC);
+            this.deleteOwned = connection.prepareStatement(DELETE_OWNED_COSMETIC);
+            this.upsertSelected = connection.prepareStatement(UPSERT_SELECTED_COSMETIC);
+            this.deleteSelected = connection.prepareStatement(DELETE_SELECTED_COSMETIC);
+        }
+        
+        private void add(UUID uuid, CosmeticChanges changes) throws SQLException {
+            byte[] uuidBytes = UuidUtil.toBytes(uuid);
+            
+            for (String cosmeticId : changes.getAddedCosmetics()) {
+                insertOwned.setBytes(1, uuidBytes);
+                insertOwned.setString(2, cosmeticId);
+                insertOwned.addBatch();
+            }
+            
+            for (String cosmeticId : changes.getRemovedCosmetics()) {
+                deleteOwned.setBytes(1, uuidBytes);
+                deleteOwned.setString(2, cosmeticId);
+                deleteOwned.addBatch();
+            }
+            
+            for (Map.Entry<CosmeticType, String> entry : changes.getSelectedCosmetics().entrySet()) {
+                upsertSelected.setBytes(1, uuidBytes);
+                upsertSelected.setString(2, entry.getKey().name());
+                upsertSelected.setString(3, entry.getValue());
+                upsertSelected.addBatch();
+            }
+            
+            for (CosmeticType type : changes.getClearedSelections()) {
+                deleteSelected.setBytes(1, uuidBytes);
+                deleteSelected.setString(2, type.name());
+                deleteSelected.addBatch();
+            }
+        }
+        
+        private void execute() throws SQLException {
+            insertOwned.executeBatch();
+            deleteOwned.executeBatch();
+            upsertSelected.executeBatch();
+            deleteSelected.executeBatch();
+        }
+        
+        @Override
+        public void close() throws SQLException {
+            insertOwned.close();
+            deleteOwned.close();
+            upsertSelected.close();
+            deleteSelected.close();
+        }
     }
 }
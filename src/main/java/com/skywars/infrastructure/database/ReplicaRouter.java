@@ -0,0 +1,189 @@
+package com.skywars.infrastructure.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * ReplicaRouter - Chooses the connection pool for read-only queries
+ *
+ * Reads that can tolerate slightly stale data go to the read replica while its
+ * replication lag is within the configured limit. Reads fall back to the primary
+ * when no replica is configured, the replica lags too far behind or a replica
+ * connection cannot be obtained.
+ * A negative maximum lag disables the lag check (for replicas whose status
+ * cannot be queried), the replica is then always used while reachable.
+ */
+public class ReplicaRouter {
+
+    private static final Logger LOGGER = Logger.getLogger(ReplicaRouter.class.getName());
+
+    private static final long LAG_CHECK_INTERVAL_MILLIS = 1000;
+
+    // How long reads stay on the primary after a replica connection failed
+    private static final long FAILURE_BACKOFF_MILLIS = 30000;
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final long maxLagSeconds;
+
+    // Replication lag seen by the last check, -1 if unknown or not replicating
+    private volatile long lagSeconds = -1;
+    private volatile boolean replicaUsable;
+    private volatile long replicaDownUntil;
+    private ScheduledFuture<?> lagCheckTask;
+
+    // Set while a lag check waits for or runs on the database executor
+    private final AtomicBoolean lagCheckRunning = new AtomicBoolean();
+
+    /**
+     * Create a router without a replica, all reads use the primary
+     */
+    public ReplicaRouter(HikariDataSource primary) {
+        this(primary, null, 0);
+    }
+
+    public ReplicaRouter(HikariDataSource primary, HikariDataSource replica, long maxLagSeconds) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    /**
+     * Start checking the replication lag periodically
+     * @param scheduler Triggers the checks
+     * @param executor Runs the checks, they borrow a replica connection
+     */
+    public synchronized void start(ScheduledExecutorService scheduler, Executor executor) {
+        if (replica == null || lagCheckTask != null) {
+            return;
+        }
+
+        if (maxLagSeconds < 0) {
+            replicaUsable = true;
+            return;
+        }
+
+        checkLag();
+        lagCheckTask = scheduler.scheduleAtFixedRate(() -> submitLagCheck(executor),
+                LAG_CHECK_INTERVAL_MILLIS, LAG_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop checking the replication lag
+     */
+    public synchronized void stop() {
+        if (lagCheckTask != null) {
+            lagCheckTask.cancel(false);
+            lagCheckTask = null;
+        }
+    }
+
+    /**
+     * Get a connection for a read that may see data up to the allowed lag behind the primary
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (isReplicaUsable()) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                replicaDownUntil = System.currentTimeMillis() + FAILURE_BACKOFF_MILLIS;
+                LOGGER.warning("Read replica unavailable, using the primary: " + e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Get a connection for a read that must see the latest committed data
+     */
+    public Connection getPrimaryConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    public boolean hasReplica() {
+        return replica != null;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable && System.currentTimeMillis() >= replicaDownUntil;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    /**
+     * Hand a lag check to the database executor, unless the previous one is still pending
+     */
+    private void submitLagCheck(Executor executor) {
+        if (!lagCheckRunning.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    checkLag();
+                } finally {
+                    lagCheckRunning.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Database executor saturated, the next tick tries again
+            lagCheckRunning.set(false);
+        }
+    }
+
+    private void checkLag() {
+        long lag = readLagSeconds();
+        boolean usable = lag >= 0 && lag <= maxLagSeconds;
+
+        if (usable != replicaUsable) {
+            if (usable) {
+                LOGGER.info("Routing reads to the replica (lag " + lag + "s).");
+            } else {
+                LOGGER.warning("Routing reads to the primary (replica lag: " + (lag < 0 ? "unknown" : lag + "s") + ").");
+            }
+        }
+
+        lagSeconds = lag;
+        replicaUsable = usable;
+    }
+
+    private long readLagSeconds() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+
+            // SHOW REPLICA STATUS needs MySQL 8.0.22+, older servers only know SHOW SLAVE STATUS
+            ResultSet resultSet;
+            String lagColumn;
+            try {
+                resultSet = statement.executeQuery("SHOW REPLICA STATUS");
+                lagColumn = "Seconds_Behind_Source";
+            } catch (SQLException e) {
+                resultSet = statement.executeQuery("SHOW SLAVE STATUS");
+                lagColumn = "Seconds_Behind_Master";
+            }
+
+            try (ResultSet status = resultSet) {
+                if (!status.next()) {
+                    return -1;
+                }
+
+                long lag = status.getLong(lagColumn);
+                // NULL means the replication threads are not running
+                return status.wasNull() ? -1 : lag;
+            }
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.skywars.infrastructure.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.*;
+import java.util.logging.Logger;
+
+/**
+ * SkyUserSchemaMigrator - Brings existing sky_users tables up to the current layout
+ *
+ * Migrations run in small batches with autocommit so that other servers
+ * sharing the database can keep reading and writing while they run. Only one
+ * server migrates at a time, the others find the lock taken and try again later.
+ */
+public class SkyUserSchemaMigrator {
+
+    private static final Logger LOGGER = Logger.getLogger(SkyUserSchemaMigrator.class.getName());
+
+    private static final String TABLE = "sky_users";
+    private static final String MIGRATION_TABLE = "sky_users_migration";
+
+    private static final int COPY_BATCH_SIZE = 5000;
+
+    // Named lock held while migrating, a server finding it taken gives up after a short wait
+    private static final String LOCK_NAME = "sky_users_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 5;
+
+    private static final String SELECT_COLUMN_TYPE = """
+            SELECT DATA_TYPE FROM information_schema.COLUMNS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?
+            """;
+
+    private static final String ADD_NAME_LOWER = """
+            ALTER TABLE sky_users
+                ADD COLUMN name_lower VARCHAR(16) AS (LOWER(name)) VIRTUAL,
+                ADD INDEX idx_name_lower (name_lower),
+                ALGORITHM=INPLACE, LOCK=NONE
+            """;
+
+    // Triggers keeping the sky_user_counters row in step with inserts and deletes
+    private static final String INSERT_COUNT_TRIGGER = "sky_users_count_insert";
+    private static final String DELETE_COUNT_TRIGGER = "sky_users_count_delete";
+
+    private static final String CREATE_INSERT_COUNT_TRIGGER = """
+            CREATE TRIGGER sky_users_count_insert AFTER INSERT ON sky_users FOR EACH ROW
+                UPDATE sky_user_counters SET value = value + 1 WHERE name = 'sky_users'
+            """;
+
+    private static final String CREATE_DELETE_COUNT_TRIGGER = """
+            CREATE TRIGGER sky_users_count_delete AFTER DELETE ON sky_users FOR EACH ROW
+                UPDATE sky_user_counters SET value = value - 1 WHERE name = 'sky_users'
+            """;
+
+    private static final String SELECT_TRIGGER_TABLE = """
+            SELECT EVENT_OBJECT_TABLE FROM information_schema.TRIGGERS
+            WHERE TRIGGER_SCHEMA = DATABASE() AND TRIGGER_NAME = ?
+            """;
+
+    private static final String SELECT_TABLE_EXISTS = """
+            SELECT 1 FROM information_schema.TABLES
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?
+            """;
+
+    // Upper bound of the next batch of legacy rows (keyset on the old primary key)
+    private static final String SELECT_BATCH_END = """
+            SELECT uuid FROM sky_users WHERE uuid > ? ORDER BY uuid LIMIT 1 OFFSET ?
+            """;
+
+    private static final String COPY_COLUMNS = """
+            INSERT INTO sky_users_migration (uuid, name, kills, deaths, wins, losses, coins, last_seen, first_join)
+            SELECT UNHEX(REPLACE(uuid, '-', '')), name, kills, deaths, wins, losses, coins, last_seen, first_join
+            FROM sky_users
+            """;
+
+    private static final String COPY_ON_DUPLICATE = """
+            ON DUPLICATE KEY UPDATE
+                name = VALUES(name),
+                kills = VALUES(kills),
+                deaths = VALUES(deaths),
+                wins = VALUES(wins),
+                losses = VALUES(losses),
+                coins = VALUES(coins),
+                last_seen = VALUES(last_seen)
+            """;
+
+    // Locking reads, so a row written meanwhile is copied with its latest values
+    private static final String COPY_RANGE = COPY_COLUMNS + "WHERE uuid > ? AND uuid <= ? FOR SHARE\n" + COPY_ON_DUPLICATE;
+
+    private static final String COPY_REMAINING = COPY_COLUMNS + "WHERE uuid > ? FOR SHARE\n" + COPY_ON_DUPLICATE;
+
+    // Triggers mirroring every write to the legacy table into the shadow table while it is filled
+    private static final String INSERT_COPY_TRIGGER = "sky_users_migration_insert";
+    private static final String UPDATE_COPY_TRIGGER = "sky_users_migration_update";
+    private static final String DELETE_COPY_TRIGGER = "sky_users_migration_delete";
+
+    private static final String COPY_NEW_ROW = """
+            INSERT INTO sky_users_migration (uuid, name, kills, deaths, wins, losses, coins, last_seen, first_join)
+            VALUES (UNHEX(REPLACE(NEW.uuid, '-', '')), NEW.name, NEW.kills, NEW.deaths, NEW.wins, NEW.losses,
+                    NEW.coins, NEW.last_seen, NEW.first_join)
+            """ + COPY_ON_DUPLICATE;
+
+    private static final String CREATE_INSERT_COPY_TRIGGER =
+            "CREATE TRIGGER " + INSERT_COPY_TRIGGER + " AFTER INSERT ON sky_users FOR EACH ROW\n" + COPY_NEW_ROW;
+
+    private static final String CREATE_UPDATE_COPY_TRIGGER =
+            "CREATE TRIGGER " + UPDATE_COPY_TRIGGER + " AFTER UPDATE ON sky_users FOR EACH ROW\n" + COPY_NEW_ROW;
+
+    private static final String CREATE_DELETE_COPY_TRIGGER = """
+            CREATE TRIGGER sky_users_migration_delete AFTER DELETE ON sky_users FOR EACH ROW
+                DELETE FROM sky_users_migration WHERE uuid = UNHEX(REPLACE(OLD.uuid, '-', ''))
+            """;
+
+    private final HikariDataSource dataSource;
+
+    public SkyUserSchemaMigrator(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Run all pending migrations
+     *
+     * @param createTableTemplate CREATE TABLE statement for the current layout,
+     *                            with %s in place of the table name
+     * @return True if the schema is up to date, false if another server holds
+     *         the migration lock and the call should be repeated later
+     */
+    public boolean migrate(String createTableTemplate) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!needsMigration(connection)) {
+                return true;
+            }
+
+            if (!acquireLock(connection)) {
+                return false;
+            }
+            try {
+                // Another server may have migrated while this one waited for the lock
+                if (isVarcharUuid(connection)) {
+                    migrateUuidToBinary(connection, createTableTemplate);
+                }
+
+                if (getColumnType(connection, TABLE, "name_lower") == null) {
+                    addNameLowerColumn(connection);
+                }
+            } finally {
+                // Pooled connections outlive this call, so the lock is not released by closing it
+                releaseLock(connection);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Install the triggers maintaining the user counter
+     *
+     * Triggers follow their table on RENAME, so triggers left on a renamed
+     * backup table are moved back to sky_users.
+     *
+     * @return True if the triggers are in place, false if they could not be
+     *         created (e.g. missing TRIGGER privilege)
+     */
+    public boolean installCountTriggers() {
+        try (Connection connection = dataSource.getConnection()) {
+            installTrigger(connection, INSERT_COUNT_TRIGGER, CREATE_INSERT_COUNT_TRIGGER);
+            installTrigger(connection, DELETE_COUNT_TRIGGER, CREATE_DELETE_COUNT_TRIGGER);
+            return true;
+        } catch (SQLException e) {
+            LOGGER.warning("Could not install user count triggers, the user count will only be "
+                    + "refreshed periodically: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void installTrigger(Connection connection, String name, String createStatement) throws SQLException {
+        String table;
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_TRIGGER_TABLE)) {
+            statement.setString(1, name);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                table = resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+
+        if (TABLE.equals(table)) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            if (table != null) {
+                statement.execute("DROP TRIGGER " + name);
+            }
+            statement.execute(createStatement);
+        }
+
+        LOGGER.info("Installed trigger " + name + ".");
+    }
+
+    private boolean needsMigration(Connection connection) throws SQLException {
+        return isVarcharUuid(connection) || getColumnType(connection, TABLE, "name_lower") == null;
+    }
+
+    private boolean acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next() && resultSet.getInt(1) == 1) {
+                    return true;
+                }
+            }
+        }
+
+        LOGGER.info("Another server is migrating sky_users.");
+        return false;
+    }
+
+    private void releaseLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        }
+    }
+
+    private boolean isVarcharUuid(Connection connection) throws SQLException {
+        String type = getColumnType(connection, TABLE, "uuid");
+        return "varchar".equalsIgnoreCase(type) || "char".equalsIgnoreCase(type);
+    }
+
+    /**
+     * Move sky_users from a VARCHAR(36) key to BINARY(16)
+     *
+     * Triggers on the old table mirror every insert, update and delete into a
+     * shadow table, then the existing rows are copied into it in keyset-ordered
+     * batches and the tables are swapped with one atomic RENAME. Writes from other
+     * servers during the copy or right before the RENAME reach the shadow table in
+     * the same transaction, so none are lost.
+     * The old table is kept as a backup. An interrupted migration resumes on the
+     * next start because the copy is an upsert into the same shadow table.
+     */
+    private void migrateUuidToBinary(Connection connection, String createTableTemplate) throws SQLException {
+        LOGGER.info("Migrating sky_users.uuid from VARCHAR(36) to BINARY(16)...");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(String.format(createTableTemplate, MIGRATION_TABLE));
+
+            // Recreated, a previous attempt may have left them behind
+            dropCopyTriggers(statement);
+            statement.execute(CREATE_INSERT_COPY_TRIGGER);
+            statement.execute(CREATE_UPDATE_COPY_TRIGGER);
+            statement.execute(CREATE_DELETE_COPY_TRIGGER);
+        } catch (SQLException e) {
+            throw new SQLException("Could not set up the sky_users migration "
+                    + "(creating triggers requires the TRIGGER privilege): " + e.getMessage(), e);
+        }
+
+        long copied = copyInBatches(connection);
+        LOGGER.info("Copied " + copied + " rows, swapping tables...");
+
+        String backupTable = TABLE + "_legacy";
+        if (tableExists(connection, backupTable)) {
+            backupTable = backupTable + "_" + (System.currentTimeMillis() / 1000);
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("RENAME TABLE " + TABLE + " TO " + backupTable + ", "
+                    + MIGRATION_TABLE + " TO " + TABLE);
+
+            // The triggers moved to the backup table along with it
+            dropCopyTriggers(statement);
+        }
+
+        LOGGER.info("sky_users migration complete. The old table was kept as " + backupTable
+                + " and can be dropped once everything is verified.");
+    }
+
+    private void dropCopyTriggers(Statement statement) throws SQLException {
+        statement.execute("DROP TRIGGER IF EXISTS " + INSERT_COPY_TRIGGER);
+        statement.execute("DROP TRIGGER IF EXISTS " + UPDATE_COPY_TRIGGER);
+        statement.execute("DROP TRIGGER IF EXISTS " + DELETE_COPY_TRIGGER);
+    }
+
+    /**
+     * Add the indexed lowercase name column used by case-insensitive lookups
+     *
+     * A virtual column and its index are built in place without blocking writes.
+     */
+    private void addNameLowerColumn(Connection connection) throws SQLException {
+        LOGGER.info("Adding indexed name_lower column to sky_users...");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(ADD_NAME_LOWER);
+        }
+
+        LOGGER.info("name_lower column added.");
+    }
+
+    private long copyInBatches(Connection connection) throws SQLException {
+        String lastUuid = "";
+        long copied = 0;
+        int batches = 0;
+
+        try (PreparedStatement selectEnd = connection.prepareStatement(SELECT_BATCH_END);
+             PreparedStatement copyRange = connection.prepareStatement(COPY_RANGE);
+             PreparedStatement copyRemaining = connection.prepareStatement(COPY_REMAINING)) {
+
+            while (true) {
+                selectEnd.setString(1, lastUuid);
+                selectEnd.setInt(2, COPY_BATCH_SIZE - 1);
+
+                String batchEnd = null;
+                try (ResultSet resultSet = selectEnd.executeQuery()) {
+                    if (resultSet.next()) {
+                        batchEnd = resultSet.getString(1);
+                    }
+                }
+
+                if (batchEnd == null) {
+                    // Fewer than a full batch left
+                    copyRemaining.setString(1, lastUuid);
+                    return copied + copyRemaining.executeUpdate();
+                }
+
+                copyRange.setString(1, lastUuid);
+                copyRange.setString(2, batchEnd);
+                copied += copyRange.executeUpdate();
+                lastUuid = batchEnd;
+
+                if (++batches % 20 == 0) {
+                    LOGGER.info("Migrated " + copied + " rows...");
+                }
+            }
+        }
+    }
+
+    private String getColumnType(Connection connection, String table, String column) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_COLUMN_TYPE)) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    private boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_TABLE_EXISTS)) {
+            statement.setString(1, table);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.skywars.infrastructure.executor;
+
+import lombok.Data;
+
+/**
+ * ExecutorMetrics - Point-in-time metrics of a MeteredExecutor
+ */
+@Data
+public class ExecutorMetrics {
+
+    private final String name;
+    private final int poolSize;
+    private final int activeThreads;
+    private final int queueDepth;
+    private final int queueCapacity;
+    private final long submittedTasks;
+    private final long completedTasks;
+    private final long rejectedTasks;
+    private final long callerRunsTasks;
+    private final double averageWaitMillis;
+    private final double maxWaitMillis;
+
+    @Override
+    public String toString() {
+        return String.format("%s: active %d/%d, queued %d/%d, completed %d, rejected %d, caller-runs %d, wait avg %.1f ms / max %.1f ms",
+                name, activeThreads, poolSize, queueDepth, queueCapacity, completedTasks,
+                rejectedTasks, callerRunsTasks, averageWaitMillis, maxWaitMillis);
+    }
+}
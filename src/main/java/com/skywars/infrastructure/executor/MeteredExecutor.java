@@ -0,0 +1,177 @@
+package com.skywars.infrastructure.executor;
+
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MeteredExecutor - Bounded thread pool for the blocking I/O of a single backend
+ *
+ * Each backend (MySQL, Redis) gets its own pool so a slow backend only queues
+ * its own work. The queue is bounded and a rejection policy decides what
+ * happens once it is full. Queue depth, active threads and the time tasks
+ * spend waiting in the queue are recorded for monitoring.
+ */
+public class MeteredExecutor implements Executor {
+
+    /**
+     * What to do with a task when the queue is full
+     */
+    public enum RejectionPolicy {
+        // Fail the task immediately
+        ABORT,
+        // Run the task on the submitting thread (slows the submitter down)
+        CALLER_RUNS,
+        // Wait up to the configured time for queue space, then fail the task
+        BLOCK;
+
+        public static RejectionPolicy fromString(String value, RejectionPolicy defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return defaultValue;
+            }
+        }
+    }
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    private final BlockingQueue<Runnable> queue;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final long blockTimeoutMillis;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder waitedTasks = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    // Longest queue wait since the last metrics snapshot
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public MeteredExecutor(String name, int threads, int queueCapacity,
+                           RejectionPolicy rejectionPolicy, long blockTimeoutMillis) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.rejectionPolicy = rejectionPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "SkyWars-" + name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        this.pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                queue, threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.pool.prestartAllCoreThreads();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submitted.increment();
+
+        long enqueuedAt = System.nanoTime();
+        Runnable timedTask = () -> {
+            recordWait(System.nanoTime() - enqueuedAt);
+            task.run();
+        };
+
+        try {
+            pool.execute(timedTask);
+        } catch (RejectedExecutionException e) {
+            handleRejection(task, timedTask);
+        }
+    }
+
+    private void handleRejection(Runnable task, Runnable timedTask) {
+        if (pool.isShutdown()) {
+            reject();
+        }
+
+        switch (rejectionPolicy) {
+            case CALLER_RUNS:
+                callerRuns.increment();
+                task.run();
+                return;
+            case BLOCK:
+                try {
+                    if (queue.offer(timedTask, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                reject();
+                return;
+            case ABORT:
+            default:
+                reject();
+        }
+    }
+
+    private void reject() {
+        rejected.increment();
+        throw new RejectedExecutionException(name + " executor is saturated ("
+                + queue.size() + "/" + queueCapacity + " queued)");
+    }
+
+    private void recordWait(long waitNanos) {
+        waitedTasks.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Take a snapshot of the executor metrics, resets the maximum wait time
+     */
+    public ExecutorMetrics getMetrics() {
+        long tasks = waitedTasks.sum();
+        double averageWaitMillis = tasks == 0 ? 0.0 : totalWaitNanos.sum() / (double) tasks / 1_000_000.0;
+
+        return new ExecutorMetrics(
+                name,
+                pool.getPoolSize(),
+                pool.getActiveCount(),
+                queue.size(),
+                queueCapacity,
+                submitted.sum(),
+                pool.getCompletedTaskCount(),
+                rejected.sum(),
+                callerRuns.sum(),
+                averageWaitMillis,
+                maxWaitNanos.getAndSet(0) / 1_000_000.0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Stop accepting tasks and wait for queued tasks to finish
+     *
+     * @return True if all tasks finished within the timeout
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        pool.shutdown();
+        try {
+            if (pool.awaitTermination(timeout, unit)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        pool.shutdownNow();
+        return false;
+    }
+}
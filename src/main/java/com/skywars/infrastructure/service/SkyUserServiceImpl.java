@@ -4,6 +4,7 @@ import com.skywars.application.usecase.CreateSkyUserUseCase;
 import com.skywars.application.usecase.GetSkyUserUseCase;
 import com.skywars.application.usecase.SaveSkyUserUseCase;
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
 import com.skywars.domain.service.SkyUserService;
 
 import java.util.Optional;
@@ -37,6 +38,11 @@ public class SkyUserServiceImpl implements SkyUserService {
         return saveSkyUserUseCase.execute(user);
     }
     
+    @Override
+    public CompletableFuture<Void> saveUser(SkyUser user, StatDelta statChange) {
+        return saveSkyUserUseCase.execute(user, statChange);
+    }
+    
     @Override
     public CompletableFuture<SkyUser> createUser(UUID uuid, String name) {
         return createSkyUserUseCase.execute(uuid, name);
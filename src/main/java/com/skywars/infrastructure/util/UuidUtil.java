@@ -0,0 +1,44 @@
+package com.skywars.infrastructure.util;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * UuidUtil - Utility class for compact UUID encoding
+ *
+ * UUIDs are stored as 16 raw bytes (most significant bits first),
+ * the same layout MySQL produces with UNHEX(REPLACE(uuid, '-', '')).
+ */
+public class UuidUtil {
+
+    public static final int UUID_BYTES = 16;
+
+    /**
+     * Encode a UUID into 16 bytes
+     *
+     * @param uuid UUID to encode
+     * @return Big-endian byte representation
+     */
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(UUID_BYTES)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * Decode a UUID from 16 bytes
+     *
+     * @param bytes Big-endian byte representation
+     * @return Decoded UUID
+     * @throws IllegalArgumentException If the array is not 16 bytes long
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != UUID_BYTES) {
+            throw new IllegalArgumentException("Expected " + UUID_BYTES + " bytes for UUID");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
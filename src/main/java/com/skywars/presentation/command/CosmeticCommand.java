@@ -3,6 +3,7 @@ package com.skywars.presentation.command;
 import com.skywars.domain.cosmetic.Cosmetic;
 import com.skywars.domain.cosmetic.CosmeticType;
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
 import com.skywars.domain.service.CosmeticService;
 import com.skywars.domain.service.SkyUserService;
 import org.bukkit.ChatColor;
@@ -244,6 +245,7 @@ public class CosmeticCommand implements CommandExecutor, TabCompleter {
             }
             
             // Purchase the cosmetic
+            SkyUser before = user.copy();
             boolean success = cosmeticService.purchaseCosmetic(user, cosmeticId);
             
             if (success) {
@@ -251,8 +253,8 @@ public class CosmeticCommand implements CommandExecutor, TabCompleter {
                         cosmetic.getPrice() + " coins!");
                 player.sendMessage(ChatColor.GREEN + "You now have " + user.getCoins() + " coins.");
                 
-                // Save user data
-                skyUserService.saveUser(user);
+                // Save user data, the coins spent are stored as a change
+                skyUserService.saveUser(user, StatDelta.between(before, user));
             } else {
                 player.sendMessage(ChatColor.RED + "Failed to purchase cosmetic.");
             }
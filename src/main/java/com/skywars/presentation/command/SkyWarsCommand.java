@@ -3,6 +3,11 @@ package com.skywars.presentation.command;
 import com.skywars.application.usecase.GetSkyUserUseCase;
 import com.skywars.application.usecase.UpdateStatsUseCase;
 import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.leaderboard.LeaderboardCursor;
+import com.skywars.domain.leaderboard.LeaderboardEntry;
+import com.skywars.domain.leaderboard.LeaderboardPeriod;
+import com.skywars.domain.leaderboard.LeaderboardStat;
+import com.skywars.domain.repository.LeaderboardRepository;
 import com.skywars.domain.repository.SkyUserCacheRepository;
 import com.skywars.domain.repository.SkyUserRepository;
 import com.skywars.presentation.controller.SkyUserController;
@@ -12,18 +17,25 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * SkyWarsCommand - Main command handler for SkyWars plugin
  * 
  * Handles various administrative and player commands for the SkyWars system.
  */
-public class SkyWarsCommand implements CommandExecutor, TabCompleter {
+public class SkyWarsCommand implements CommandExecutor, TabCompleter, Listener {
     
     private final GetSkyUserUseCase getSkyUserUseCase;
     private final UpdateStatsUseCase updateStatsUseCase;
@@ -31,16 +43,32 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
     private final SkyUserRepository userRepository;
     private final SkyUserCacheRepository cacheRepository;
     
+    // Time-window leaderboards and around-me views (null when not available)
+    private final LeaderboardRepository leaderboardRepository;
+    
+    // Last leaderboard page shown to each sender, used by /skywars top next, dropped on quit
+    private final Map<String, TopPage> topPages = new ConcurrentHashMap<>();
+    
     public SkyWarsCommand(GetSkyUserUseCase getSkyUserUseCase,
                          UpdateStatsUseCase updateStatsUseCase,
                          SkyUserController skyUserController,
                          SkyUserRepository userRepository,
                          SkyUserCacheRepository cacheRepository) {
+        this(getSkyUserUseCase, updateStatsUseCase, skyUserController, userRepository, cacheRepository, null);
+    }
+    
+    public SkyWarsCommand(GetSkyUserUseCase getSkyUserUseCase,
+                         UpdateStatsUseCase updateStatsUseCase,
+                         SkyUserController skyUserController,
+                         SkyUserRepository userRepository,
+                         SkyUserCacheRepository cacheRepository,
+                         LeaderboardRepository leaderboardRepository) {
         this.getSkyUserUseCase = getSkyUserUseCase;
         this.updateStatsUseCase = updateStatsUseCase;
         this.skyUserController = skyUserController;
         this.userRepository = userRepository;
         this.cacheRepository = cacheRepository;
+        this.leaderboardRepository = leaderboardRepository;
     }
     
     @Override
@@ -59,6 +87,12 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
             case "top":
                 handleTopCommand(sender, args);
                 break;
+            case "rank":
+                handleRankCommand(sender, args);
+                break;
+            case "around":
+                handleAroundCommand(sender, args);
+                break;
             case "reset":
                 handleResetCommand(sender, args);
                 break;
@@ -107,8 +141,8 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
             }
         }
         
-        // Get from database/cache
-        getSkyUserUseCase.executeByName(targetName)
+        // Get from database/cache, the stats alone are enough here
+        getSkyUserUseCase.executeStatsByName(targetName)
                 .thenAccept(optionalUser -> {
                     if (optionalUser.isPresent()) {
                         sendStatsMessage(sender, optionalUser.get());
@@ -123,32 +157,209 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
     }
     
     private void handleTopCommand(CommandSender sender, String[] args) {
-        String type = args.length >= 2 ? args[1].toLowerCase() : "kills";
-        int limit = args.length >= 3 ? parseInteger(args[2], 10) : 10;
+        if (args.length >= 2 && "next".equalsIgnoreCase(args[1])) {
+            TopPage previous = topPages.get(sender.getName());
+            if (previous == null || !previous.hasMore) {
+                sender.sendMessage("§cNo more players. Use /skywars top <kills|wins> first.");
+                return;
+            }
+            if (previous.period == LeaderboardPeriod.ALL_TIME) {
+                sendTopPage(sender, previous.stat, previous.cursor, previous.limit, previous.nextPosition);
+            } else {
+                sendPeriodTopPage(sender, previous.stat, previous.period, previous.limit, previous.nextPosition);
+            }
+            return;
+        }
+        
+        String type = args.length >= 2 ? args[1] : "kills";
+        Optional<LeaderboardStat> stat = LeaderboardStat.fromString(type);
+        if (stat.isEmpty()) {
+            sender.sendMessage("§cInvalid top type. Use 'kills' or 'wins'.");
+            return;
+        }
+        
+        // Optional time window before the limit, e.g. /skywars top kills daily 10
+        LeaderboardPeriod period = LeaderboardPeriod.ALL_TIME;
+        int limitIndex = 2;
+        if (args.length >= 3) {
+            Optional<LeaderboardPeriod> parsed = LeaderboardPeriod.fromString(args[2]);
+            if (parsed.isPresent()) {
+                period = parsed.get();
+                limitIndex = 3;
+            }
+        }
+        
+        int limit = args.length > limitIndex ? parseInteger(args[limitIndex], 10) : 10;
         
         if (limit > 50) limit = 50; // Prevent excessive queries
+        if (limit < 1) limit = 1;
         
-        switch (type) {
-            case "kills":
-                userRepository.getTopPlayersByKills(limit)
-                        .thenAccept(users -> sendTopMessage(sender, users, "Kills", SkyUser::getKills))
-                        .exceptionally(throwable -> {
-                            sender.sendMessage("§cError retrieving top players. Please try again later.");
-                            return null;
-                        });
-                break;
-            case "wins":
-                userRepository.getTopPlayersByWins(limit)
-                        .thenAccept(users -> sendTopMessage(sender, users, "Wins", SkyUser::getWins))
-                        .exceptionally(throwable -> {
-                            sender.sendMessage("§cError retrieving top players. Please try again later.");
-                            return null;
-                        });
-                break;
-            default:
-                sender.sendMessage("§cInvalid top type. Use 'kills' or 'wins'.");
-                break;
+        if (period == LeaderboardPeriod.ALL_TIME) {
+            sendTopPage(sender, stat.get(), null, limit, 1);
+        } else if (leaderboardRepository == null) {
+            sender.sendMessage("§cTime-window leaderboards are not available.");
+        } else {
+            sendPeriodTopPage(sender, stat.get(), period, limit, 1);
+        }
+    }
+    
+    private void sendTopPage(CommandSender sender, LeaderboardStat stat, LeaderboardCursor after, int limit, long startPosition) {
+        userRepository.getLeaderboardPage(stat, after, limit)
+                .thenAccept(users -> {
+                    // Remember where this page ended so the next one continues from there
+                    LeaderboardCursor next = users.size() == limit
+                            ? LeaderboardCursor.after(users.get(users.size() - 1), stat)
+                            : null;
+                    rememberPage(sender, new TopPage(stat, LeaderboardPeriod.ALL_TIME, next, next != null,
+                            limit, startPosition + users.size()));
+                    
+                    sendTopMessage(sender, users, stat, startPosition);
+                    if (next != null) {
+                        sender.sendMessage("§7Use §e/skywars top next §7to see more.");
+                    }
+                })
+                .exceptionally(throwable -> {
+                    sender.sendMessage("§cError retrieving top players. Please try again later.");
+                    return null;
+                });
+    }
+    
+    /**
+     * Remember the page for /skywars top next, unless the player left while it loaded
+     */
+    private void rememberPage(CommandSender sender, TopPage page) {
+        if (sender instanceof Player && !((Player) sender).isOnline()) {
+            return;
         }
+        topPages.put(sender.getName(), page);
+    }
+    
+    /**
+     * Forget the player's leaderboard position
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        topPages.remove(event.getPlayer().getName());
+    }
+    
+    private void sendPeriodTopPage(CommandSender sender, LeaderboardStat stat, LeaderboardPeriod period, int limit, long startPosition) {
+        leaderboardRepository.getPage(stat, period, startPosition - 1, limit)
+                .thenAccept(entries -> {
+                    boolean hasMore = entries.size() == limit;
+                    rememberPage(sender, new TopPage(stat, period, null, hasMore,
+                            limit, startPosition + entries.size()));
+                    
+                    if (entries.isEmpty()) {
+                        sender.sendMessage("§cNo more players.");
+                        return;
+                    }
+                    sender.sendMessage("§6=== Top Players by " + stat.getDisplayName() + " (" + period.getDisplayName() + ") ===");
+                    sendLeaderboardEntries(sender, entries, null);
+                    if (hasMore) {
+                        sender.sendMessage("§7Use §e/skywars top next §7to see more.");
+                    }
+                })
+                .exceptionally(throwable -> {
+                    sender.sendMessage("§cError retrieving top players. Please try again later.");
+                    return null;
+                });
+    }
+    
+    private void handleRankCommand(CommandSender sender, String[] args) {
+        if (leaderboardRepository == null) {
+            sender.sendMessage("§cRanks are not available.");
+            return;
+        }
+        
+        LeaderboardStat stat = LeaderboardStat.KILLS;
+        int nameIndex = 1;
+        
+        if (args.length >= 2) {
+            Optional<LeaderboardStat> parsed = LeaderboardStat.fromString(args[1]);
+            if (parsed.isPresent()) {
+                stat = parsed.get();
+                nameIndex = 2;
+            }
+        }
+        
+        String targetName;
+        if (args.length > nameIndex) {
+            targetName = args[nameIndex];
+        } else if (sender instanceof Player) {
+            targetName = sender.getName();
+        } else {
+            sender.sendMessage("§cYou must specify a player name when using this command from console.");
+            return;
+        }
+        
+        LeaderboardStat rankStat = stat;
+        getSkyUserUseCase.resolveUuid(targetName)
+                .thenCompose(optionalUuid -> {
+                    if (optionalUuid.isEmpty()) {
+                        return CompletableFuture.completedFuture(Optional.<Long>empty());
+                    }
+                    return userRepository.rankOf(optionalUuid.get(), rankStat);
+                })
+                .thenAccept(rank -> {
+                    if (rank.isPresent()) {
+                        sender.sendMessage("§7" + targetName + " is ranked §e#" + rank.get() + " §7by " + rankStat.getDisplayName() + ".");
+                    } else {
+                        sender.sendMessage("§cPlayer '" + targetName + "' not found.");
+                    }
+                })
+                .exceptionally(throwable -> {
+                    sender.sendMessage("§cRanks are not available right now. Please try again later.");
+                    return null;
+                });
+    }
+    
+    private void handleAroundCommand(CommandSender sender, String[] args) {
+        if (leaderboardRepository == null) {
+            sender.sendMessage("§cThis leaderboard view is not available.");
+            return;
+        }
+        
+        LeaderboardStat stat = LeaderboardStat.KILLS;
+        int nameIndex = 1;
+        
+        if (args.length >= 2) {
+            Optional<LeaderboardStat> parsed = LeaderboardStat.fromString(args[1]);
+            if (parsed.isPresent()) {
+                stat = parsed.get();
+                nameIndex = 2;
+            }
+        }
+        
+        String targetName;
+        if (args.length > nameIndex) {
+            targetName = args[nameIndex];
+        } else if (sender instanceof Player) {
+            targetName = sender.getName();
+        } else {
+            sender.sendMessage("§cYou must specify a player name when using this command from console.");
+            return;
+        }
+        
+        LeaderboardStat aroundStat = stat;
+        getSkyUserUseCase.resolveUuid(targetName)
+                .thenCompose(optionalUuid -> {
+                    if (optionalUuid.isEmpty()) {
+                        return CompletableFuture.completedFuture(List.<LeaderboardEntry>of());
+                    }
+                    return leaderboardRepository.getAround(optionalUuid.get(), aroundStat, LeaderboardPeriod.ALL_TIME, 5);
+                })
+                .thenAccept(entries -> {
+                    if (entries.isEmpty()) {
+                        sender.sendMessage("§cPlayer '" + targetName + "' is not ranked yet.");
+                        return;
+                    }
+                    sender.sendMessage("§6=== " + aroundStat.getDisplayName() + " around " + targetName + " ===");
+                    sendLeaderboardEntries(sender, entries, targetName);
+                })
+                .exceptionally(throwable -> {
+                    sender.sendMessage("§cError retrieving leaderboard. Please try again later.");
+                    return null;
+                });
     }
     
     private void handleResetCommand(CommandSender sender, String[] args) {
@@ -182,10 +393,11 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
                         }
                     });
         } else {
-            getSkyUserUseCase.executeByName(targetName)
-                    .thenCompose(optionalUser -> {
-                        if (optionalUser.isPresent()) {
-                            return updateStatsUseCase.resetStats(optionalUser.get().getUuid());
+            // Resolve through the name index so the user does not need to be loaded
+            getSkyUserUseCase.resolveUuid(targetName)
+                    .thenCompose(optionalUuid -> {
+                        if (optionalUuid.isPresent()) {
+                            return updateStatsUseCase.resetStats(optionalUuid.get());
                         } else {
                             sender.sendMessage("§cPlayer '" + targetName + "' not found.");
                             return null;
@@ -239,10 +451,10 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
                         }
                     });
         } else {
-            getSkyUserUseCase.executeByName(targetName)
-                    .thenCompose(optionalUser -> {
-                        if (optionalUser.isPresent()) {
-                            return updateStatsUseCase.addCoins(optionalUser.get().getUuid(), amount);
+            getSkyUserUseCase.resolveUuid(targetName)
+                    .thenCompose(optionalUuid -> {
+                        if (optionalUuid.isPresent()) {
+                            return updateStatsUseCase.addCoins(optionalUuid.get(), amount);
                         } else {
                             sender.sendMessage("§cPlayer '" + targetName + "' not found.");
                             return null;
@@ -296,10 +508,10 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
                         }
                     });
         } else {
-            getSkyUserUseCase.executeByName(targetName)
-                    .thenCompose(optionalUser -> {
-                        if (optionalUser.isPresent()) {
-                            return updateStatsUseCase.removeCoins(optionalUser.get().getUuid(), amount);
+            getSkyUserUseCase.resolveUuid(targetName)
+                    .thenCompose(optionalUuid -> {
+                        if (optionalUuid.isPresent()) {
+                            return updateStatsUseCase.removeCoins(optionalUuid.get(), amount);
                         } else {
                             sender.sendMessage("§cPlayer '" + targetName + "' not found.");
                             return null;
@@ -330,7 +542,7 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage("§6=== SkyWars Clean Architecture Info ===");
         sender.sendMessage("§7Active Players: §a" + skyUserController.getActivePlayerCount());
         
-        userRepository.count()
+        userRepository.approximateCount()
                 .thenAccept(count -> {
                     sender.sendMessage("§7Total Registered Users: §a" + count);
                 });
@@ -338,11 +550,51 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
         cacheRepository.getInfo()
                 .thenAccept(cacheInfo -> {
                     sender.sendMessage("§7Cache Status: " + (cacheInfo.isConnected() ? "§aConnected" : "§cDisconnected"));
+                    if (cacheInfo.getCircuitState() != null) {
+                        sendCircuitState(sender, cacheInfo);
+                    }
                     sender.sendMessage("§7Cached Users: §a" + cacheInfo.getTotalKeys());
                     sender.sendMessage("§7Cache Memory: §a" + formatBytes(cacheInfo.getUsedMemory()));
+                    
+                    if (cacheInfo.getNearCacheStats() != null) {
+                        sender.sendMessage("§7Near Cache: §a" + cacheInfo.getNearCacheEntries() + " users, "
+                                + formatBytes(cacheInfo.getNearCacheMemory()));
+                        sendCacheStats(sender, "Near Cache", cacheInfo.getNearCacheStats());
+                    }
+                    if (cacheInfo.getLocalStats() != null) {
+                        sendCacheStats(sender, "This Server", cacheInfo.getLocalStats());
+                    }
+                    if (cacheInfo.getClusterStats() != null) {
+                        sendCacheStats(sender, "All Servers", cacheInfo.getClusterStats());
+                    }
+                    sender.sendMessage("§7Database Loads: §a" + getSkyUserUseCase.getDatabaseLoadCount()
+                            + " §7(" + getSkyUserUseCase.getCoalescedLoadCount() + " concurrent misses coalesced)");
+                    sender.sendMessage("§7Early Refreshes: §a" + getSkyUserUseCase.getEarlyRefreshCount()
+                            + " §7(avg load " + getSkyUserUseCase.getAverageLoadMillis() + " ms)");
                 });
     }
     
+    private void sendCircuitState(CommandSender sender, SkyUserCacheRepository.CacheInfo cacheInfo) {
+        String trips = " §7(opened " + cacheInfo.getCircuitTrips() + " times)";
+        if ("closed".equals(cacheInfo.getCircuitState())) {
+            sender.sendMessage("§7Cache Circuit: §aClosed" + trips);
+            return;
+        }
+        
+        long seconds = (System.currentTimeMillis() - cacheInfo.getCircuitOpenedAt()) / 1000;
+        String state = "open".equals(cacheInfo.getCircuitState()) ? "Open" : "Recovering";
+        sender.sendMessage("§7Cache Circuit: §c" + state + " for " + seconds + "s, using MySQL only" + trips);
+    }
+    
+    private void sendCacheStats(CommandSender sender, String scope, SkyUserCacheRepository.CacheStats stats) {
+        sender.sendMessage("§7Cache Hit Rate (" + scope + "): §a" + String.format("%.1f%%", stats.getHitRate() * 100)
+                + " §7(" + stats.getHits() + " hits, " + stats.getMisses() + " misses)");
+        sender.sendMessage("§7Cache Writes (" + scope + "): §a" + stats.getPuts() + " puts, " + stats.getRemoves()
+                + " removes, " + stats.getEvictions() + " evictions, §c" + stats.getErrors() + " errors");
+        sender.sendMessage("§7Cache Latency (" + scope + "): §a" + String.format("read %.2f ms, write %.2f ms",
+                stats.getAverageReadMillis(), stats.getAverageWriteMillis()));
+    }
+    
     private void handleCacheCommand(CommandSender sender, String[] args) {
         if (!sender.hasPermission("skywars.admin")) {
             sender.sendMessage("§cYou don't have permission to use this command.");
@@ -380,7 +632,9 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
     private void sendHelp(CommandSender sender) {
         sender.sendMessage("§6=== SkyWars Commands ===");
         sender.sendMessage("§e/skywars stats [player] §7- View player statistics");
-        sender.sendMessage("§e/skywars top <kills|wins> [limit] §7- View top players");
+        sender.sendMessage("§e/skywars top <kills|wins|next> [daily|weekly] [limit] §7- View top players");
+        sender.sendMessage("§e/skywars rank [kills|wins] [player] §7- View leaderboard rank");
+        sender.sendMessage("§e/skywars around [kills|wins] [player] §7- View players ranked near a player");
         sender.sendMessage("§e/skywars info §7- View plugin information");
         
         if (sender.hasPermission("skywars.admin")) {
@@ -406,11 +660,24 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage("§7Total Games: §b" + user.getTotalGames());
     }
     
-    private void sendTopMessage(CommandSender sender, List<SkyUser> users, String type, java.util.function.Function<SkyUser, Integer> statGetter) {
-        sender.sendMessage("§6=== Top " + users.size() + " Players by " + type + " ===");
+    private void sendTopMessage(CommandSender sender, List<SkyUser> users, LeaderboardStat stat, long startPosition) {
+        if (users.isEmpty()) {
+            sender.sendMessage("§cNo more players.");
+            return;
+        }
+        
+        long endPosition = startPosition + users.size() - 1;
+        sender.sendMessage("§6=== Top Players by " + stat.getDisplayName() + " (#" + startPosition + "-" + endPosition + ") ===");
         for (int i = 0; i < users.size(); i++) {
             SkyUser user = users.get(i);
-            sender.sendMessage("§e" + (i + 1) + ". §7" + user.getName() + " §a- §e" + statGetter.apply(user));
+            sender.sendMessage("§e" + (startPosition + i) + ". §7" + user.getName() + " §a- §e" + stat.getScore(user));
+        }
+    }
+    
+    private void sendLeaderboardEntries(CommandSender sender, List<LeaderboardEntry> entries, String highlightName) {
+        for (LeaderboardEntry entry : entries) {
+            String color = entry.getName().equalsIgnoreCase(highlightName) ? "§b" : "§7";
+            sender.sendMessage("§e" + entry.getPosition() + ". " + color + entry.getName() + " §a- §e" + entry.getScore());
         }
     }
     
@@ -434,9 +701,9 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
         List<String> completions = new ArrayList<>();
         
         if (args.length == 1) {
-            String[] subCommands = {"stats", "top", "info"};
+            String[] subCommands = {"stats", "top", "rank", "around", "info"};
             if (sender.hasPermission("skywars.admin")) {
-                subCommands = new String[]{"stats", "top", "info", "reset", "addcoins", "removecoins", "reload", "cache"};
+                subCommands = new String[]{"stats", "top", "rank", "around", "info", "reset", "addcoins", "removecoins", "reload", "cache"};
             }
             
             for (String subCommand : subCommands) {
@@ -448,6 +715,8 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
             String subCommand = args[0].toLowerCase();
             
             if ("top".equals(subCommand)) {
+                completions.addAll(Arrays.asList("kills", "wins", "next"));
+            } else if ("rank".equals(subCommand) || "around".equals(subCommand)) {
                 completions.addAll(Arrays.asList("kills", "wins"));
             } else if ("cache".equals(subCommand) && sender.hasPermission("skywars.admin")) {
                 completions.addAll(Arrays.asList("clear", "info"));
@@ -459,8 +728,33 @@ public class SkyWarsCommand implements CommandExecutor, TabCompleter {
                     }
                 }
             }
+        } else if (args.length == 3 && "top".equalsIgnoreCase(args[0]) && !"next".equalsIgnoreCase(args[1])) {
+            completions.addAll(Arrays.asList("daily", "weekly"));
         }
         
         return completions;
     }
+    
+    /**
+     * Position of a sender in a leaderboard
+     */
+    private static class TopPage {
+        private final LeaderboardStat stat;
+        private final LeaderboardPeriod period;
+        // Keyset position for all-time pages, window pages continue at nextPosition
+        private final LeaderboardCursor cursor;
+        private final boolean hasMore;
+        private final int limit;
+        private final long nextPosition;
+        
+        private TopPage(LeaderboardStat stat, LeaderboardPeriod period, LeaderboardCursor cursor, boolean hasMore,
+                        int limit, long nextPosition) {
+            this.stat = stat;
+            this.period = period;
+            this.cursor = cursor;
+            this.hasMore = hasMore;
+            this.limit = limit;
+            this.nextPosition = nextPosition;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.skywars.presentation.controller;
 
+import com.skywars.application.cache.CacheInvalidationBus;
 import com.skywars.application.usecase.*;
 import com.skywars.domain.entity.SkyUser;
 import com.skywars.presentation.events.SkyUserJoinEvent;
@@ -15,8 +16,15 @@ import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -25,8 +33,11 @@ import java.util.concurrent.ConcurrentMap;
  * 
  * This controller implements the Clean Architecture pattern by coordinating
  * between the presentation layer (Bukkit events) and application layer (use cases).
+ * 
+ * Active players changed by another server are reloaded when the change is
+ * announced on the cache invalidation bus.
  */
-public class SkyUserController implements Listener {
+public class SkyUserController implements Listener, CacheInvalidationBus.Listener {
     
     private final GetSkyUserUseCase getSkyUserUseCase;
     private final SaveSkyUserUseCase saveSkyUserUseCase;
@@ -261,18 +272,100 @@ public class SkyUserController implements Listener {
     }
     
     /**
-     * Save all active players (for shutdown or periodic saves)
+     * Load many players at once (e.g. at game start or after a reload)
+     * 
+     * Players already active are skipped, known players are loaded with one bulk
+     * read and only players without data are created individually.
      */
-    public void saveAllActivePlayers() {
-        activePlayers.values().forEach(skyUser -> {
-            saveSkyUserUseCase.execute(skyUser)
-                    .exceptionally(throwable -> {
-                        System.err.println("Error saving user data for " + skyUser.getName() + ": " + throwable.getMessage());
-                        return null;
+    public CompletableFuture<Void> loadPlayers(Collection<? extends Player> players) {
+        Map<UUID, Player> toLoad = players.stream()
+                .filter(player -> !activePlayers.containsKey(player.getName()))
+                .collect(Collectors.toMap(Player::getUniqueId, player -> player, (a, b) -> a));
+        
+        if (toLoad.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        return getSkyUserUseCase.executeAll(toLoad.keySet())
+                .thenCompose(users -> {
+                    List<CompletableFuture<SkyUser>> created = new ArrayList<>();
+                    
+                    toLoad.forEach((uuid, player) -> {
+                        SkyUser skyUser = users.get(uuid);
+                        if (skyUser != null) {
+                            activePlayers.put(player.getName(), skyUser);
+                        } else {
+                            created.add(createSkyUserUseCase.execute(uuid, player.getName())
+                                    .thenApply(newUser -> {
+                                        activePlayers.put(player.getName(), newUser);
+                                        return newUser;
+                                    }));
+                        }
                     });
+                    
+                    return CompletableFuture.allOf(created.toArray(new CompletableFuture<?>[0]));
+                })
+                .exceptionally(throwable -> {
+                    System.err.println("Error loading " + toLoad.size() + " players: " + throwable.getMessage());
+                    return null;
+                });
+    }
+    
+    /**
+     * Reload an active player changed by another server
+     */
+    @Override
+    public void onInvalidate(UUID uuid, long version) {
+        activePlayers.forEach((name, skyUser) -> {
+            if (skyUser.getUuid().equals(uuid)) {
+                getSkyUserUseCase.execute(uuid)
+                        .thenAccept(reloaded -> reloaded.ifPresent(fresh -> activePlayers.replace(name, skyUser, fresh)))
+                        .exceptionally(throwable -> {
+                            System.err.println("Error reloading user data for " + name + ": " + throwable.getMessage());
+                            return null;
+                        });
+            }
         });
     }
     
+    /**
+     * Reload every active player, changes by other servers may have been missed
+     */
+    @Override
+    public void onInvalidateAll() {
+        Map<UUID, SkyUser> loaded = activePlayers.values().stream()
+                .collect(Collectors.toMap(SkyUser::getUuid, Function.identity(), (a, b) -> a));
+        if (loaded.isEmpty()) {
+            return;
+        }
+        
+        getSkyUserUseCase.executeAll(loaded.keySet())
+                .thenAccept(users -> users.forEach((uuid, fresh) -> {
+                    SkyUser current = loaded.get(uuid);
+                    activePlayers.replace(current.getName(), current, fresh);
+                }))
+                .exceptionally(throwable -> {
+                    System.err.println("Error reloading " + loaded.size() + " players: " + throwable.getMessage());
+                    return null;
+                });
+    }
+    
+    /**
+     * Save all active players (for shutdown or periodic saves)
+     */
+    public void saveAllActivePlayers() {
+        List<SkyUser> users = new ArrayList<>(activePlayers.values());
+        if (users.isEmpty()) {
+            return;
+        }
+        
+        saveSkyUserUseCase.executeAll(users)
+                .exceptionally(throwable -> {
+                    System.err.println("Error saving data for " + users.size() + " players: " + throwable.getMessage());
+                    return null;
+                });
+    }
+    
     /**
      * Get number of active players
      */
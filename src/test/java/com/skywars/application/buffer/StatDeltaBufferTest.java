@@ -0,0 +1,150 @@
+package com.skywars.application.buffer;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.testing.InMemorySkyUserCacheRepository;
+import com.skywars.testing.InMemorySkyUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatDeltaBufferTest {
+
+    private static final UUID PLAYER = new UUID(0, 1);
+    private static final UUID OTHER_PLAYER = new UUID(0, 2);
+
+    private InMemorySkyUserRepository userRepository;
+    private InMemorySkyUserCacheRepository cacheRepository;
+    private StatDeltaBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = new InMemorySkyUserRepository();
+        cacheRepository = new InMemorySkyUserCacheRepository();
+        buffer = new StatDeltaBuffer(userRepository, cacheRepository, 1000);
+
+        SkyUser player = SkyUser.createNew(PLAYER, "Player");
+        userRepository.add(player);
+        cacheRepository.put(player);
+        userRepository.add(SkyUser.createNew(OTHER_PLAYER, "Other"));
+    }
+
+    @Test
+    void overlayAddsChangesNotYetFlushed() {
+        buffer.record(PLAYER, StatDelta.ofKills(1));
+        buffer.record(PLAYER, StatDelta.ofKills(2));
+
+        Optional<SkyUser> user = buffer.overlay(userRepository.findByUuid(PLAYER).join());
+
+        assertEquals(3, user.orElseThrow().getKills());
+        assertEquals(1, buffer.getPendingCount());
+        assertTrue(buffer.hasUnpersisted(PLAYER));
+        assertFalse(buffer.hasUnpersisted(OTHER_PLAYER));
+    }
+
+    @Test
+    void flushWritesMergedChangesOnceAndDropsPlayersFromCache() {
+        buffer.record(PLAYER, StatDelta.ofKills(1));
+        buffer.record(PLAYER, StatDelta.ofCoins(10));
+
+        buffer.flush().join();
+
+        assertEquals(1, userRepository.getAppliedBatches().size());
+        StatDelta written = userRepository.getAppliedBatches().get(0).get(PLAYER);
+        assertEquals(1, written.getKills());
+        assertEquals(10, written.getCoins());
+
+        SkyUser stored = userRepository.stored(PLAYER).orElseThrow();
+        assertEquals(1, stored.getKills());
+        assertEquals(110, stored.getCoins());
+
+        assertFalse(cacheRepository.contains(PLAYER), "flushed players must be reloaded, not incremented");
+        assertFalse(buffer.hasUnpersisted(PLAYER));
+        assertEquals(0, buffer.getPendingCount());
+    }
+
+    @Test
+    void flushWithoutChangesWritesNothing() {
+        buffer.flush().join();
+
+        assertTrue(userRepository.getAppliedBatches().isEmpty());
+        assertTrue(cacheRepository.contains(PLAYER));
+    }
+
+    @Test
+    void failedFlushKeepsChangesForTheNextFlush() {
+        buffer.record(PLAYER, StatDelta.ofWins(1));
+        userRepository.failWrites(new IllegalStateException("database down"));
+
+        assertThrows(CompletionException.class, () -> buffer.flush().join());
+
+        assertTrue(buffer.hasUnpersisted(PLAYER));
+        assertEquals(1, buffer.getPendingDelta(PLAYER).getWins());
+        assertTrue(cacheRepository.contains(PLAYER));
+        assertEquals(0, userRepository.stored(PLAYER).orElseThrow().getWins());
+
+        userRepository.failWrites(null);
+        buffer.flush().join();
+
+        assertFalse(buffer.hasUnpersisted(PLAYER));
+        assertEquals(1, userRepository.stored(PLAYER).orElseThrow().getWins());
+    }
+
+    @Test
+    void changesRecordedDuringAFlushStayPendingAndAreOverlaidOnce() {
+        CompletableFuture<Void> writes = userRepository.holdWrites();
+        buffer.record(PLAYER, StatDelta.ofKills(1));
+        CompletableFuture<Void> flush = buffer.flush();
+
+        buffer.record(PLAYER, StatDelta.ofKills(2));
+        assertEquals(3, buffer.getPendingDelta(PLAYER).getKills());
+
+        writes.complete(null);
+        flush.join();
+
+        assertEquals(1, userRepository.stored(PLAYER).orElseThrow().getKills());
+        assertEquals(2, buffer.getPendingDelta(PLAYER).getKills());
+
+        Optional<SkyUser> user = buffer.overlay(userRepository.findByUuid(PLAYER).join());
+        assertEquals(3, user.orElseThrow().getKills());
+    }
+
+    @Test
+    void flushedSinceReportsOnlyFlushesOfThePlayerAfterTheToken() {
+        long before = buffer.readToken();
+        buffer.record(PLAYER, StatDelta.ofKills(1));
+
+        assertFalse(buffer.flushedSince(PLAYER, before));
+
+        buffer.flush().join();
+
+        assertTrue(buffer.flushedSince(PLAYER, before));
+        assertFalse(buffer.flushedSince(OTHER_PLAYER, before));
+        assertFalse(buffer.flushedSince(PLAYER, buffer.readToken()));
+    }
+
+    @Test
+    void flushedSinceIsTrueWhileAFlushIsTakingChanges() {
+        CompletableFuture<Void> writes = userRepository.holdWrites();
+        long before = buffer.readToken();
+        buffer.record(OTHER_PLAYER, StatDelta.ofKills(1));
+        CompletableFuture<Void> flush = buffer.flush();
+
+        // Not settled yet, a read taking its token now may still overlap the flush
+        long during = buffer.readToken();
+        assertEquals(before, during);
+        assertFalse(buffer.flushedSince(PLAYER, during));
+        assertTrue(buffer.flushedSince(OTHER_PLAYER, during));
+
+        writes.complete(null);
+        flush.join();
+        assertEquals(Set.of(OTHER_PLAYER), userRepository.getAppliedBatches().get(0).keySet());
+    }
+}
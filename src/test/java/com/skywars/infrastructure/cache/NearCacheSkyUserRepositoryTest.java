@@ -0,0 +1,132 @@
+package com.skywars.infrastructure.cache;
+
+import com.skywars.domain.cosmetic.UserCosmetics;
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.testing.InMemorySkyUserCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearCacheSkyUserRepositoryTest {
+
+    // One window slot and three main slots
+    private static final int MAX_ENTRIES = 4;
+    private static final long MAX_BYTES = 1_000_000;
+    private static final long TTL_SECONDS = 60;
+
+    private InMemorySkyUserCacheRepository delegate;
+    private NearCacheSkyUserRepository nearCache;
+
+    @BeforeEach
+    void setUp() {
+        delegate = new InMemorySkyUserCacheRepository();
+        nearCache = new NearCacheSkyUserRepository(delegate, MAX_ENTRIES, MAX_BYTES, TTL_SECONDS);
+        for (int i = 1; i <= 10; i++) {
+            delegate.put(SkyUser.createNew(player(i), "Player" + i));
+        }
+    }
+
+    @Test
+    void repeatedReadsAreServedLocally() {
+        nearCache.get(player(1)).join();
+        nearCache.get(player(1)).join();
+        nearCache.get(player(1)).join();
+
+        assertEquals(1, delegate.getLookups());
+        assertEquals(2, nearCache.getStats().getHits());
+    }
+
+    @Test
+    void oneOffReadsDoNotEvictPopularPlayers() {
+        load(1, 2, 3, 4);
+        for (int round = 0; round < 3; round++) {
+            load(1, 2, 3);
+        }
+
+        // Each one-off pushes the previous one out of the window, none beats a popular entry
+        load(5, 6, 7);
+
+        int lookups = delegate.getLookups();
+        load(1, 2, 3);
+        assertEquals(lookups, delegate.getLookups(), "popular players must stay cached");
+
+        load(4);
+        assertEquals(lookups + 1, delegate.getLookups(), "the one-off read must not have been admitted");
+    }
+
+    @Test
+    void frequentlyReadNewcomerReplacesTheColdestEntry() {
+        load(1, 2, 3, 4);
+        for (int round = 0; round < 4; round++) {
+            load(4);
+        }
+
+        // Pushes player 4 out of the window, it is read more often than player 1
+        load(5);
+
+        int lookups = delegate.getLookups();
+        load(4);
+        assertEquals(lookups, delegate.getLookups(), "the frequently read newcomer must be admitted");
+
+        load(1);
+        assertEquals(lookups + 1, delegate.getLookups(), "the coldest entry must have been evicted");
+    }
+
+    @Test
+    void usersWithoutLoadedCosmeticsAreNotKept() {
+        SkyUser statsOnly = SkyUser.createNew(player(11), "StatsOnly");
+        statsOnly.setCosmetics(UserCosmetics.notLoaded());
+        delegate.put(statsOnly);
+
+        load(11);
+        load(11);
+
+        assertEquals(2, delegate.getLookups());
+        assertEquals(0, nearCache.size());
+    }
+
+    @Test
+    void memoryBoundEvictsEntries() {
+        nearCache = new NearCacheSkyUserRepository(delegate, 100, 1200, TTL_SECONDS);
+
+        load(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+
+        assertTrue(nearCache.getMemoryUsage() <= 1200);
+        assertTrue(nearCache.size() < 10);
+    }
+
+    @Test
+    void writesUpdateTheCachedCopy() {
+        load(1);
+
+        nearCache.applyDelta(player(1), StatDelta.ofKills(2)).join();
+        int lookups = delegate.getLookups();
+
+        assertEquals(2, nearCache.get(player(1)).join().orElseThrow().getKills());
+        assertEquals(lookups, delegate.getLookups());
+    }
+
+    @Test
+    void invalidatedUsersAreLoadedAgain() {
+        load(1);
+
+        nearCache.invalidate(player(1));
+        load(1);
+
+        assertEquals(2, delegate.getLookups());
+    }
+
+    private void load(int... players) {
+        for (int player : players) {
+            assertTrue(nearCache.get(player(player)).join().isPresent());
+        }
+    }
+
+    private static UUID player(int number) {
+        return new UUID(0, number);
+    }
+}
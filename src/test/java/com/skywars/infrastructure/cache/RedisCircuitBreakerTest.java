@@ -0,0 +1,189 @@
+package com.skywars.infrastructure.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisCircuitBreakerTest {
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long CALL_TIMEOUT_MILLIS = 50;
+    private static final long PROBE_INTERVAL_MILLIS = 10;
+
+    private final AtomicBoolean reachable = new AtomicBoolean(false);
+    private ScheduledExecutorService scheduler;
+    private RedisCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        breaker = new RedisCircuitBreaker(new FakeJedisPool(), FAILURE_THRESHOLD, CALL_TIMEOUT_MILLIS, PROBE_INTERVAL_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        breaker.stop();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void opensAfterConsecutiveConnectionFailures() {
+        for (int i = 1; i < FAILURE_THRESHOLD; i++) {
+            fail(new JedisConnectionException("connection refused"));
+            assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+        }
+
+        fail(new JedisConnectionException("connection refused"));
+
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTripCount());
+        assertTrue(breaker.getOpenedAt() > 0);
+    }
+
+    @Test
+    void openCircuitAnswersWithTheFallbackWithoutCallingRedis() {
+        open();
+        AtomicInteger calls = new AtomicInteger();
+
+        String read = breaker.read(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("redis");
+        }, () -> "fallback").join();
+        String written = breaker.write(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("redis");
+        }, () -> "fallback").join();
+
+        assertEquals("fallback", read);
+        assertEquals("fallback", written);
+        assertEquals(0, calls.get());
+        assertEquals(2, breaker.getRejectedCount());
+    }
+
+    @Test
+    void errorsAnsweredByRedisDoNotOpen() {
+        for (int i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            fail(new JedisDataException("WRONGTYPE"));
+        }
+
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        for (int i = 1; i < FAILURE_THRESHOLD; i++) {
+            fail(new JedisConnectionException("connection refused"));
+        }
+        breaker.read(() -> CompletableFuture.completedFuture("ok"), () -> "fallback").join();
+        for (int i = 1; i < FAILURE_THRESHOLD; i++) {
+            fail(new JedisConnectionException("connection refused"));
+        }
+
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void callsRunningPastTheTimeLimitCountAsFailures() {
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            CompletableFuture<String> call = breaker.read(CompletableFuture::new, () -> "fallback");
+            assertThrows(CompletionException.class, call::join);
+        }
+
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void closesOnceRedisAnswersAndRecoverySucceeds() throws InterruptedException {
+        CompletableFuture<Void> recovery = new CompletableFuture<>();
+        breaker.addRecoveryTask(() -> recovery);
+        open();
+        breaker.start(scheduler, Runnable::run);
+
+        // No answer, no recovery
+        Thread.sleep(PROBE_INTERVAL_MILLIS * 5);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+
+        reachable.set(true);
+        awaitState(RedisCircuitBreaker.State.HALF_OPEN);
+
+        // Half open: writes reach Redis again, reads keep using the fallback
+        assertEquals("redis", breaker.write(() -> CompletableFuture.completedFuture("redis"), () -> "fallback").join());
+        assertEquals("fallback", breaker.read(() -> CompletableFuture.completedFuture("redis"), () -> "fallback").join());
+
+        recovery.complete(null);
+        awaitState(RedisCircuitBreaker.State.CLOSED);
+        assertTrue(breaker.isClosed());
+    }
+
+    @Test
+    void failedRecoveryOpensAgainAndIsRetried() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        breaker.addRecoveryTask(() -> attempts.incrementAndGet() == 1
+                ? CompletableFuture.failedFuture(new JedisConnectionException("connection reset"))
+                : CompletableFuture.completedFuture(null));
+        open();
+        reachable.set(true);
+
+        breaker.start(scheduler, Runnable::run);
+        awaitState(RedisCircuitBreaker.State.CLOSED);
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, breaker.getTripCount());
+    }
+
+    private void fail(RuntimeException exception) {
+        CompletableFuture<String> call = breaker.read(() -> CompletableFuture.failedFuture(exception), () -> "fallback");
+        assertThrows(CompletionException.class, call::join);
+    }
+
+    private void open() {
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            fail(new JedisConnectionException("connection refused"));
+        }
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void awaitState(RedisCircuitBreaker.State expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (breaker.getState() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, breaker.getState());
+    }
+
+    /**
+     * Pool handing out connections that answer pings while Redis is "reachable"
+     */
+    private class FakeJedisPool extends JedisPool {
+
+        @Override
+        public Jedis getResource() {
+            return new Jedis() {
+                @Override
+                public String ping() {
+                    if (!reachable.get()) {
+                        throw new JedisConnectionException("connection refused");
+                    }
+                    return "PONG";
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.skywars.infrastructure.database;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.testing.InMemorySkyUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitSkyUserRepositoryTest {
+
+    private static final UUID PLAYER = new UUID(0, 1);
+    private static final UUID OTHER_PLAYER = new UUID(0, 2);
+
+    // Long enough that only flushes and full batches commit during a test
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private ScheduledExecutorService scheduler;
+    private InMemorySkyUserRepository delegate;
+    private GroupCommitSkyUserRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        delegate = new InMemorySkyUserRepository();
+        repository = new GroupCommitSkyUserRepository(delegate, scheduler, WINDOW_MILLIS, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void savesInTheWindowCommitAsOneBatchWithTheLatestSnapshot() {
+        SkyUser player = SkyUser.createNew(PLAYER, "Player");
+        CompletableFuture<Void> first = repository.save(player);
+        CompletableFuture<Void> other = repository.save(SkyUser.createNew(OTHER_PLAYER, "Other"));
+        player.setName("Renamed");
+        CompletableFuture<Void> second = repository.save(player);
+
+        assertFalse(first.isDone());
+        assertEquals(2, repository.getPendingCount());
+
+        repository.flush().join();
+
+        assertTrue(first.isDone() && second.isDone() && other.isDone());
+        assertEquals(List.of(List.of(PLAYER, OTHER_PLAYER)), delegate.getSavedBatches());
+        assertEquals("Renamed", delegate.stored(PLAYER).orElseThrow().getName());
+    }
+
+    @Test
+    void queuedSaveKeepsTheSavedStateWhenTheCallerChangesTheUser() {
+        SkyUser player = SkyUser.createNew(PLAYER, "Player");
+        repository.save(player);
+        player.setName("ChangedAfterSave");
+
+        repository.flush().join();
+
+        assertEquals("Player", delegate.stored(PLAYER).orElseThrow().getName());
+    }
+
+    @Test
+    void newerSnapshotWaitsForTheBatchCommittingAnOlderOne() {
+        CompletableFuture<Void> writes = delegate.holdWrites();
+        SkyUser player = SkyUser.createNew(PLAYER, "Player");
+        CompletableFuture<Void> first = repository.save(player);
+        repository.flush();
+
+        player.setName("Renamed");
+        CompletableFuture<Void> second = repository.save(player);
+        CompletableFuture<Void> secondFlush = repository.flush();
+
+        // Held back behind the first batch, not written next to it
+        assertEquals(1, repository.getPendingCount());
+        assertFalse(secondFlush.isDone());
+
+        writes.complete(null);
+        CompletableFuture.allOf(first, second, secondFlush).join();
+
+        assertEquals(List.of(List.of(PLAYER), List.of(PLAYER)), delegate.getSavedBatches());
+        assertEquals("Renamed", delegate.stored(PLAYER).orElseThrow().getName());
+        assertEquals(0, repository.getPendingCount());
+    }
+
+    @Test
+    void failedBatchFailsEverySaveInIt() {
+        delegate.failWrites(new IllegalStateException("database down"));
+        CompletableFuture<Void> player = repository.save(SkyUser.createNew(PLAYER, "Player"));
+        CompletableFuture<Void> other = repository.save(SkyUser.createNew(OTHER_PLAYER, "Other"));
+
+        assertThrows(CompletionException.class, () -> repository.flush().join());
+        assertTrue(player.isCompletedExceptionally());
+        assertTrue(other.isCompletedExceptionally());
+        assertEquals(0, repository.getPendingCount());
+
+        // Nothing is stuck behind the failed batch
+        delegate.failWrites(null);
+        repository.save(SkyUser.createNew(PLAYER, "Player"));
+        repository.flush().join();
+        assertTrue(delegate.stored(PLAYER).isPresent());
+    }
+
+    @Test
+    void fullBatchCommitsWithoutWaitingForTheWindow() {
+        repository = new GroupCommitSkyUserRepository(delegate, scheduler, WINDOW_MILLIS, 2);
+
+        CompletableFuture<Void> player = repository.save(SkyUser.createNew(PLAYER, "Player"));
+        CompletableFuture<Void> other = repository.save(SkyUser.createNew(OTHER_PLAYER, "Other"));
+
+        CompletableFuture.allOf(player, other).join();
+        assertEquals(1, delegate.getSavedBatches().size());
+    }
+
+    @Test
+    void readsWritePendingSavesOfTheUserFirst() {
+        repository.save(SkyUser.createNew(PLAYER, "Player"));
+
+        assertTrue(repository.findByUuid(PLAYER).join().isPresent());
+        assertEquals(0, repository.getPendingCount());
+    }
+}
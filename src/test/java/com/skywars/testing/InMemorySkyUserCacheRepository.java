@@ -0,0 +1,125 @@
+package com.skywars.testing;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.repository.SkyUserCacheRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * InMemorySkyUserCacheRepository - SkyUserCacheRepository backed by a map, for unit tests
+ *
+ * Users are copied on the way in and out like a serializing cache would.
+ * Lookups reaching this cache are counted, so tiers in front of it can be
+ * checked for hits.
+ */
+public class InMemorySkyUserCacheRepository implements SkyUserCacheRepository {
+
+    private final Map<UUID, SkyUser> users = new ConcurrentHashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    /**
+     * Check if a user is cached, without counting a lookup
+     */
+    public boolean contains(UUID uuid) {
+        return users.containsKey(uuid);
+    }
+
+    /**
+     * Get the number of user lookups that reached this cache
+     */
+    public int getLookups() {
+        return lookups.get();
+    }
+
+    private Optional<SkyUser> lookup(UUID uuid) {
+        lookups.incrementAndGet();
+        return Optional.ofNullable(users.get(uuid)).map(SkyUser::copy);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> get(UUID uuid) {
+        return CompletableFuture.completedFuture(lookup(uuid));
+    }
+
+    @Override
+    public CompletableFuture<CacheEntry> getEntry(UUID uuid, long recomputeMillis) {
+        return CompletableFuture.completedFuture(new CacheEntry(lookup(uuid), false));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> getAll(Collection<UUID> uuids) {
+        Map<UUID, SkyUser> found = new HashMap<>();
+        for (UUID uuid : uuids) {
+            lookup(uuid).ifPresent(user -> found.put(uuid, user));
+        }
+        return CompletableFuture.completedFuture(found);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> getStats(UUID uuid) {
+        return get(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(SkyUser user) {
+        users.put(user.getUuid(), user.copy());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(SkyUser user, long ttlSeconds) {
+        return put(user);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAll(Collection<SkyUser> users) {
+        users.forEach(this::put);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return CompletableFuture.completedFuture(users.computeIfPresent(uuid, (key, user) -> {
+            delta.applyTo(user);
+            return user;
+        }) != null);
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        deltas.forEach(this::applyDelta);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> remove(UUID uuid) {
+        users.remove(uuid);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAll(Collection<UUID> uuids) {
+        uuids.forEach(users::remove);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(UUID uuid) {
+        return CompletableFuture.completedFuture(users.containsKey(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> clear() {
+        users.clear();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<CacheInfo> getInfo() {
+        return CompletableFuture.completedFuture(new CacheInfo(users.size(), 0, true));
+    }
+}
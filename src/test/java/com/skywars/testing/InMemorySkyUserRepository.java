@@ -0,0 +1,258 @@
+package com.skywars.testing;
+
+import com.skywars.domain.entity.SkyUser;
+import com.skywars.domain.entity.StatDelta;
+import com.skywars.domain.leaderboard.LeaderboardCursor;
+import com.skywars.domain.leaderboard.LeaderboardStat;
+import com.skywars.domain.repository.SkyUserRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * InMemorySkyUserRepository - SkyUserRepository backed by a map, for unit tests
+ *
+ * Follows the MySQL semantics callers rely on: saving an existing user only
+ * updates its name and last seen time, counters change through deltas.
+ * Writes can be held back with {@link #holdWrites()} and failed with
+ * {@link #failWrites(RuntimeException)}, every batch write is recorded.
+ */
+public class InMemorySkyUserRepository implements SkyUserRepository {
+
+    private final Map<UUID, SkyUser> users = new ConcurrentHashMap<>();
+
+    private final List<List<UUID>> savedBatches = new CopyOnWriteArrayList<>();
+    private final List<Map<UUID, StatDelta>> appliedBatches = new CopyOnWriteArrayList<>();
+
+    private volatile CompletableFuture<Void> writeGate = CompletableFuture.completedFuture(null);
+    private volatile RuntimeException writeFailure;
+
+    /**
+     * Store a user directly, bypassing the write gate
+     */
+    public void add(SkyUser user) {
+        users.put(user.getUuid(), user.copy());
+    }
+
+    /**
+     * Get a copy of what is stored for a user
+     */
+    public Optional<SkyUser> stored(UUID uuid) {
+        return Optional.ofNullable(users.get(uuid)).map(SkyUser::copy);
+    }
+
+    /**
+     * Hold back the writes made from now on until the returned future is completed
+     */
+    public CompletableFuture<Void> holdWrites() {
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        writeGate = gate;
+        return gate;
+    }
+
+    /**
+     * Fail the writes released from now on with the given exception, null to stop failing
+     */
+    public void failWrites(RuntimeException failure) {
+        writeFailure = failure;
+    }
+
+    /**
+     * Get the UUIDs of every saveAll call, in the order they were bound
+     */
+    public List<List<UUID>> getSavedBatches() {
+        return savedBatches;
+    }
+
+    /**
+     * Get the deltas of every applyDeltas call
+     */
+    public List<Map<UUID, StatDelta>> getAppliedBatches() {
+        return appliedBatches;
+    }
+
+    private <T> CompletableFuture<T> write(Supplier<T> action) {
+        return writeGate.thenApply(v -> {
+            RuntimeException failure = writeFailure;
+            if (failure != null) {
+                throw failure;
+            }
+            return action.get();
+        });
+    }
+
+    private void upsert(SkyUser user) {
+        users.merge(user.getUuid(), user.copy(), (stored, saved) -> {
+            stored.setName(saved.getName());
+            stored.setLastSeen(saved.getLastSeen());
+            stored.setCosmetics(saved.getCosmetics());
+            return stored;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByUuid(UUID uuid) {
+        return CompletableFuture.completedFuture(stored(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Optional<SkyUser>> findByName(String name) {
+        return CompletableFuture.completedFuture(users.values().stream()
+                .filter(user -> user.getName().equalsIgnoreCase(name))
+                .findFirst()
+                .map(SkyUser::copy));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, SkyUser>> findAllByUuids(Collection<UUID> uuids) {
+        Map<UUID, SkyUser> found = new HashMap<>();
+        for (UUID uuid : uuids) {
+            stored(uuid).ifPresent(user -> found.put(uuid, user));
+        }
+        return CompletableFuture.completedFuture(found);
+    }
+
+    @Override
+    public CompletableFuture<Void> save(SkyUser user) {
+        SkyUser snapshot = user.copy();
+        return write(() -> {
+            upsert(snapshot);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(List<SkyUser> users) {
+        List<SkyUser> snapshots = new ArrayList<>(users.size());
+        users.forEach(user -> snapshots.add(user.copy()));
+        return write(() -> {
+            savedBatches.add(snapshots.stream().map(SkyUser::getUuid).toList());
+            snapshots.forEach(this::upsert);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insertIfAbsent(SkyUser user) {
+        SkyUser snapshot = user.copy();
+        return write(() -> users.putIfAbsent(snapshot.getUuid(), snapshot) == null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> applyDelta(UUID uuid, StatDelta delta) {
+        return write(() -> users.computeIfPresent(uuid, (key, user) -> {
+            delta.applyTo(user);
+            return user;
+        }) != null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> spendCoins(UUID uuid, int amount) {
+        return write(() -> {
+            SkyUser user = users.get(uuid);
+            if (user == null) {
+                return false;
+            }
+            synchronized (user) {
+                if (user.getCoins() < amount) {
+                    return false;
+                }
+                user.setCoins(user.getCoins() - amount);
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDeltas(Map<UUID, StatDelta> deltas) {
+        Map<UUID, StatDelta> batch = new HashMap<>(deltas);
+        return write(() -> {
+            appliedBatches.add(batch);
+            batch.forEach((uuid, delta) -> users.computeIfPresent(uuid, (key, user) -> {
+                delta.applyTo(user);
+                return user;
+            }));
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteByUuid(UUID uuid) {
+        return write(() -> {
+            users.remove(uuid);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByUuid(UUID uuid) {
+        return CompletableFuture.completedFuture(users.containsKey(uuid));
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByKills(int limit) {
+        return CompletableFuture.completedFuture(top(Comparator.comparingInt(SkyUser::getKills), limit));
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getTopPlayersByWins(int limit) {
+        return CompletableFuture.completedFuture(top(Comparator.comparingInt(SkyUser::getWins), limit));
+    }
+
+    private List<SkyUser> top(Comparator<SkyUser> order, int limit) {
+        return users.values().stream()
+                .sorted(order.reversed())
+                .limit(limit)
+                .map(SkyUser::copy)
+                .toList();
+    }
+
+    @Override
+    public CompletableFuture<List<SkyUser>> getLeaderboardPage(LeaderboardStat stat, LeaderboardCursor after, int limit) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("Leaderboard pages are not kept in memory"));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Long>> rankOf(UUID uuid, LeaderboardStat stat) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("Ranks are served from the leaderboards"));
+    }
+
+    @Override
+    public CompletableFuture<List<UUID>> findRecentlySeenUuids(int limit) {
+        return CompletableFuture.completedFuture(users.values().stream()
+                .sorted(Comparator.comparing(SkyUser::getLastSeen).reversed())
+                .limit(limit)
+                .map(SkyUser::getUuid)
+                .toList());
+    }
+
+    @Override
+    @Deprecated
+    public CompletableFuture<List<SkyUser>> findAll() {
+        return CompletableFuture.completedFuture(users.values().stream().map(SkyUser::copy).toList());
+    }
+
+    @Override
+    public CompletableFuture<Long> streamAll(Consumer<SkyUser> consumer, int batchSize) {
+        long streamed = 0;
+        for (SkyUser user : users.values()) {
+            consumer.accept(user.copy());
+            streamed++;
+        }
+        return CompletableFuture.completedFuture(streamed);
+    }
+
+    @Override
+    public CompletableFuture<Long> count() {
+        return CompletableFuture.completedFuture((long) users.size());
+    }
+
+    @Override
+    public CompletableFuture<Long> approximateCount() {
+        return count();
+    }
+}